@@ -1,68 +1,61 @@
 package com.kirthanaa.id3.arffreader;
 
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.dataset.ID3DatasetBuilder;
 import com.kirthanaa.id3.entities.ID3Attribute;
 import com.kirthanaa.id3.entities.ID3Class;
-import weka.core.Instances;
-import weka.core.converters.ArffLoader;
+import com.kirthanaa.id3.metrics.TrainingListener;
+import com.kirthanaa.id3.metrics.TrainingLog;
 
 import java.io.*;
 import java.util.ArrayList;
 
 /**
  * Created by kirthanaaraghuraman on 9/23/15.
+ * <p>
+ * Each reader holds the results of parsing its own file, so several files can be read concurrently by separate
+ * readers.
  */
 public class ARFFReader {
 
-    private String mFileName = "";
+    private final String mFileName;
 
-    private static ArrayList<String[]> mDataInstanceList = null;
+    private ID3Dataset mDataset = null;
 
-    private static ID3Class mId3Class = null;
+    private ID3Class mId3Class = null;
 
-    private static ArrayList<ID3Attribute> mID3AttributeList = null;
+    private ArrayList<ID3Attribute> mID3AttributeList = null;
+
+    private TrainingListener mTrainingListener = null;
+
+    private boolean mUseCache = false;
 
     public ARFFReader(String fileName) {
         if (fileName == "") {
-            System.out.println("Filename is empty!");
+            TrainingLog.log(TrainingLog.ERROR, "Filename is empty!");
         } else {
-            System.out.println("Filename : " + fileName);
+            TrainingLog.log(TrainingLog.INFO, "Filename : " + fileName);
         }
         this.mFileName = fileName;
     }
 
     /**
-     * Given data of Instances format, parses them and stores in ID3Attribute format
+     * Sets the listener notified when the file has been parsed
      *
-     * @param data Instance variable containing data
+     * @param trainingListener Listener, or null for none
      */
-    public void setID3Attributes(Instances data) {
-        int attributeOrdinal = -1;
-        String attributeName = "";
-        String[] attributeValues = {};
-        int attributeType = -1;
+    public void setTrainingListener(TrainingListener trainingListener) {
+        this.mTrainingListener = trainingListener;
+    }
 
-        if (mID3AttributeList == null) {
-            mID3AttributeList = new ArrayList<ID3Attribute>();
-        }
-        if (data.classIndex() == -1) {
-            for (int i = 0; i < data.numAttributes() - 1; i++) {
-                attributeOrdinal = i;
-                attributeName = data.attribute(i).name();
-                if (data.attribute(i).isNumeric()) {
-                    attributeValues = null;
-                    attributeType = ID3Attribute.NUMERIC;
-                } else if (data.attribute(i).isNominal()) {
-                    attributeType = ID3Attribute.NOMINAL;
-                    attributeValues = new String[data.attribute(i).numValues()];
-                    for (int j = 0; j < data.attribute(i).numValues(); j++) {
-                        attributeValues[j] = data.attribute(i).value(j);
-                    }
-                }
-                ID3Attribute id3Attribute = new ID3Attribute(attributeOrdinal, attributeName, attributeType, attributeValues);
-                mID3AttributeList.add(id3Attribute);
-                System.out.println("Added attribute " + id3Attribute.mAttributeName + " to attribute list!");
-            }
-        }
+    /**
+     * Enables the binary dataset cache. When enabled, parseARFFFile loads the memory-mapped snapshot kept next to the
+     * ARFF file if it is up to date, and otherwise parses the file and writes a new snapshot.
+     *
+     * @param useCache True to use the cache
+     */
+    public void setUseCache(boolean useCache) {
+        this.mUseCache = useCache;
     }
 
     /**
@@ -72,30 +65,13 @@ public class ARFFReader {
      */
     public ArrayList<ID3Attribute> getAttributeList() {
         if (mID3AttributeList == null) {
-            System.out.println("Attribute list is null!");
+            TrainingLog.log(TrainingLog.ERROR, "Attribute list is null!");
             return null;
         } else {
             return mID3AttributeList;
         }
     }
 
-    /**
-     * Identifies the class labels from the Instances variable and stores them as ID3Class variable
-     *
-     * @param data Instance variable containing data
-     */
-    public void setID3Class(Instances data) {
-        if (data.classIndex() == -1) {
-            data.setClassIndex(data.numAttributes() - 1);
-            String classLabels[] = new String[data.attribute(data.numAttributes() - 1).numValues()];
-            for (int j = 0; j < data.attribute(data.numAttributes() - 1).numValues(); j++) {
-                classLabels[j] = data.attribute(data.numAttributes() - 1).value(j);
-                System.out.println("Added class label " + classLabels[j] + " to ID3 class ");
-            }
-            mId3Class = new ID3Class(classLabels);
-        }
-    }
-
     /**
      * Returns the ID3Class variable of the current file
      *
@@ -103,7 +79,7 @@ public class ARFFReader {
      */
     public ID3Class getID3Class() {
         if (mId3Class == null) {
-            System.out.println("Class label is null!");
+            TrainingLog.log(TrainingLog.ERROR, "Class label is null!");
             return null;
         } else {
             return mId3Class;
@@ -111,45 +87,16 @@ public class ARFFReader {
     }
 
     /**
-     * Returns the list of data instances
+     * Returns the columnar dataset of data instances
      *
-     * @return List of Data Instances
+     * @return Dataset of Data Instances
      */
-    public ArrayList<String[]> getDataInstanceList() {
-        if (mDataInstanceList == null) {
-            System.out.println("Data instance list is empty");
+    public ID3Dataset getDataset() {
+        if (mDataset == null) {
+            TrainingLog.log(TrainingLog.ERROR, "Dataset is empty");
             return null;
         } else {
-            return mDataInstanceList;
-        }
-    }
-
-    /**
-     * Parses the data instances in the Instance variable and stores them in an array list containing string array
-     *
-     * @param data Instance variable containing data
-     */
-    public void setDataInstanceList(Instances data) {
-        if (mDataInstanceList == null) {
-            mDataInstanceList = new ArrayList<String[]>();
-        }
-        System.out.println("Total number of Data instances : " + data.numInstances());
-        if (data.numInstances() != 0) {
-            for (int i = 0; i < data.numInstances(); i++) {
-                String dataInstanceValue[] = new String[data.instance(i).numValues()];
-                for (int j = 0; j < data.instance(i).numValues(); j++) {
-                    if (data.instance(i).attribute(j).isNumeric()) {
-                        dataInstanceValue[j] = data.instance(i).value(j) + "";
-                        System.out.println("Adding numeric attribute value : " + dataInstanceValue[j]);
-                    } else if (data.instance(i).attribute(j).isNominal()) {
-                        dataInstanceValue[j] = data.instance(i).stringValue(j);
-                        System.out.println("Adding nominal attribute value : " + dataInstanceValue[j]);
-                    }
-                }
-                mDataInstanceList.add(dataInstanceValue);
-                System.out.println("Number of data instances added to list: " + mDataInstanceList.size());
-                //System.out.println("Instance value of attribute 1: " + data.instance(i).stringValue(1));
-            }
+            return mDataset;
         }
     }
 
@@ -159,11 +106,11 @@ public class ARFFReader {
      * @return Number of data instances
      */
     private int getNumberOfDataInstances() {
-        if (mDataInstanceList == null) {
-            System.out.println("Data instance list is null!");
+        if (mDataset == null) {
+            TrainingLog.log(TrainingLog.ERROR, "Dataset is null!");
             return -1;
         } else {
-            return mDataInstanceList.size();
+            return mDataset.getNumInstances();
         }
     }
 
@@ -174,7 +121,7 @@ public class ARFFReader {
      */
     private int getNumberOfAttributes() {
         if (mID3AttributeList == null) {
-            System.out.println("Attribute list is null!");
+            TrainingLog.log(TrainingLog.ERROR, "Attribute list is null!");
             return -1;
         } else {
             return mID3AttributeList.size();
@@ -182,44 +129,79 @@ public class ARFFReader {
     }
 
     /**
-     * Parses the ARFF File using the ARFFLoader class on WEKA
+     * Parses the ARFF File in a single pass with ARFFStreamParser.
+     * The header is parsed into the attribute list and class, and the data rows are written straight into the
+     * columnar dataset. Gzip compressed files are supported. The listener, if any, is notified with the number of
+     * rows, bytes read, dataset size and parse time.
+     * If the cache is enabled, an up to date snapshot is loaded instead of parsing, or written after parsing.
      */
     public void parseARFFFile() {
 
-        ArffLoader arffLoader = new ArffLoader();
-        //TODO - Change this to the argument
+        long startNanos = System.nanoTime();
         File filedata = new File(mFileName);
-        //File filedata = new File("/Users/kirthanaaraghuraman/Documents/CS760/Assignments/HW#1/src/com/kirthanaa/id3/trainingset/diabetes_train.arff");
+        if (mUseCache && loadCache(filedata, startNanos)) {
+            return;
+        }
+        InputStream inputStream = null;
         try {
-            arffLoader.setFile(filedata);
-            Instances data = arffLoader.getDataSet();
-
-            setID3Attributes(data);
-
-            setID3Class(data);
-
-            setDataInstanceList(data);
+            inputStream = ARFFStreamParser.open(filedata);
+            ARFFStreamParser parser = new ARFFStreamParser(inputStream);
+            parser.parseHeader();
+            mID3AttributeList = parser.getAttributeList();
+            mId3Class = parser.getID3Class();
+
+            ID3DatasetBuilder datasetBuilder = new ID3DatasetBuilder(mID3AttributeList, mId3Class);
+            parser.parseData(datasetBuilder);
+            mDataset = datasetBuilder.build();
+            if (mTrainingListener != null) {
+                mTrainingListener.datasetLoaded(mFileName, mDataset.getNumInstances(), parser.getBytesRead(),
+                        mDataset.getHeapBytes(), System.nanoTime() - startNanos);
+            }
+            TrainingLog.log(TrainingLog.INFO, "Total number of Data instances : " + mDataset.getNumInstances());
+            if (mUseCache) {
+                ID3DatasetCache.write(mDataset, filedata, ID3DatasetCache.getCacheFile(filedata));
+            }
 
         } catch (IOException e) {
-            System.out.println(e.getMessage());
+            TrainingLog.log(TrainingLog.ERROR, e.getMessage());
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    TrainingLog.log(TrainingLog.ERROR, e.getMessage());
+                }
+            }
         }
     }
 
-    /*public static void main(String args[]){
-            ArffLoader arffloader=new ArffLoader();
-            File filedata = new File("/Users/kirthanaaraghuraman/Documents/CS760/Assignments/HW#1/src/com/kirthanaa/id3/trainingset/diabetes_train.arff");
-            try {
-                arffloader.setFile(filedata);
-                Instances data = arffloader.getDataSet();
-
-                setID3Attributes(data);
-
-                setID3Class(data);
-
-                setDataInstanceList(data);
-
-            }catch (IOException e) {
-                System.out.println(e.getMessage());
+    /**
+     * Loads the dataset from the snapshot of the ARFF file
+     *
+     * @param filedata   ARFF file
+     * @param startNanos Time the load started at
+     * @return True if an up to date snapshot was loaded
+     */
+    private boolean loadCache(File filedata, long startNanos) {
+        File cacheFile = ID3DatasetCache.getCacheFile(filedata);
+        try {
+            ID3Dataset dataset = ID3DatasetCache.load(cacheFile, filedata);
+            if (dataset == null) {
+                return false;
+            }
+            mDataset = dataset;
+            mID3AttributeList = dataset.getAttributeList();
+            mId3Class = dataset.getID3Class();
+            if (mTrainingListener != null) {
+                mTrainingListener.datasetLoaded(mFileName, mDataset.getNumInstances(), cacheFile.length(),
+                        mDataset.getHeapBytes(), System.nanoTime() - startNanos);
             }
-    }*/
+            TrainingLog.log(TrainingLog.INFO, "Total number of Data instances : " + mDataset.getNumInstances()
+                    + " (from " + cacheFile + ")");
+            return true;
+        } catch (IOException e) {
+            TrainingLog.log(TrainingLog.ERROR, e.getMessage());
+            return false;
+        }
+    }
 }
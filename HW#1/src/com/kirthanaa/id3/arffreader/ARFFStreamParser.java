@@ -0,0 +1,650 @@
+package com.kirthanaa.id3.arffreader;
+
+import com.kirthanaa.id3.dataset.ID3RowSink;
+import com.kirthanaa.id3.entities.ID3Attribute;
+import com.kirthanaa.id3.entities.ID3Class;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Single pass ARFF parser.
+ * The header is parsed into ID3Attribute and ID3Class variables, then the @data section is scanned byte by byte
+ * and every row is written straight into an ID3DatasetBuilder, without any intermediate row representation.
+ * The last attribute in the header is taken as the class and must be nominal. Rows may be dense or sparse, and any
+ * attribute value may be missing ('?'); the class value may not.
+ */
+public class ARFFStreamParser {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream mInputStream;
+
+    private final byte[] mBuffer = new byte[BUFFER_SIZE];
+
+    private int mPosition = 0;
+
+    private int mLimit = 0;
+
+    private long mBytesRead = 0;
+
+    private int mLineNumber = 1;
+
+    private byte[] mToken = new byte[64];
+
+    private int mTokenLength = 0;
+
+    private String mRelationName = "";
+
+    private ArrayList<ID3Attribute> mID3AttributeList = null;
+
+    private ID3Class mId3Class = null;
+
+    private NominalDictionary[] mDictionaries = null;
+
+    private NominalDictionary mClassDictionary = null;
+
+    public ARFFStreamParser(InputStream inputStream) {
+        this.mInputStream = inputStream;
+    }
+
+    /**
+     * Opens an ARFF file for parsing. Gzip compressed files are detected by their magic number and decompressed
+     * on the fly.
+     *
+     * @param file ARFF file, plain or gzip compressed
+     * @return Stream over the uncompressed contents of the file
+     * @throws IOException If the file cannot be opened
+     */
+    public static InputStream open(File file) throws IOException {
+        BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        inputStream.mark(2);
+        int first = inputStream.read();
+        int second = inputStream.read();
+        inputStream.reset();
+        if (first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >>> 8)) {
+            return new GZIPInputStream(inputStream, BUFFER_SIZE);
+        }
+        return inputStream;
+    }
+
+    /**
+     * Returns the name of the relation declared in the header
+     *
+     * @return Relation name
+     */
+    public String getRelationName() {
+        return mRelationName;
+    }
+
+    /**
+     * Returns the attributes declared in the header, excluding the class
+     *
+     * @return List of ID3Attributes
+     */
+    public ArrayList<ID3Attribute> getAttributeList() {
+        return mID3AttributeList;
+    }
+
+    /**
+     * Returns the class attribute declared in the header
+     *
+     * @return ID3Class variable
+     */
+    public ID3Class getID3Class() {
+        return mId3Class;
+    }
+
+    /**
+     * Returns the number of uncompressed bytes consumed so far
+     *
+     * @return Number of bytes read
+     */
+    public long getBytesRead() {
+        return mBytesRead - (mLimit - mPosition);
+    }
+
+    /**
+     * Parses the header up to and including the @data line
+     *
+     * @throws IOException If the header is malformed or declares an unsupported attribute type
+     */
+    public void parseHeader() throws IOException {
+        ArrayList<String> attributeNames = new ArrayList<String>();
+        ArrayList<String[]> attributeValues = new ArrayList<String[]>();
+
+        String line;
+        while ((line = readHeaderLine()) != null) {
+            line = line.trim();
+            if (line.length() == 0 || line.charAt(0) == '%') {
+                continue;
+            }
+            String lowerCaseLine = line.toLowerCase();
+            if (lowerCaseLine.startsWith("@relation")) {
+                mRelationName = unquote(line.substring("@relation".length()).trim());
+            } else if (lowerCaseLine.startsWith("@attribute")) {
+                String declaration = line.substring("@attribute".length()).trim();
+                int nameEnd = findNameEnd(declaration);
+                String name = unquote(declaration.substring(0, nameEnd));
+                String type = declaration.substring(nameEnd).trim();
+                attributeNames.add(name);
+                attributeValues.add(parseAttributeType(name, type));
+            } else if (lowerCaseLine.startsWith("@data")) {
+                break;
+            } else {
+                throw new IOException("Unexpected line " + (mLineNumber - 1) + " in ARFF header : " + line);
+            }
+        }
+        if (line == null) {
+            throw new IOException("ARFF file has no @data section");
+        }
+
+        int numAttributes = attributeNames.size() - 1;
+        if (numAttributes < 0 || attributeValues.get(numAttributes) == null) {
+            throw new IOException("The last attribute of the ARFF file must be a nominal class attribute");
+        }
+
+        mID3AttributeList = new ArrayList<ID3Attribute>(numAttributes);
+        mDictionaries = new NominalDictionary[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            String[] values = attributeValues.get(i);
+            int attributeType = values == null ? ID3Attribute.NUMERIC : ID3Attribute.NOMINAL;
+            mID3AttributeList.add(new ID3Attribute(i, attributeNames.get(i), attributeType, values));
+            if (values != null) {
+                mDictionaries[i] = new NominalDictionary(values);
+            }
+        }
+        mId3Class = new ID3Class(attributeValues.get(numAttributes));
+        mClassDictionary = new NominalDictionary(mId3Class.mClassLabels);
+    }
+
+    /**
+     * Scans the @data section and writes every row into the dataset builder, or any other row sink.
+     * parseHeader must have been called before.
+     *
+     * @param datasetBuilder Builder receiving the rows
+     * @throws IOException If a row is malformed or the stream cannot be read
+     */
+    public void parseData(ID3RowSink datasetBuilder) throws IOException {
+        int numAttributes = mID3AttributeList.size();
+        boolean[] isNumeric = new boolean[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            isNumeric[i] = mID3AttributeList.get(i).mAttributeType == ID3Attribute.NUMERIC;
+        }
+
+        int c = read();
+        while (true) {
+            while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                if (c == '\n') {
+                    mLineNumber++;
+                }
+                c = read();
+            }
+            if (c == -1) {
+                break;
+            }
+            if (c == '%') {
+                while (c != '\n' && c != -1) {
+                    c = read();
+                }
+                continue;
+            }
+            if (c == '{') {
+                c = parseSparseRow(datasetBuilder, isNumeric);
+                continue;
+            }
+
+            for (int field = 0; field <= numAttributes; field++) {
+                c = readToken(c, false);
+                if (field < numAttributes) {
+                    if (c != ',') {
+                        throw new IOException("Expected " + (numAttributes + 1) + " values on line " + mLineNumber);
+                    }
+                    c = read();
+                } else if (c != '\n' && c != '\r' && c != -1 && c != '%') {
+                    throw new IOException("Expected " + (numAttributes + 1) + " values on line " + mLineNumber);
+                }
+                setValue(datasetBuilder, field, isNumeric);
+            }
+            datasetBuilder.commitRow();
+        }
+    }
+
+    /**
+     * Parses a sparse row such as {0 1.5,3 red,8 yes}, whose entries are attribute indexes, the class being the last
+     * one, in increasing order followed by their values. Only the listed values are written into the row sink, so
+     * the attributes left out keep their default of 0 or the first nominal value, and the time taken is in proportion
+     * to the number of entries. A row without the class gets the first class label.
+     *
+     * @param datasetBuilder Builder receiving the row
+     * @param isNumeric      Whether each attribute is numeric
+     * @return First character after the row
+     * @throws IOException If the row is malformed or the stream cannot be read
+     */
+    private int parseSparseRow(ID3RowSink datasetBuilder, boolean[] isNumeric) throws IOException {
+        int numAttributes = isNumeric.length;
+        int previousIndex = -1;
+        datasetBuilder.startSparseRow();
+        int c = read();
+        while (true) {
+            while (c == ' ' || c == '\t') {
+                c = read();
+            }
+            if (c == '}') {
+                c = read();
+                break;
+            }
+            if (c < '0' || c > '9') {
+                throw new IOException("Expected an attribute index in the sparse row on line " + mLineNumber);
+            }
+            int index = 0;
+            while (c >= '0' && c <= '9') {
+                index = Math.min(index * 10 + (c - '0'), numAttributes + 1);
+                c = read();
+            }
+            if (index <= previousIndex || index > numAttributes) {
+                throw new IOException("Invalid or out of order attribute index in the sparse row on line "
+                        + mLineNumber);
+            }
+            previousIndex = index;
+            c = readToken(c, true);
+            setValue(datasetBuilder, index, isNumeric);
+            if (c == ',') {
+                c = read();
+            } else if (c != '}') {
+                throw new IOException("Unterminated sparse row on line " + mLineNumber);
+            }
+        }
+        while (c == ' ' || c == '\t') {
+            c = read();
+        }
+        if (c != '\n' && c != '\r' && c != -1 && c != '%') {
+            throw new IOException("Unexpected text after the sparse row on line " + mLineNumber);
+        }
+        if (previousIndex < numAttributes) {
+            datasetBuilder.setClassCode(0);
+        }
+        datasetBuilder.commitRow();
+        return c;
+    }
+
+    /**
+     * Writes the current token into the row sink as the value of a field. A missing value '?' is written as NaN for a
+     * numeric attribute and as code -1 for a nominal attribute.
+     *
+     * @param datasetBuilder Builder receiving the row
+     * @param field          Attribute ordinal, or the number of attributes for the class
+     * @param isNumeric      Whether each attribute is numeric
+     * @throws IOException If the value is invalid or the class is missing
+     */
+    private void setValue(ID3RowSink datasetBuilder, int field, boolean[] isNumeric) throws IOException {
+        boolean missing = mTokenLength == 1 && mToken[0] == '?';
+        if (field == isNumeric.length) {
+            if (missing) {
+                throw new IOException("Missing class value on line " + mLineNumber);
+            }
+            datasetBuilder.setClassCode(lookup(mClassDictionary, field));
+        } else if (isNumeric[field]) {
+            datasetBuilder.setNumericValue(field, missing ? Double.NaN : parseNumber());
+        } else {
+            datasetBuilder.setNominalCode(field, missing ? -1 : lookup(mDictionaries[field], field));
+        }
+    }
+
+    /**
+     * Reads one value of a data row into mToken, starting at character c.
+     * Surrounding blanks are dropped and quoted values are unquoted.
+     *
+     * @param c      First character of the value
+     * @param sparse True if the value is in a sparse row, where '}' also ends it
+     * @return First character after the value and any trailing blanks
+     * @throws IOException If the stream cannot be read
+     */
+    private int readToken(int c, boolean sparse) throws IOException {
+        mTokenLength = 0;
+        while (c == ' ' || c == '\t') {
+            c = read();
+        }
+        if (c == '\'' || c == '"') {
+            int quote = c;
+            c = read();
+            while (c != quote) {
+                if (c == -1 || c == '\n') {
+                    throw new IOException("Unterminated quoted value on line " + mLineNumber);
+                }
+                if (c == '\\') {
+                    c = read();
+                }
+                appendToken(c);
+                c = read();
+            }
+            c = read();
+        } else {
+            while (c != ',' && c != '\n' && c != '\r' && c != -1 && c != '%' && !(sparse && c == '}')) {
+                appendToken(c);
+                c = read();
+            }
+            while (mTokenLength > 0 && (mToken[mTokenLength - 1] == ' ' || mToken[mTokenLength - 1] == '\t')) {
+                mTokenLength--;
+            }
+        }
+        while (c == ' ' || c == '\t') {
+            c = read();
+        }
+        return c;
+    }
+
+    private void appendToken(int c) {
+        if (mTokenLength == mToken.length) {
+            byte[] token = new byte[mToken.length * 2];
+            System.arraycopy(mToken, 0, token, 0, mTokenLength);
+            mToken = token;
+        }
+        mToken[mTokenLength++] = (byte) c;
+    }
+
+    /**
+     * Converts the current token to a double.
+     * Values with at most 15 significant digits and a small exponent are converted exactly from the digits,
+     * everything else falls back to Double.parseDouble.
+     *
+     * @return Value of the token
+     * @throws IOException If the token is not a number
+     */
+    private double parseNumber() throws IOException {
+        byte[] token = mToken;
+        int length = mTokenLength;
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (token[0] == '-' || token[0] == '+')) {
+            negative = token[0] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean sawDigit = false;
+        boolean fastPath = true;
+
+        for (; i < length && token[i] >= '0' && token[i] <= '9'; i++) {
+            sawDigit = true;
+            if (mantissa != 0 || token[i] != '0') {
+                mantissa = mantissa * 10 + (token[i] - '0');
+                significantDigits++;
+            }
+        }
+        if (i < length && token[i] == '.') {
+            i++;
+            for (; i < length && token[i] >= '0' && token[i] <= '9'; i++) {
+                sawDigit = true;
+                if (mantissa != 0 || token[i] != '0') {
+                    mantissa = mantissa * 10 + (token[i] - '0');
+                    significantDigits++;
+                }
+                exponent--;
+            }
+        }
+        if (i < length && sawDigit && (token[i] == 'e' || token[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < length && (token[i] == '-' || token[i] == '+')) {
+                negativeExponent = token[i] == '-';
+                i++;
+            }
+            int exponentPart = 0;
+            boolean sawExponentDigit = false;
+            for (; i < length && token[i] >= '0' && token[i] <= '9'; i++) {
+                sawExponentDigit = true;
+                if (exponentPart < 10000) {
+                    exponentPart = exponentPart * 10 + (token[i] - '0');
+                }
+            }
+            if (!sawExponentDigit) {
+                fastPath = false;
+            }
+            exponent += negativeExponent ? -exponentPart : exponentPart;
+        }
+
+        if (fastPath && sawDigit && i == length && significantDigits <= 15) {
+            if (mantissa == 0) {
+                return negative ? -0.0 : 0.0;
+            }
+            if (exponent >= -22 && exponent <= 22) {
+                double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+                return negative ? -value : value;
+            }
+        }
+
+        String value = new String(token, 0, length, UTF_8);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid numeric value " + value + " on line " + mLineNumber);
+        }
+    }
+
+    private int lookup(NominalDictionary dictionary, int field) throws IOException {
+        int code = dictionary.lookup(mToken, mTokenLength);
+        if (code == -1) {
+            String value = new String(mToken, 0, mTokenLength, UTF_8);
+            String name = field < mID3AttributeList.size() ? mID3AttributeList.get(field).mAttributeName : "class";
+            throw new IOException("Unknown value " + value + " for attribute " + name + " on line " + mLineNumber);
+        }
+        return code;
+    }
+
+    private int read() throws IOException {
+        if (mPosition < mLimit) {
+            return mBuffer[mPosition++] & 0xff;
+        }
+        return fill();
+    }
+
+    private int fill() throws IOException {
+        int count = mInputStream.read(mBuffer, 0, mBuffer.length);
+        while (count == 0) {
+            count = mInputStream.read(mBuffer, 0, mBuffer.length);
+        }
+        if (count < 0) {
+            mPosition = 0;
+            mLimit = 0;
+            return -1;
+        }
+        mBytesRead += count;
+        mPosition = 1;
+        mLimit = count;
+        return mBuffer[0] & 0xff;
+    }
+
+    private String readHeaderLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        while (c != '\n' && c != -1) {
+            line.write(c);
+            c = read();
+        }
+        mLineNumber++;
+        return new String(line.toByteArray(), UTF_8);
+    }
+
+    private static int findNameEnd(String declaration) {
+        if (declaration.length() > 0 && (declaration.charAt(0) == '\'' || declaration.charAt(0) == '"')) {
+            int end = declaration.indexOf(declaration.charAt(0), 1);
+            return end == -1 ? declaration.length() : end + 1;
+        }
+        int end = 0;
+        while (end < declaration.length() && !Character.isWhitespace(declaration.charAt(end))
+                && declaration.charAt(end) != '{') {
+            end++;
+        }
+        return end;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2) {
+            char first = value.charAt(0);
+            if ((first == '\'' || first == '"') && value.charAt(value.length() - 1) == first) {
+                return value.substring(1, value.length() - 1);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Parses the type of an attribute declaration
+     *
+     * @param name Name of the attribute
+     * @param type Type part of the declaration
+     * @return Values of a nominal attribute, or null for a numeric attribute
+     * @throws IOException If the type is neither numeric nor nominal
+     */
+    private static String[] parseAttributeType(String name, String type) throws IOException {
+        if (type.startsWith("{")) {
+            return parseNominalValues(name, type);
+        }
+        String lowerCaseType = type.toLowerCase();
+        if (lowerCaseType.equals("numeric") || lowerCaseType.equals("real") || lowerCaseType.equals("integer")) {
+            return null;
+        }
+        throw new IOException("Unsupported type " + type + " for attribute " + name);
+    }
+
+    /**
+     * Splits the {...} list of a nominal attribute into its values, following the same rules as readToken for data
+     * values: blanks around a value are dropped, and a quoted value may hold commas, braces and backslash escaped
+     * characters.
+     *
+     * @param name Name of the attribute
+     * @param type Type part of the declaration, starting with '{'
+     * @return Values of the attribute, in declaration order
+     * @throws IOException If the list is unterminated or a value is followed by unexpected text
+     */
+    private static String[] parseNominalValues(String name, String type) throws IOException {
+        ArrayList<String> values = new ArrayList<String>();
+        StringBuilder value = new StringBuilder();
+        int length = type.length();
+        int i = 1;
+        while (true) {
+            value.setLength(0);
+            while (i < length && (type.charAt(i) == ' ' || type.charAt(i) == '\t')) {
+                i++;
+            }
+            if (i < length && (type.charAt(i) == '\'' || type.charAt(i) == '"')) {
+                char quote = type.charAt(i++);
+                while (i < length && type.charAt(i) != quote) {
+                    if (type.charAt(i) == '\\' && i + 1 < length) {
+                        i++;
+                    }
+                    value.append(type.charAt(i++));
+                }
+                if (i == length) {
+                    throw new IOException("Unterminated quoted value in the nominal specification for attribute "
+                            + name);
+                }
+                i++;
+            } else {
+                while (i < length && type.charAt(i) != ',' && type.charAt(i) != '}') {
+                    value.append(type.charAt(i++));
+                }
+                while (value.length() > 0 && (value.charAt(value.length() - 1) == ' '
+                        || value.charAt(value.length() - 1) == '\t')) {
+                    value.setLength(value.length() - 1);
+                }
+            }
+            while (i < length && (type.charAt(i) == ' ' || type.charAt(i) == '\t')) {
+                i++;
+            }
+            if (i == length) {
+                throw new IOException("Unterminated nominal specification for attribute " + name);
+            }
+            values.add(value.toString());
+            if (type.charAt(i++) == '}') {
+                break;
+            }
+            if (type.charAt(i - 1) != ',') {
+                throw new IOException("Unexpected text in the nominal specification for attribute " + name);
+            }
+        }
+        if (type.substring(i).trim().length() > 0) {
+            throw new IOException("Unexpected text after the nominal specification for attribute " + name);
+        }
+        return values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Maps the bytes of a nominal value to its index without creating a String.
+     * Small dictionaries are scanned linearly, larger ones go through a hash map.
+     */
+    private static class NominalDictionary {
+
+        private static final int LINEAR_SCAN_LIMIT = 16;
+
+        private final String[] mValues;
+
+        private final byte[][] mValueBytes;
+
+        private HashMap<String, Integer> mValueIndex = null;
+
+        NominalDictionary(String[] values) {
+            this.mValues = values;
+            this.mValueBytes = new byte[values.length][];
+            for (int i = 0; i < values.length; i++) {
+                mValueBytes[i] = values[i].getBytes(UTF_8);
+            }
+            if (values.length > LINEAR_SCAN_LIMIT) {
+                mValueIndex = new HashMap<String, Integer>(values.length * 2);
+                for (int i = 0; i < values.length; i++) {
+                    mValueIndex.put(values[i], i);
+                }
+            }
+        }
+
+        int lookup(byte[] token, int length) {
+            if (mValueIndex == null) {
+                for (int i = 0; i < mValueBytes.length; i++) {
+                    if (matches(mValueBytes[i], token, length)) {
+                        return i;
+                    }
+                }
+            } else {
+                Integer index = mValueIndex.get(new String(token, 0, length, UTF_8));
+                if (index != null) {
+                    return index;
+                }
+            }
+            String value = new String(token, 0, length, UTF_8);
+            for (int i = 0; i < mValues.length; i++) {
+                if (mValues[i].equalsIgnoreCase(value)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean matches(byte[] value, byte[] token, int length) {
+            if (value.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (value[i] != token[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
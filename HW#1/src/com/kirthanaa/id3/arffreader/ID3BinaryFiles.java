@@ -0,0 +1,142 @@
+package com.kirthanaa.id3.arffreader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Helpers shared by the binary file formats, the dataset cache and the model file.
+ * <p>
+ * Headers are built in little endian buffers that grow as values are appended, strings are stored as their UTF-8
+ * length followed by their bytes, and files are written to a temporary file in the same directory that then replaces
+ * the destination, so a reader never sees a partial file.
+ */
+public final class ID3BinaryFiles {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ID3BinaryFiles() {
+    }
+
+    /**
+     * Makes room in a buffer
+     *
+     * @param buffer Little endian buffer being filled
+     * @param bytes  Number of bytes about to be put
+     * @return The buffer itself if it has room, otherwise a larger copy of it
+     */
+    public static ByteBuffer ensureRemaining(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    /**
+     * Appends an int to a buffer, growing it if needed
+     *
+     * @param buffer Little endian buffer being filled
+     * @param value  Value to put
+     * @return Buffer holding the value, to be used from now on
+     */
+    public static ByteBuffer putInt(ByteBuffer buffer, int value) {
+        buffer = ensureRemaining(buffer, 4);
+        buffer.putInt(value);
+        return buffer;
+    }
+
+    /**
+     * Appends a long to a buffer, growing it if needed
+     *
+     * @param buffer Little endian buffer being filled
+     * @param value  Value to put
+     * @return Buffer holding the value, to be used from now on
+     */
+    public static ByteBuffer putLong(ByteBuffer buffer, long value) {
+        buffer = ensureRemaining(buffer, 8);
+        buffer.putLong(value);
+        return buffer;
+    }
+
+    /**
+     * Appends a string to a buffer as its UTF-8 length and bytes, growing the buffer if needed
+     *
+     * @param buffer Little endian buffer being filled
+     * @param value  Value to put
+     * @return Buffer holding the value, to be used from now on
+     */
+    public static ByteBuffer putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        buffer = putInt(buffer, bytes.length);
+        buffer = ensureRemaining(buffer, bytes.length);
+        buffer.put(bytes);
+        return buffer;
+    }
+
+    /**
+     * Reads a string written by putString
+     *
+     * @param buffer Buffer positioned at the string
+     * @return The string
+     */
+    public static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Writes everything remaining in a buffer
+     *
+     * @param channel Channel to write to
+     * @param buffer  Buffer to write
+     * @throws IOException If the channel cannot be written
+     */
+    public static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Creates the temporary file a file is written to before it replaces the destination
+     *
+     * @param destination File that will be replaced
+     * @return Empty file in the directory of the destination
+     * @throws IOException If the file cannot be created
+     */
+    public static File createTempFile(File destination) throws IOException {
+        return File.createTempFile(destination.getName(), ".tmp", destination.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Replaces a file by a temporary file, atomically where the file system supports it. The temporary file is
+     * deleted if it could not be moved.
+     *
+     * @param tempFile    Fully written file from createTempFile
+     * @param destination File to replace
+     * @throws IOException If the file cannot be moved
+     */
+    public static void replace(File tempFile, File destination) throws IOException {
+        try {
+            Files.move(tempFile.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            if (tempFile.exists() && !tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+}
@@ -0,0 +1,505 @@
+package com.kirthanaa.id3.arffreader;
+
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.dataset.ID3RowSink;
+import com.kirthanaa.id3.dataset.MappedNominalColumn;
+import com.kirthanaa.id3.dataset.MappedNumericColumn;
+import com.kirthanaa.id3.dataset.NominalColumn;
+import com.kirthanaa.id3.dataset.NumericColumn;
+import com.kirthanaa.id3.entities.ID3Attribute;
+import com.kirthanaa.id3.entities.ID3Class;
+import com.kirthanaa.id3.metrics.TrainingLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * Binary columnar snapshot of a parsed ARFF file, loaded by memory-mapping its columns.
+ * <p>
+ * All numbers are little endian. The file starts with the magic number, the format version and the length of the
+ * header. The header holds the length and modification time of the source ARFF file, the number of instances, the
+ * attribute list, the class labels and the width of every column. It is followed by one fixed-width column per
+ * attribute in ordinal order (doubles for NUMERIC attributes, 1, 2 or 4 byte dictionary codes for NOMINAL ones), the
+ * class column and a CRC32 of everything before it.
+ * <p>
+ * A snapshot is only loaded if the source file still has the recorded length and modification time and the checksum
+ * matches, so it is rebuilt automatically whenever the ARFF file changes.
+ */
+public class ID3DatasetCache {
+
+    public static final String CACHE_EXTENSION = ".id3c";
+
+    private static final int MAGIC = 0x49443343;
+
+    private static final int VERSION = 1;
+
+    private static final int PRELUDE_BYTES = 12;
+
+    private static final int NUMERIC_WIDTH = 8;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private ID3DatasetCache() {
+    }
+
+    /**
+     * Returns the snapshot file kept next to an ARFF file
+     *
+     * @param sourceFile ARFF file
+     * @return Snapshot file
+     */
+    public static File getCacheFile(File sourceFile) {
+        return new File(sourceFile.getPath() + CACHE_EXTENSION);
+    }
+
+    /**
+     * Writes a snapshot of a dataset parsed from the given source file.
+     * The snapshot is written to a temporary file that is then renamed, so readers never see a partial file.
+     *
+     * @param data       Dataset parsed from sourceFile
+     * @param sourceFile ARFF file the dataset was parsed from
+     * @param cacheFile  Snapshot file to write
+     * @throws IOException If the snapshot cannot be written
+     */
+    public static void write(final ID3Dataset data, File sourceFile, File cacheFile) throws IOException {
+        final ArrayList<ID3Attribute> attributeList = data.getAttributeList();
+        final int numInstances = data.getNumInstances();
+        int[] widths = new int[attributeList.size() + 1];
+        for (ID3Attribute attribute : attributeList) {
+            widths[attribute.mAttributeOrdinal] = attribute.mAttributeType == ID3Attribute.NUMERIC ? NUMERIC_WIDTH
+                    : MappedNominalColumn.getWidth(data.getNominalColumn(attribute.mAttributeOrdinal));
+        }
+        widths[attributeList.size()] = MappedNominalColumn.getWidth(data.getClassColumn());
+
+        writeSnapshot(sourceFile, cacheFile, attributeList, data.getID3Class(), numInstances, widths,
+                new ColumnSource() {
+                    public void writeColumn(int column, FileChannel channel, ByteBuffer buffer, CRC32 crc)
+                            throws IOException {
+                        if (column == attributeList.size()) {
+                            writeCodes(channel, buffer, crc, data.getClassColumn(), numInstances);
+                        } else if (attributeList.get(column).mAttributeType == ID3Attribute.NUMERIC) {
+                            NumericColumn numericColumn = data.getNumericColumn(column);
+                            for (int row = 0; row < numInstances; row++) {
+                                if (buffer.remaining() < NUMERIC_WIDTH) {
+                                    flush(channel, buffer, crc);
+                                }
+                                buffer.putDouble(numericColumn.getValue(row));
+                            }
+                        } else {
+                            writeCodes(channel, buffer, crc, data.getNominalColumn(column), numInstances);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Converts an ARFF file into a snapshot without loading the dataset on the heap.
+     * The rows are streamed from the parser into one temporary file per column, which are then concatenated into
+     * the snapshot, so the heap used does not depend on the size of the file.
+     *
+     * @param sourceFile ARFF file, optionally gzip compressed
+     * @param cacheFile  Snapshot file to write
+     * @throws IOException If the ARFF file cannot be parsed or the snapshot cannot be written
+     */
+    public static void convert(File sourceFile, File cacheFile) throws IOException {
+        File directory = cacheFile.getAbsoluteFile().getParentFile();
+        InputStream inputStream = ARFFStreamParser.open(sourceFile);
+        ColumnSpillSink sink = null;
+        try {
+            ARFFStreamParser parser = new ARFFStreamParser(inputStream);
+            parser.parseHeader();
+            ArrayList<ID3Attribute> attributeList = parser.getAttributeList();
+            ID3Class id3Class = parser.getID3Class();
+            int[] widths = new int[attributeList.size() + 1];
+            for (ID3Attribute attribute : attributeList) {
+                widths[attribute.mAttributeOrdinal] = attribute.mAttributeType == ID3Attribute.NUMERIC
+                        ? NUMERIC_WIDTH : NominalColumn.getCodeWidth(attribute.getNumberOfAttributeValues());
+            }
+            widths[attributeList.size()] = NominalColumn.getCodeWidth(id3Class.mNoOfClasses);
+
+            sink = new ColumnSpillSink(widths, directory);
+            parser.parseData(sink);
+            sink.finish();
+            final ColumnSpillSink spilledColumns = sink;
+            writeSnapshot(sourceFile, cacheFile, attributeList, id3Class, sink.mNumInstances, widths,
+                    new ColumnSource() {
+                        public void writeColumn(int column, FileChannel channel, ByteBuffer buffer, CRC32 crc)
+                                throws IOException {
+                            spilledColumns.copyColumn(column, channel, buffer, crc);
+                        }
+                    });
+        } finally {
+            inputStream.close();
+            if (sink != null) {
+                sink.delete();
+            }
+        }
+    }
+
+    /**
+     * Writes the column data of a snapshot
+     */
+    private interface ColumnSource {
+
+        /**
+         * Writes one column through the buffer, flushing it with flush() when it is full
+         *
+         * @param column  Ordinal of the attribute, or the number of attributes for the class column
+         * @param channel Channel of the snapshot
+         * @param buffer  Write buffer
+         * @param crc     Checksum of the snapshot
+         * @throws IOException If the column cannot be written
+         */
+        void writeColumn(int column, FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException;
+    }
+
+    private static void writeSnapshot(File sourceFile, File cacheFile, ArrayList<ID3Attribute> attributeList,
+                                      ID3Class id3Class, int numInstances, int[] widths, ColumnSource columns)
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header = ID3BinaryFiles.putLong(header, sourceFile.length());
+        header = ID3BinaryFiles.putLong(header, sourceFile.lastModified());
+        header = ID3BinaryFiles.putInt(header, numInstances);
+        header = ID3BinaryFiles.putInt(header, attributeList.size());
+        for (ID3Attribute attribute : attributeList) {
+            header = ID3BinaryFiles.putInt(header, attribute.mAttributeType);
+            header = ID3BinaryFiles.putString(header, attribute.mAttributeName);
+            if (attribute.mAttributeType == ID3Attribute.NOMINAL) {
+                header = ID3BinaryFiles.putInt(header, attribute.mAttributeValues.length);
+                for (String value : attribute.mAttributeValues) {
+                    header = ID3BinaryFiles.putString(header, value);
+                }
+            }
+        }
+        header = ID3BinaryFiles.putInt(header, id3Class.mNoOfClasses);
+        for (String label : id3Class.mClassLabels) {
+            header = ID3BinaryFiles.putString(header, label);
+        }
+        for (int width : widths) {
+            header = ID3BinaryFiles.putInt(header, width);
+        }
+        header.flip();
+
+        File tempFile = ID3BinaryFiles.createTempFile(cacheFile);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(tempFile, "rw");
+        try {
+            randomAccessFile.setLength(0);
+            FileChannel channel = randomAccessFile.getChannel();
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(header.remaining());
+            flush(channel, buffer, crc);
+            crc.update(header.array(), 0, header.limit());
+            ID3BinaryFiles.writeFully(channel, header);
+
+            for (int column = 0; column < widths.length; column++) {
+                columns.writeColumn(column, channel, buffer, crc);
+            }
+            flush(channel, buffer, crc);
+
+            buffer.putLong(crc.getValue());
+            buffer.flip();
+            ID3BinaryFiles.writeFully(channel, buffer);
+            channel.force(false);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        ID3BinaryFiles.replace(tempFile, cacheFile);
+    }
+
+    /**
+     * Loads a snapshot of the given source file, mapping its columns into memory
+     *
+     * @param cacheFile  Snapshot file
+     * @param sourceFile ARFF file the snapshot was written from
+     * @return Dataset backed by the mapped file, or null if there is no snapshot, it is out of date with the source
+     * file, or it is corrupt
+     * @throws IOException If the snapshot cannot be read
+     */
+    public static ID3Dataset load(File cacheFile, File sourceFile) throws IOException {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(cacheFile, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long fileSize = channel.size();
+            if (fileSize < PRELUDE_BYTES) {
+                return null;
+            }
+            ByteBuffer prelude = readFully(channel, 0, PRELUDE_BYTES);
+            if (prelude.getInt() != MAGIC || prelude.getInt() != VERSION) {
+                return null;
+            }
+            int headerLength = prelude.getInt();
+            if (headerLength < 0 || PRELUDE_BYTES + (long) headerLength > fileSize) {
+                return null;
+            }
+            ByteBuffer header = readFully(channel, PRELUDE_BYTES, headerLength);
+            if (header.getLong() != sourceFile.length() || header.getLong() != sourceFile.lastModified()) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(prelude.array(), 0, PRELUDE_BYTES);
+            crc.update(header.array(), 0, headerLength);
+
+            int numInstances = header.getInt();
+            int numAttributes = header.getInt();
+            ArrayList<ID3Attribute> attributeList = new ArrayList<ID3Attribute>(numAttributes);
+            for (int i = 0; i < numAttributes; i++) {
+                int attributeType = header.getInt();
+                String name = ID3BinaryFiles.getString(header);
+                String[] values = null;
+                if (attributeType == ID3Attribute.NOMINAL) {
+                    values = new String[header.getInt()];
+                    for (int v = 0; v < values.length; v++) {
+                        values[v] = ID3BinaryFiles.getString(header);
+                    }
+                }
+                attributeList.add(new ID3Attribute(i, name, attributeType, values));
+            }
+            String[] classLabels = new String[header.getInt()];
+            for (int c = 0; c < classLabels.length; c++) {
+                classLabels[c] = ID3BinaryFiles.getString(header);
+            }
+            int[] widths = new int[numAttributes + 1];
+            long columnBytes = 0;
+            for (int i = 0; i < widths.length; i++) {
+                widths[i] = header.getInt();
+                columnBytes += (long) widths[i] * numInstances;
+            }
+            long offset = PRELUDE_BYTES + (long) headerLength;
+            if (offset + columnBytes + 8 != fileSize) {
+                return null;
+            }
+
+            NumericColumn[] numericColumns = new NumericColumn[numAttributes];
+            NominalColumn[] nominalColumns = new NominalColumn[numAttributes];
+            for (int i = 0; i < numAttributes; i++) {
+                MappedByteBuffer column = map(channel, offset, (long) widths[i] * numInstances, crc);
+                if (attributeList.get(i).mAttributeType == ID3Attribute.NUMERIC) {
+                    numericColumns[i] = new MappedNumericColumn(column.asDoubleBuffer());
+                } else {
+                    nominalColumns[i] = MappedNominalColumn.of(column, numInstances, widths[i]);
+                }
+                offset += (long) widths[i] * numInstances;
+            }
+            MappedByteBuffer classColumn = map(channel, offset, (long) widths[numAttributes] * numInstances, crc);
+            offset += (long) widths[numAttributes] * numInstances;
+
+            ByteBuffer trailer = readFully(channel, offset, 8);
+            if (trailer.getLong() != crc.getValue()) {
+                return null;
+            }
+            return new ID3Dataset(attributeList, new ID3Class(classLabels), numInstances, numericColumns,
+                    nominalColumns, MappedNominalColumn.of(classColumn, numInstances, widths[numAttributes]));
+        } catch (RuntimeException e) {
+            // A truncated header or a column that is too large to map means the snapshot cannot be used
+            return null;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long offset, long length, CRC32 crc)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        crc.update(buffer.duplicate());
+        return buffer;
+    }
+
+    private static void writeCodes(FileChannel channel, ByteBuffer buffer, CRC32 crc, NominalColumn column,
+                                   int numInstances) throws IOException {
+        int width = MappedNominalColumn.getWidth(column);
+        for (int row = 0; row < numInstances; row++) {
+            if (buffer.remaining() < width) {
+                flush(channel, buffer, crc);
+            }
+            int code = column.getCode(row);
+            if (width == 1) {
+                buffer.put((byte) code);
+            } else if (width == 2) {
+                buffer.putShort((short) code);
+            } else {
+                buffer.putInt(code);
+            }
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.array(), 0, buffer.limit());
+        ID3BinaryFiles.writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of dataset cache");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Row sink appending every column to its own temporary file through a small buffer. A value that a sparse row
+     * leaves out is written as its default, 0 or code 0, when the column is next written or at the end, so the
+     * columns of the snapshot stay dense.
+     */
+    private static class ColumnSpillSink implements ID3RowSink {
+
+        private final int[] mWidths;
+
+        private final File[] mFiles;
+
+        private final FileChannel[] mChannels;
+
+        private final ByteBuffer[] mBuffers;
+
+        private final int[] mColumnSizes;
+
+        private int mNumInstances = 0;
+
+        ColumnSpillSink(int[] widths, File directory) throws IOException {
+            this.mWidths = widths;
+            mColumnSizes = new int[widths.length];
+            mFiles = new File[widths.length];
+            mChannels = new FileChannel[widths.length];
+            mBuffers = new ByteBuffer[widths.length];
+            for (int i = 0; i < widths.length; i++) {
+                mFiles[i] = File.createTempFile("column_" + i + "_", ".tmp", directory);
+                mChannels[i] = new RandomAccessFile(mFiles[i], "rw").getChannel();
+                mBuffers[i] = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        @Override
+        public void startSparseRow() {
+            // Left out values are padded when their column is next written
+        }
+
+        @Override
+        public void setNumericValue(int attributeOrdinal, double value) {
+            pad(attributeOrdinal);
+            getBuffer(attributeOrdinal).putDouble(value);
+            mColumnSizes[attributeOrdinal]++;
+        }
+
+        @Override
+        public void setNominalCode(int attributeOrdinal, int code) {
+            putCode(attributeOrdinal, code);
+        }
+
+        @Override
+        public void setClassCode(int code) {
+            putCode(mWidths.length - 1, code);
+        }
+
+        @Override
+        public void commitRow() {
+            if (mNumInstances == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Too many data instances");
+            }
+            mNumInstances++;
+        }
+
+        /**
+         * Writes the default value into a column up to the current row
+         */
+        private void pad(int column) {
+            while (mColumnSizes[column] < mNumInstances) {
+                if (mWidths[column] == NUMERIC_WIDTH) {
+                    getBuffer(column).putDouble(0.0);
+                    mColumnSizes[column]++;
+                } else {
+                    writeCode(column, 0);
+                }
+            }
+        }
+
+        private void putCode(int column, int code) {
+            pad(column);
+            writeCode(column, code);
+        }
+
+        private void writeCode(int column, int code) {
+            ByteBuffer buffer = getBuffer(column);
+            if (mWidths[column] == 1) {
+                buffer.put((byte) code);
+            } else if (mWidths[column] == 2) {
+                buffer.putShort((short) code);
+            } else {
+                buffer.putInt(code);
+            }
+            mColumnSizes[column]++;
+        }
+
+        /**
+         * Returns the buffer of a column with room for one more value, spilling it to its file if needed
+         */
+        private ByteBuffer getBuffer(int column) {
+            ByteBuffer buffer = mBuffers[column];
+            if (buffer.remaining() < mWidths[column]) {
+                try {
+                    spill(column);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return buffer;
+        }
+
+        private void spill(int column) throws IOException {
+            ByteBuffer buffer = mBuffers[column];
+            buffer.flip();
+            ID3BinaryFiles.writeFully(mChannels[column], buffer);
+            buffer.clear();
+        }
+
+        void finish() throws IOException {
+            for (int i = 0; i < mChannels.length; i++) {
+                pad(i);
+                spill(i);
+            }
+        }
+
+        void copyColumn(int column, FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+            flush(channel, buffer, crc);
+            FileChannel source = mChannels[column];
+            long position = 0;
+            while (source.read(buffer, position) > 0) {
+                position += buffer.position();
+                flush(channel, buffer, crc);
+            }
+        }
+
+        void delete() {
+            for (int i = 0; i < mFiles.length; i++) {
+                try {
+                    if (mChannels[i] != null) {
+                        mChannels[i].close();
+                    }
+                } catch (IOException e) {
+                    TrainingLog.log(TrainingLog.ERROR, e.getMessage());
+                }
+                if (mFiles[i] != null && !mFiles[i].delete()) {
+                    mFiles[i].deleteOnExit();
+                }
+            }
+        }
+    }
+}
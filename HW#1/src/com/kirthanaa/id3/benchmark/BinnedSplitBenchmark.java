@@ -0,0 +1,79 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.dataset.ID3Binning;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.decisiontree.ID3;
+import com.kirthanaa.id3.decisiontree.ID3Tree;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares exact and histogram-binned numeric split search for training time and accuracy.
+ * The rows of the ARFF file are split into halves. The odd rows are the test set. The training set is either the even
+ * rows themselves (with 0 rows) or a synthetic dataset of the given size generated from the even rows.
+ * <p>
+ * Usage: BinnedSplitBenchmark &lt;arff file&gt; [rows] [m]
+ */
+public class BinnedSplitBenchmark {
+
+    private static final int[] BINS = {256, 64, 16};
+
+    private static final int RUNS = 3;
+
+    /**
+     * Returns the fraction of rows whose class is predicted correctly
+     *
+     * @param tree Decision tree
+     * @param data Labelled data
+     * @return Accuracy between 0 and 1
+     */
+    public static double getAccuracy(ID3Tree tree, ID3Dataset data) {
+        int[] predictions = tree.predict(data);
+        int correct = 0;
+        for (int i = 0; i < predictions.length; i++) {
+            if (predictions[i] == data.getClassCode(i)) {
+                correct++;
+            }
+        }
+        return (double) correct / predictions.length;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: BinnedSplitBenchmark <arff file> [rows] [m]");
+            return;
+        }
+        int numInstances = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        int minInstances = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        ID3Dataset[] halves = SyntheticDatasets.splitHalves(ARFFParserBenchmark.parse(new File(args[0]), null));
+        ID3Dataset trainData = numInstances == 0 ? halves[0] : SyntheticDatasets.generate(halves[0], numInstances, 1L);
+        ID3Dataset testData = halves[1];
+        ID3 id3 = new ID3(minInstances, ID3.DEFAULT_MAX_DEPTH);
+
+        ID3Tree tree = null;
+        double bestSeconds = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            tree = id3.buildTree(trainData);
+            bestSeconds = Math.min(bestSeconds, (System.nanoTime() - start) / 1e9);
+        }
+        System.out.println(String.format("exact    : train %.3f s, %d nodes, test accuracy %.4f", bestSeconds,
+                tree.getNumNodes(), getAccuracy(tree, testData)));
+
+        for (int bins : BINS) {
+            long start = System.nanoTime();
+            ID3Binning binning = new ID3Binning(trainData, bins);
+            double binningSeconds = (System.nanoTime() - start) / 1e9;
+            bestSeconds = Double.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                start = System.nanoTime();
+                tree = id3.buildTree(trainData, binning);
+                bestSeconds = Math.min(bestSeconds, (System.nanoTime() - start) / 1e9);
+            }
+            System.out.println(String.format("%3d bins : binning %.3f s, train %.3f s, %d nodes, test accuracy %.4f",
+                    bins, binningSeconds, bestSeconds, tree.getNumNodes(), getAccuracy(tree, testData)));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.decisiontree.ID3;
+import com.kirthanaa.id3.decisiontree.ID3Predictor;
+import com.kirthanaa.id3.decisiontree.ID3Tree;
+import com.kirthanaa.id3.decisiontree.ID3TreeCompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compares the interpreted ID3Tree with the predictor generated by ID3TreeCompiler on a tree trained on a synthetic
+ * dataset: single-row latency percentiles, then batch throughput over feature arrays, next to the columnar
+ * ID3Tree.predict(ID3Dataset). Checks that both predictors agree on every row.
+ * <p>
+ * Single-row latencies are timed one call at a time with System.nanoTime, so they include the cost of the timer
+ * itself, which is reported as the latency of an empty call.
+ * <p>
+ * Usage: CompiledPredictorBenchmark &lt;arff file&gt; [rows] [m]
+ */
+public class CompiledPredictorBenchmark {
+
+    private static final int LATENCY_SAMPLES = 1000000;
+
+    private static final int WARMUP_ROUNDS = 20;
+
+    private static final int RUNS = 5;
+
+    private static volatile int mSink;
+
+    /**
+     * Times single-row predictions cycling over the rows
+     *
+     * @param predictor Predictor, or null to time an empty call
+     * @param features  Feature arrays of the rows
+     * @return Sorted latencies in nanoseconds
+     */
+    private static long[] getLatencies(ID3Predictor predictor, double[][] features) {
+        long[] latencies = new long[LATENCY_SAMPLES];
+        int sink = 0;
+        for (int i = 0; i < LATENCY_SAMPLES; i++) {
+            double[] row = features[i % features.length];
+            long start = System.nanoTime();
+            if (predictor != null) {
+                sink += predictor.predict(row);
+            }
+            latencies[i] = System.nanoTime() - start;
+        }
+        mSink = sink;
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    /**
+     * Predicts every row RUNS times and returns the best throughput
+     *
+     * @param predictor Predictor
+     * @param features  Feature arrays of the rows
+     * @return Rows per second
+     */
+    private static double getThroughput(ID3Predictor predictor, double[][] features) {
+        double bestSeconds = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            int sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < features.length; i++) {
+                sink += predictor.predict(features[i]);
+            }
+            bestSeconds = Math.min(bestSeconds, (System.nanoTime() - start) / 1e9);
+            mSink = sink;
+        }
+        return features.length / bestSeconds;
+    }
+
+    private static void report(String name, long[] latencies, double rowsPerSecond) {
+        String line = String.format("%-12s : p50 %5d ns, p99 %5d ns, p99.9 %6d ns", name,
+                latencies[latencies.length / 2], latencies[latencies.length * 99 / 100],
+                latencies[latencies.length * 999 / 1000]);
+        if (!Double.isNaN(rowsPerSecond)) {
+            line += String.format(", batch %,.0f rows/s", rowsPerSecond);
+        }
+        System.out.println(line);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: CompiledPredictorBenchmark <arff file> [rows] [m]");
+            return;
+        }
+        int numInstances = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int minInstances = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        ID3Dataset source = ARFFParserBenchmark.parse(new File(args[0]), null);
+        ID3Dataset data = SyntheticDatasets.generate(source, numInstances, 42L);
+        ID3Tree tree = new ID3(minInstances, ID3.DEFAULT_MAX_DEPTH).buildTree(data);
+
+        long start = System.nanoTime();
+        ID3Predictor compiled = ID3TreeCompiler.compile(tree);
+        double compileSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("Tree : %d nodes, depth %d, compiled in %.3f s%s", tree.getNumNodes(),
+                tree.getDepth(), compileSeconds, compiled == tree ? " (interpreter fallback)" : ""));
+
+        double[][] features = new double[numInstances][];
+        for (int row = 0; row < numInstances; row++) {
+            features[row] = data.getFeatures(row, new double[data.getNumAttributes()]);
+        }
+        int mismatches = 0;
+        for (int row = 0; row < numInstances; row++) {
+            if (compiled.predict(features[row]) != tree.predict(features[row])) {
+                mismatches++;
+            }
+        }
+        System.out.println("Rows where compiled and interpreted predictions differ : " + mismatches);
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            getThroughput(tree, features);
+            getThroughput(compiled, features);
+        }
+        report("timer only", getLatencies(null, features), Double.NaN);
+        report("interpreted", getLatencies(tree, features), getThroughput(tree, features));
+        report("compiled", getLatencies(compiled, features), getThroughput(compiled, features));
+
+        int[] predictions = new int[numInstances];
+        double bestSeconds = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            start = System.nanoTime();
+            tree.predict(data, 0, numInstances, predictions);
+            bestSeconds = Math.min(bestSeconds, (System.nanoTime() - start) / 1e9);
+        }
+        System.out.println(String.format("%-12s : batch %,.0f rows/s", "columnar", numInstances / bestSeconds));
+    }
+}
@@ -0,0 +1,140 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.arffreader.ARFFReader;
+import com.kirthanaa.id3.decisiontree.ID3;
+import com.kirthanaa.id3.decisiontree.ID3Tree;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks that readers and trainers share no state: many ARFFReader and ID3 instances parse and train at the same time
+ * on a thread pool, and every tree must be identical, node by node, to the tree trained on its own single-threaded
+ * beforehand. Each file is trained with several values of m, and every combination is repeated rounds times, so the
+ * pool runs rounds * files * m values jobs that are all released at once. Any difference or failure is reported and
+ * ends the run with an IllegalStateException.
+ * <p>
+ * Without arguments, every file bundled in the trainingset package is used, found from the project directory the
+ * run starts in, with the default numbers of threads and rounds.
+ * <p>
+ * Usage: ConcurrentTrainingStress [&lt;arff file&gt;[,&lt;arff file&gt;...] [threads] [rounds]]
+ */
+public class ConcurrentTrainingStress {
+
+    private static final int[] MIN_INSTANCES = {2, 5, 10, 20};
+
+    private static final String BUNDLED_TRAINING_SET_DIR = "src/com/kirthanaa/id3/trainingset";
+
+    /**
+     * Parses a file with its own reader and trains a tree on it with its own trainer
+     *
+     * @param fileName     ARFF file
+     * @param minInstances Minimum number of instances to split a node
+     * @return Trained tree
+     */
+    private static ID3Tree train(String fileName, int minInstances) {
+        ARFFReader arffReader = new ARFFReader(fileName);
+        arffReader.parseARFFFile();
+        return new ID3(minInstances, ID3.DEFAULT_MAX_DEPTH).buildTree(arffReader.getDataset());
+    }
+
+    /**
+     * Lists the ARFF files bundled in the trainingset package
+     *
+     * @return Paths of the bundled files in name order, empty if the run does not start in the project directory
+     */
+    private static String[] getBundledFileNames() {
+        File[] files = new File(BUNDLED_TRAINING_SET_DIR).listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".arff");
+            }
+        });
+        if (files == null) {
+            return new String[0];
+        }
+        Arrays.sort(files);
+        String[] fileNames = new String[files.length];
+        for (int i = 0; i < files.length; i++) {
+            fileNames[i] = files[i].getPath();
+        }
+        return fileNames;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final String[] fileNames = args.length > 0 ? args[0].split(",") : getBundledFileNames();
+        if (fileNames.length == 0) {
+            System.out.println("No ARFF file in " + new File(BUNDLED_TRAINING_SET_DIR).getAbsolutePath());
+            System.out.println("Usage: ConcurrentTrainingStress [<arff file>[,<arff file>...] [threads] [rounds]]");
+            return;
+        }
+        int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int numRounds = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        ID3Tree[][] expectedTrees = new ID3Tree[fileNames.length][MIN_INSTANCES.length];
+        for (int f = 0; f < fileNames.length; f++) {
+            for (int i = 0; i < MIN_INSTANCES.length; i++) {
+                expectedTrees[f][i] = train(fileNames[f], MIN_INSTANCES[i]);
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        ArrayList<Future<ID3Tree>> futures = new ArrayList<Future<ID3Tree>>();
+        try {
+            for (int round = 0; round < numRounds; round++) {
+                for (int f = 0; f < fileNames.length; f++) {
+                    for (int i = 0; i < MIN_INSTANCES.length; i++) {
+                        final String fileName = fileNames[f];
+                        final int minInstances = MIN_INSTANCES[i];
+                        futures.add(pool.submit(new Callable<ID3Tree>() {
+                            @Override
+                            public ID3Tree call() throws InterruptedException {
+                                startSignal.await();
+                                return train(fileName, minInstances);
+                            }
+                        }));
+                    }
+                }
+            }
+            long start = System.nanoTime();
+            startSignal.countDown();
+
+            int numJobs = 0;
+            int numFailures = 0;
+            for (int round = 0; round < numRounds; round++) {
+                for (int f = 0; f < fileNames.length; f++) {
+                    for (int i = 0; i < MIN_INSTANCES.length; i++) {
+                        Future<ID3Tree> future = futures.get(numJobs++);
+                        String job = fileNames[f] + " m=" + MIN_INSTANCES[i] + " round " + round;
+                        try {
+                            if (!ParallelBuilderBenchmark.isSameTree(expectedTrees[f][i], future.get())) {
+                                System.out.println(job + " : tree differs from the single-threaded tree");
+                                numFailures++;
+                            }
+                        } catch (ExecutionException e) {
+                            System.out.println(job + " : failed with " + e.getCause());
+                            numFailures++;
+                        }
+                    }
+                }
+            }
+            System.out.println(String.format("%d jobs on %d threads in %.3f s, %d differing or failed", numJobs,
+                    numThreads, (System.nanoTime() - start) / 1e9, numFailures));
+            if (numFailures > 0) {
+                throw new IllegalStateException(numFailures + " of " + numJobs
+                        + " concurrent trainings did not match their single-threaded trees");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
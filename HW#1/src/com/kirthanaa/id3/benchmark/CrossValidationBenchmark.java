@@ -0,0 +1,102 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.dataset.ID3Binning;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.decisiontree.ID3;
+import com.kirthanaa.id3.decisiontree.ID3CrossValidator;
+import com.kirthanaa.id3.decisiontree.ID3Tree;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares ID3CrossValidator with a naive serial sweep on a synthetic dataset. The naive sweep copies the training and
+ * test rows of every fold into new datasets and, for binned configurations, bins every training copy again; the
+ * cross-validator trains on row indexes into the one dataset and bins it once per number of bins, with the fold tasks
+ * spread over 1 to max cores.
+ * <p>
+ * Usage: CrossValidationBenchmark &lt;arff file&gt; [rows] [folds] [max cores]
+ */
+public class CrossValidationBenchmark {
+
+    private static final long SEED = 42L;
+
+    /**
+     * Runs the sweep serially, copying the rows of every fold
+     *
+     * @param data           Labelled data
+     * @param configurations Configurations to evaluate
+     * @param numFolds       Number of folds
+     * @return Mean accuracy over all configurations and folds
+     */
+    private static double runNaive(ID3Dataset data, ArrayList<ID3CrossValidator.Configuration> configurations,
+                                   int numFolds) {
+        int numInstances = data.getNumInstances();
+        double sum = 0.0;
+        for (ID3CrossValidator.Configuration configuration : configurations) {
+            ID3 id3 = new ID3(configuration.mMinInstances, configuration.mMaxDepth, configuration.mSplitCriterion);
+            for (int fold = 0; fold < numFolds; fold++) {
+                int numTest = (numInstances - fold + numFolds - 1) / numFolds;
+                int[] trainRows = new int[numInstances - numTest];
+                int[] testRows = new int[numTest];
+                int train = 0;
+                int test = 0;
+                for (int row = 0; row < numInstances; row++) {
+                    if (row % numFolds == fold) {
+                        testRows[test++] = row;
+                    } else {
+                        trainRows[train++] = row;
+                    }
+                }
+                ID3Dataset trainData = SyntheticDatasets.select(data, trainRows);
+                ID3Dataset testData = SyntheticDatasets.select(data, testRows);
+                ID3Tree tree = configuration.mNumBins > 0
+                        ? id3.buildTree(trainData, new ID3Binning(trainData, configuration.mNumBins))
+                        : id3.buildTree(trainData);
+                sum += BinnedSplitBenchmark.getAccuracy(tree, testData);
+            }
+        }
+        return sum / (configurations.size() * numFolds);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: CrossValidationBenchmark <arff file> [rows] [folds] [max cores]");
+            return;
+        }
+        int numInstances = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int numFolds = args.length > 2 ? Integer.parseInt(args[2]) : ID3CrossValidator.DEFAULT_NUM_FOLDS;
+        int maxCores = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        ID3Dataset source = ARFFParserBenchmark.parse(new File(args[0]), null);
+        ID3Dataset data = SyntheticDatasets.generate(source, numInstances, SEED);
+        ArrayList<ID3CrossValidator.Configuration> configurations = ID3CrossValidator.getDefaultSweep();
+        System.out.println(String.format("Synthetic, %d rows, %d configurations x %d folds :", numInstances,
+                configurations.size(), numFolds));
+
+        long start = System.nanoTime();
+        double naiveAccuracy = runNaive(data, configurations, numFolds);
+        double naiveSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("Naive serial : %.3f s, mean accuracy %.4f", naiveSeconds, naiveAccuracy));
+
+        for (int cores = 1; cores <= maxCores; cores *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(cores);
+            start = System.nanoTime();
+            ArrayList<ID3CrossValidator.Result> results = new ID3CrossValidator(pool, numFolds, SEED)
+                    .crossValidate(data, configurations);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            pool.shutdown();
+            double sum = 0.0;
+            for (ID3CrossValidator.Result result : results) {
+                sum += result.getMeanAccuracy();
+            }
+            System.out.println(String.format("%d cores : %.3f s, mean accuracy %.4f, speedup %.2f", cores, seconds,
+                    sum / results.size(), naiveSeconds / seconds));
+            if (cores < maxCores && cores * 2 > maxCores) {
+                cores = maxCores / 2;
+            }
+        }
+    }
+}
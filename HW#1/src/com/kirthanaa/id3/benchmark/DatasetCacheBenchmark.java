@@ -0,0 +1,97 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.arffreader.ID3DatasetCache;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.entities.ID3Attribute;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares parsing an ARFF file with loading its memory-mapped binary snapshot, and checks that both give the same
+ * dataset.
+ * <p>
+ * Usage: DatasetCacheBenchmark &lt;arff file&gt; [scale factor]
+ * <p>
+ * Target: loading the snapshot, checksum included, is at least ten times faster than parsing the text.
+ */
+public class DatasetCacheBenchmark {
+
+    private static final int RUNS = 5;
+
+    /**
+     * Compares two datasets value by value
+     *
+     * @param a First dataset
+     * @param b Second dataset
+     * @return True if they have the same attributes, classes and values
+     */
+    static boolean isSameDataset(ID3Dataset a, ID3Dataset b) {
+        if (a.getNumInstances() != b.getNumInstances() || a.getNumAttributes() != b.getNumAttributes()
+                || a.getID3Class().mNoOfClasses != b.getID3Class().mNoOfClasses) {
+            return false;
+        }
+        for (int row = 0; row < a.getNumInstances(); row++) {
+            if (a.getClassCode(row) != b.getClassCode(row)) {
+                return false;
+            }
+            for (ID3Attribute attribute : a.getAttributeList()) {
+                int ordinal = attribute.mAttributeOrdinal;
+                if (attribute.mAttributeType == ID3Attribute.NUMERIC) {
+                    if (Double.compare(a.getNumericValue(ordinal, row), b.getNumericValue(ordinal, row)) != 0) {
+                        return false;
+                    }
+                } else if (a.getNominalCode(ordinal, row) != b.getNominalCode(ordinal, row)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: DatasetCacheBenchmark <arff file> [scale factor]");
+            return;
+        }
+        int scaleFactor = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        File scaled = ARFFParserBenchmark.scaleARFFFile(new File(args[0]), scaleFactor, false);
+        File cacheFile = ID3DatasetCache.getCacheFile(scaled);
+        cacheFile.deleteOnExit();
+
+        ID3Dataset parsed = null;
+        double bestParseSeconds = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            parsed = ARFFParserBenchmark.parse(scaled, null);
+            bestParseSeconds = Math.min(bestParseSeconds, (System.nanoTime() - start) / 1e9);
+        }
+
+        long start = System.nanoTime();
+        ID3DatasetCache.write(parsed, scaled, cacheFile);
+        double writeSeconds = (System.nanoTime() - start) / 1e9;
+
+        ID3Dataset loaded = null;
+        double bestLoadSeconds = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            start = System.nanoTime();
+            loaded = ID3DatasetCache.load(cacheFile, scaled);
+            bestLoadSeconds = Math.min(bestLoadSeconds, (System.nanoTime() - start) / 1e9);
+        }
+        if (loaded == null) {
+            System.out.println("Snapshot could not be loaded");
+            return;
+        }
+
+        System.out.println("File : " + args[0] + " x " + scaleFactor + ", rows : " + parsed.getNumInstances());
+        System.out.println("ARFF bytes : " + scaled.length() + ", snapshot bytes : " + cacheFile.length());
+        System.out.println(String.format("Parse : %.3f s, write snapshot : %.3f s, load snapshot : %.3f s, "
+                + "speedup %.1f", bestParseSeconds, writeSeconds, bestLoadSeconds, bestParseSeconds / bestLoadSeconds));
+        System.out.println("Identical to parsed dataset : " + isSameDataset(parsed, loaded));
+
+        if (!scaled.setLastModified(scaled.lastModified() + 1000)) {
+            System.out.println("Could not touch " + scaled);
+        }
+        System.out.println("Snapshot rejected after source change : " + (ID3DatasetCache.load(cacheFile, scaled) == null));
+    }
+}
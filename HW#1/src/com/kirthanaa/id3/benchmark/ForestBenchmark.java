@@ -0,0 +1,111 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.decisiontree.ID3;
+import com.kirthanaa.id3.decisiontree.ID3Forest;
+import com.kirthanaa.id3.decisiontree.ID3ForestBuilder;
+import com.kirthanaa.id3.decisiontree.ID3Tree;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reports the out-of-bag and held-out accuracy of ID3ForestBuilder forests on an ARFF file as the number of trees
+ * grows, next to the held-out accuracy of a single tree, then how forest training throughput scales with the number of
+ * trees and the number of cores on a synthetic dataset. The ARFF file is split into halves for training and testing.
+ * <p>
+ * Usage: ForestBenchmark &lt;arff file&gt; [rows] [max trees] [max cores] [m]
+ */
+public class ForestBenchmark {
+
+    private static final long SEED = 42L;
+
+    private static final int RUNS = 3;
+
+    /**
+     * Returns the fraction of rows whose class the forest predicts
+     *
+     * @param forest Forest
+     * @param data   Labelled data
+     * @return Accuracy between 0 and 1
+     */
+    public static double getAccuracy(ID3Forest forest, ID3Dataset data) {
+        int[] predictions = forest.predict(data);
+        int correct = 0;
+        for (int i = 0; i < predictions.length; i++) {
+            if (predictions[i] == data.getClassCode(i)) {
+                correct++;
+            }
+        }
+        return (double) correct / predictions.length;
+    }
+
+    /**
+     * Trains a forest RUNS times and returns the best time
+     *
+     * @param builder Forest builder
+     * @param data    Training data
+     * @return Best training time in seconds
+     */
+    private static double time(ID3ForestBuilder builder, ID3Dataset data) {
+        double bestSeconds = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            builder.buildForest(data);
+            bestSeconds = Math.min(bestSeconds, (System.nanoTime() - start) / 1e9);
+        }
+        return bestSeconds;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ForestBenchmark <arff file> [rows] [max trees] [max cores] [m]");
+            return;
+        }
+        int numInstances = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int maxTrees = args.length > 2 ? Integer.parseInt(args[2]) : ID3ForestBuilder.DEFAULT_NUM_TREES;
+        int maxCores = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int minInstances = args.length > 4 ? Integer.parseInt(args[4]) : ID3.DEFAULT_MIN_INSTANCES;
+
+        ID3Dataset source = ARFFParserBenchmark.parse(new File(args[0]), null);
+        ID3 id3 = new ID3(minInstances, ID3.DEFAULT_MAX_DEPTH);
+        ForkJoinPool pool = new ForkJoinPool(maxCores);
+
+        ID3Dataset[] halves = SyntheticDatasets.splitHalves(source);
+        ID3Tree tree = id3.buildTree(halves[0]);
+        System.out.println(String.format("%s, %d training rows : single tree test accuracy %.4f", args[0],
+                halves[0].getNumInstances(), BinnedSplitBenchmark.getAccuracy(tree, halves[1])));
+        for (int numTrees = 1; numTrees <= maxTrees; numTrees *= 2) {
+            ID3Forest forest = new ID3ForestBuilder(id3, pool, numTrees, 0, SEED).buildForest(halves[0]);
+            System.out.println(String.format("%4d trees : out-of-bag accuracy %.4f, test accuracy %.4f", numTrees,
+                    forest.getOutOfBagAccuracy(), getAccuracy(forest, halves[1])));
+        }
+
+        ID3Dataset data = SyntheticDatasets.generate(source, numInstances, SEED);
+        System.out.println(String.format("Synthetic, %d rows, %d cores :", numInstances, maxCores));
+        for (int numTrees = 1; numTrees <= maxTrees; numTrees *= 4) {
+            double seconds = time(new ID3ForestBuilder(id3, pool, numTrees, 0, SEED), data);
+            System.out.println(String.format("%4d trees : %.3f s, %.2f trees/s", numTrees, seconds,
+                    numTrees / seconds));
+        }
+        pool.shutdown();
+
+        int numTrees = Math.max(maxCores * 4, 16);
+        double singleCoreSeconds = 0.0;
+        System.out.println(String.format("Synthetic, %d rows, %d trees :", numInstances, numTrees));
+        for (int cores = 1; cores <= maxCores; cores *= 2) {
+            ForkJoinPool corePool = new ForkJoinPool(cores);
+            double seconds = time(new ID3ForestBuilder(id3, corePool, numTrees, 0, SEED), data);
+            corePool.shutdown();
+            if (cores == 1) {
+                singleCoreSeconds = seconds;
+            }
+            System.out.println(String.format("%d cores : %.3f s, %.2f trees/s, speedup %.2f", cores, seconds,
+                    numTrees / seconds, singleCoreSeconds / seconds));
+            if (cores < maxCores && cores * 2 > maxCores) {
+                cores = maxCores / 2;
+            }
+        }
+    }
+}
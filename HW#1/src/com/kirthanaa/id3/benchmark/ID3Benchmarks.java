@@ -0,0 +1,187 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.arffreader.ARFFReader;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.decisiontree.ID3;
+import com.kirthanaa.id3.decisiontree.ID3Tree;
+import com.kirthanaa.id3.entities.ID3Attribute;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Benchmarks of the training and prediction paths: ARFFReader.parseARFFFile, ID3.getOverallEntropy,
+ * ID3.getEntropyForNominalAttribute, ID3.getBestSplitForContinuousAttribute, ID3.buildTree and ID3Tree.predict.
+ * <p>
+ * Each benchmark runs on synthetic datasets generated with a fixed seed from the schema of an ARFF file (such as
+ * heart_train.arff or diabetes_train.arff) at 10^min to 10^max rows, so results are reproducible offline. Every
+ * benchmark is warmed up, then measured over several iterations of at least ITERATION_NANOS each. The report gives the
+ * median throughput and the bytes allocated per operation, measured with the thread allocation counter of the JVM.
+ * <p>
+ * Usage: ID3Benchmarks &lt;arff file&gt; [min exponent] [max exponent] [benchmark name]
+ */
+public class ID3Benchmarks {
+
+    private static final long ITERATION_NANOS = 200000000L;
+
+    private static final int WARMUP_ITERATIONS = 3;
+
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    private static volatile Object mSink;
+
+    /**
+     * Operation under measurement. The returned value is kept so the JIT cannot drop the work.
+     */
+    interface Workload {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread, or -1 if the JVM cannot tell
+     *
+     * @return Allocated bytes
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Measures a workload
+     *
+     * @param workload Operation to measure
+     * @return Median operations per second and mean allocated bytes per operation
+     * @throws Exception If the workload fails
+     */
+    static double[] measure(Workload workload) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            do {
+                mSink = workload.run();
+            } while (System.nanoTime() - start < ITERATION_NANOS);
+        }
+
+        double[] throughput = new double[MEASUREMENT_ITERATIONS];
+        long totalOperations = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            long operations = 0;
+            long allocatedBefore = getAllocatedBytes();
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                mSink = workload.run();
+                operations++;
+            } while ((elapsed = System.nanoTime() - start) < ITERATION_NANOS);
+            totalBytes += getAllocatedBytes() - allocatedBefore;
+            totalOperations += operations;
+            throughput[i] = operations * 1e9 / elapsed;
+        }
+        Arrays.sort(throughput);
+        double bytesPerOperation = getAllocatedBytes() < 0 ? Double.NaN : (double) totalBytes / totalOperations;
+        return new double[]{throughput[MEASUREMENT_ITERATIONS / 2], bytesPerOperation};
+    }
+
+    private static void report(String name, String filter, String schema, int numInstances, Workload workload)
+            throws Exception {
+        if (filter != null && !name.startsWith(filter)) {
+            return;
+        }
+        double[] result = measure(workload);
+        System.out.println(String.format("%-36s %-20s %9d %14.3f %14.0f %16.0f %12.1f", name, schema, numInstances,
+                result[0], result[0] * numInstances, result[1], result[0] * result[1] / (1024 * 1024)));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: ID3Benchmarks <arff file> [min exponent] [max exponent] [benchmark name]");
+            return;
+        }
+        File schemaFile = new File(args[0]);
+        int minExponent = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int maxExponent = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        String filter = args.length > 3 ? args[3] : null;
+        String schema = schemaFile.getName();
+
+        ID3Dataset source = ARFFParserBenchmark.parse(schemaFile, null);
+        ID3Attribute nominalAttribute = null;
+        ID3Attribute numericAttribute = null;
+        ArrayList<ID3Attribute> attributeList = source.getAttributeList();
+        for (ID3Attribute attribute : attributeList) {
+            if (attribute.mAttributeType == ID3Attribute.NOMINAL && nominalAttribute == null) {
+                nominalAttribute = attribute;
+            } else if (attribute.mAttributeType == ID3Attribute.NUMERIC && numericAttribute == null) {
+                numericAttribute = attribute;
+            }
+        }
+
+        System.out.println(String.format("%-36s %-20s %9s %14s %14s %16s %12s", "Benchmark", "Schema", "Rows", "ops/s",
+                "rows/s", "bytes/op", "alloc MB/s"));
+        for (int exponent = minExponent; exponent <= maxExponent; exponent++) {
+            int numInstances = (int) Math.pow(10, exponent);
+            final ID3Dataset data = SyntheticDatasets.generate(source, numInstances, 42L);
+            final int[] rows = new int[numInstances];
+            for (int i = 0; i < numInstances; i++) {
+                rows[i] = i;
+            }
+            final ID3 id3 = new ID3(Math.max(ID3.DEFAULT_MIN_INSTANCES, numInstances / 1000), ID3.DEFAULT_MAX_DEPTH);
+
+            if (filter == null || "parseARFFFile".startsWith(filter)) {
+                final File arffFile = File.createTempFile("benchmark_", ".arff");
+                arffFile.deleteOnExit();
+                SyntheticDatasets.writeARFF(data, arffFile);
+                report("parseARFFFile", filter, schema, numInstances, new Workload() {
+                    public Object run() {
+                        ARFFReader arffReader = new ARFFReader(arffFile.getPath());
+                        arffReader.parseARFFFile();
+                        return arffReader.getDataset();
+                    }
+                });
+                if (!arffFile.delete()) {
+                    throw new IOException("Could not delete " + arffFile);
+                }
+            }
+            report("getOverallEntropy", filter, schema, numInstances, new Workload() {
+                public Object run() {
+                    return ID3.getOverallEntropy(data.getID3Class(), data);
+                }
+            });
+            if (nominalAttribute != null) {
+                final ID3Attribute attribute = nominalAttribute;
+                report("getEntropyForNominalAttribute", filter, schema, numInstances, new Workload() {
+                    public Object run() {
+                        return id3.getEntropyForNominalAttribute(attribute, data, rows);
+                    }
+                });
+            }
+            if (numericAttribute != null) {
+                final ID3Attribute attribute = numericAttribute;
+                report("getBestSplitForContinuousAttribute", filter, schema, numInstances, new Workload() {
+                    public Object run() {
+                        return id3.getBestSplitForContinuousAttribute(attribute, data, rows);
+                    }
+                });
+            }
+            report("buildTree", filter, schema, numInstances, new Workload() {
+                public Object run() {
+                    return id3.buildTree(data);
+                }
+            });
+            final ID3Tree tree = id3.buildTree(data);
+            report("predict", filter, schema, numInstances, new Workload() {
+                public Object run() {
+                    return tree.predict(data);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.dataset.ID3Binning;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.dataset.NominalColumn;
+import com.kirthanaa.id3.dataset.NumericColumn;
+import com.kirthanaa.id3.decisiontree.ID3Kernels;
+import com.kirthanaa.id3.entities.ID3Attribute;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Compares the scalar and unrolled ID3Kernels on long columns of a synthetic dataset generated from the schema of an
+ * ARFF file. Every kernel runs over all rows, once through an ascending row index like at the root of a tree and once
+ * through a shuffled one like deep in a tree whose rows have been partitioned, and reports rows per second for both
+ * implementations with the speedup of the unrolled one. Measurement follows ID3Benchmarks.
+ * <p>
+ * The kernels that training uses are chosen at startup by the id3.kernels system property; run a training benchmark
+ * with -Did3.kernels=scalar and without it to compare whole trees.
+ * <p>
+ * Usage: KernelBenchmark &lt;arff file&gt; [rows]
+ */
+public class KernelBenchmark {
+
+    private static final int NUM_BINS = 64;
+
+    /**
+     * Operation of a kernel over a row index
+     */
+    private interface KernelWorkload {
+        Object run(ID3Kernels kernels, int[] rows);
+    }
+
+    private static void report(String name, int[] rows, KernelWorkload workload) throws Exception {
+        double scalar = measure(ID3Kernels.SCALAR, rows, workload);
+        double unrolled = measure(ID3Kernels.UNROLLED, rows, workload);
+        System.out.println(String.format("%-32s %14.0f %14.0f %8.2f", name, scalar * rows.length,
+                unrolled * rows.length, unrolled / scalar));
+    }
+
+    private static double measure(final ID3Kernels kernels, final int[] rows, final KernelWorkload workload)
+            throws Exception {
+        return ID3Benchmarks.measure(new ID3Benchmarks.Workload() {
+            public Object run() {
+                return workload.run(kernels, rows);
+            }
+        })[0];
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: KernelBenchmark <arff file> [rows]");
+            return;
+        }
+        int numInstances = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 22;
+
+        ID3Dataset source = ARFFParserBenchmark.parse(new File(args[0]), null);
+        final ID3Dataset data = SyntheticDatasets.generate(source, numInstances, 42L);
+        final ID3Binning binning = new ID3Binning(data, NUM_BINS);
+        final NominalColumn classColumn = data.getClassColumn();
+        final int numberOfClasses = data.getID3Class().mNoOfClasses;
+        ID3Attribute nominalAttribute = null;
+        ID3Attribute numericAttribute = null;
+        for (ID3Attribute attribute : data.getAttributeList()) {
+            if (attribute.mAttributeType == ID3Attribute.NOMINAL && nominalAttribute == null) {
+                nominalAttribute = attribute;
+            } else if (attribute.mAttributeType == ID3Attribute.NUMERIC && numericAttribute == null) {
+                numericAttribute = attribute;
+            }
+        }
+
+        int[] ascending = new int[numInstances];
+        for (int i = 0; i < numInstances; i++) {
+            ascending[i] = i;
+        }
+        int[] shuffled = ascending.clone();
+        Random random = new Random(42L);
+        for (int i = numInstances - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+
+        System.out.println(String.format("%s, %d rows, %s kernels selected", args[0], numInstances,
+                ID3Kernels.get().getName()));
+        System.out.println(String.format("%-32s %14s %14s %8s", "Kernel", "scalar rows/s", "unrolled rows/s",
+                "speedup"));
+        report("countCodes all rows", ascending, new KernelWorkload() {
+            public Object run(ID3Kernels kernels, int[] rows) {
+                int[] counts = new int[numberOfClasses];
+                kernels.countCodes(classColumn, rows.length, counts);
+                return counts;
+            }
+        });
+        int[][] indexes = {ascending, shuffled};
+        String[] orders = {"ascending", "shuffled"};
+        for (int o = 0; o < indexes.length; o++) {
+            int[] index = indexes[o];
+            report("countCodes " + orders[o], index, new KernelWorkload() {
+                public Object run(ID3Kernels kernels, int[] rows) {
+                    int[] counts = new int[numberOfClasses];
+                    kernels.countCodes(classColumn, rows, 0, rows.length, counts);
+                    return counts;
+                }
+            });
+            if (nominalAttribute != null) {
+                final NominalColumn column = data.getNominalColumn(nominalAttribute.mAttributeOrdinal);
+                final int numberOfValues = nominalAttribute.getNumberOfAttributeValues();
+                report("countValueClasses " + orders[o], index, new KernelWorkload() {
+                    public Object run(ID3Kernels kernels, int[] rows) {
+                        int[] valueCounts = new int[numberOfValues];
+                        int[] valueClassCounts = new int[numberOfValues * numberOfClasses];
+                        kernels.countValueClasses(column, classColumn, rows, 0, rows.length, numberOfValues,
+                                numberOfClasses, valueCounts, valueClassCounts);
+                        return valueClassCounts;
+                    }
+                });
+            }
+            if (numericAttribute != null) {
+                final int ordinal = numericAttribute.mAttributeOrdinal;
+                final NumericColumn column = data.getNumericColumn(ordinal);
+                final double threshold = binning.getSplitValues(ordinal)[binning.getNumBins(ordinal) / 2 - 1];
+                final int[] rowClasses = new int[numInstances];
+                for (int i = 0; i < numInstances; i++) {
+                    rowClasses[i] = classColumn.getCode(index[i]);
+                }
+                final int[] mask = new int[numInstances];
+                report("countBinClasses " + orders[o], index, new KernelWorkload() {
+                    public Object run(ID3Kernels kernels, int[] rows) {
+                        int[] histogram = new int[binning.getNumBins(ordinal) * numberOfClasses];
+                        kernels.countBinClasses(binning.getBinCodes(ordinal), rows, 0, rows.length, rowClasses,
+                                binning.getNumBins(ordinal), numberOfClasses, histogram);
+                        return histogram;
+                    }
+                });
+                report("countThresholdClasses " + orders[o], index, new KernelWorkload() {
+                    public Object run(ID3Kernels kernels, int[] rows) {
+                        int[] lessThanCounts = new int[numberOfClasses];
+                        int[] greaterThanCounts = new int[numberOfClasses];
+                        kernels.countThresholdClasses(column, classColumn, rows, 0, rows.length, threshold,
+                                lessThanCounts, greaterThanCounts);
+                        return lessThanCounts;
+                    }
+                });
+                report("getThresholdMask " + orders[o], index, new KernelWorkload() {
+                    public Object run(ID3Kernels kernels, int[] rows) {
+                        return kernels.getThresholdMask(column, rows, 0, rows.length, threshold, mask);
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.arffreader.ID3DatasetCache;
+import com.kirthanaa.id3.dataset.ID3Binning;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.decisiontree.ID3;
+import com.kirthanaa.id3.decisiontree.ID3OutOfCoreTrainer;
+import com.kirthanaa.id3.decisiontree.ID3Tree;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Trains out of core on an ARFF file scaled up by repeating its data rows, and reports the conversion and training
+ * times, the peak heap used and the accuracy on the original rows. Run it with an -Xmx below the size of the scaled
+ * dataset to check that training does not depend on the heap holding the data.
+ * <p>
+ * Usage: OutOfCoreBenchmark &lt;arff file&gt; [scale factor] [heap budget MB] [m]
+ */
+public class OutOfCoreBenchmark {
+
+    /**
+     * Returns the sum of the peak usage of the heap memory pools since the last reset
+     *
+     * @return Peak heap bytes
+     */
+    private static long getPeakHeapBytes() {
+        long bytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                bytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return bytes;
+    }
+
+    private static void resetPeakHeapBytes() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: OutOfCoreBenchmark <arff file> [scale factor] [heap budget MB] [m]");
+            return;
+        }
+        File source = new File(args[0]);
+        int scaleFactor = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        long heapBudget = args.length > 2 ? Long.parseLong(args[2]) << 20 : ID3OutOfCoreTrainer.DEFAULT_HEAP_BUDGET;
+        int minInstances = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        File scaled = ARFFParserBenchmark.scaleARFFFile(source, scaleFactor, false);
+        File cacheFile = ID3DatasetCache.getCacheFile(scaled);
+        cacheFile.deleteOnExit();
+
+        resetPeakHeapBytes();
+        long start = System.nanoTime();
+        ID3DatasetCache.convert(scaled, cacheFile);
+        double convertSeconds = (System.nanoTime() - start) / 1e9;
+        long convertPeak = getPeakHeapBytes();
+
+        ID3Dataset data = ID3DatasetCache.load(cacheFile, scaled);
+        ID3OutOfCoreTrainer trainer = new ID3OutOfCoreTrainer(new ID3(minInstances, ID3.DEFAULT_MAX_DEPTH),
+                ID3Binning.MAX_BINS, heapBudget, null);
+        resetPeakHeapBytes();
+        start = System.nanoTime();
+        ID3Tree tree = trainer.buildTree(data);
+        double trainSeconds = (System.nanoTime() - start) / 1e9;
+        long trainPeak = getPeakHeapBytes();
+
+        System.out.println("File : " + args[0] + " x " + scaleFactor + ", rows : " + data.getNumInstances());
+        System.out.println("Snapshot bytes : " + cacheFile.length() + ", max heap : "
+                + Runtime.getRuntime().maxMemory() + ", heap budget : " + heapBudget);
+        System.out.println(String.format("Convert : %.3f s, peak heap %d MB", convertSeconds, convertPeak >> 20));
+        System.out.println(String.format("Train : %.3f s, peak heap %d MB, %d nodes", trainSeconds, trainPeak >> 20,
+                tree.getNumNodes()));
+        System.out.println(String.format("Accuracy on the original rows : %.4f",
+                BinnedSplitBenchmark.getAccuracy(tree, ARFFParserBenchmark.parse(source, null))));
+    }
+}
@@ -0,0 +1,89 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.decisiontree.ID3;
+import com.kirthanaa.id3.decisiontree.ID3ParallelBuilder;
+import com.kirthanaa.id3.decisiontree.ID3Tree;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reports how tree building with ID3ParallelBuilder scales from 1 to N cores on a synthetic dataset, and checks that
+ * every parallel tree is identical to the sequential one.
+ * <p>
+ * Usage: ParallelBuilderBenchmark &lt;arff file&gt; [rows] [max cores] [m]
+ */
+public class ParallelBuilderBenchmark {
+
+    private static final int RUNS = 3;
+
+    /**
+     * Compares two trees node by node
+     *
+     * @param first  First tree
+     * @param second Second tree
+     * @return True if both trees have the same nodes, splits and class counts
+     */
+    public static boolean isSameTree(ID3Tree first, ID3Tree second) {
+        if (first.getNumNodes() != second.getNumNodes()) {
+            return false;
+        }
+        int numClasses = first.getID3Class().mNoOfClasses;
+        for (int node = 0; node < first.getNumNodes(); node++) {
+            if (first.getAttribute(node) != second.getAttribute(node)
+                    || first.getFirstChild(node) != second.getFirstChild(node)
+                    || first.getPrediction(node) != second.getPrediction(node)
+                    || Double.doubleToLongBits(first.getSplitValue(node))
+                    != Double.doubleToLongBits(second.getSplitValue(node))) {
+                return false;
+            }
+            for (int c = 0; c < numClasses; c++) {
+                if (first.getClassCount(node, c) != second.getClassCount(node, c)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ParallelBuilderBenchmark <arff file> [rows] [max cores] [m]");
+            return;
+        }
+        int numInstances = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        int maxCores = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int minInstances = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        ID3Dataset source = ARFFParserBenchmark.parse(new File(args[0]), null);
+        ID3Dataset data = SyntheticDatasets.generate(source, numInstances, 42L);
+        ID3 id3 = new ID3(minInstances, ID3.DEFAULT_MAX_DEPTH);
+
+        long start = System.nanoTime();
+        ID3Tree sequentialTree = id3.buildTree(data);
+        double sequentialSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("Sequential : %.3f s, %d nodes", sequentialSeconds,
+                sequentialTree.getNumNodes()));
+
+        for (int cores = 1; cores <= maxCores; cores *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(cores);
+            ID3ParallelBuilder builder = new ID3ParallelBuilder(id3, pool);
+            double bestSeconds = Double.MAX_VALUE;
+            boolean identical = true;
+            for (int run = 0; run < RUNS; run++) {
+                start = System.nanoTime();
+                ID3Tree tree = builder.buildTree(data);
+                bestSeconds = Math.min(bestSeconds, (System.nanoTime() - start) / 1e9);
+                identical &= isSameTree(sequentialTree, tree);
+            }
+            pool.shutdown();
+            System.out.println(String.format("%d cores : %.3f s, speedup %.2f, identical to sequential : %b", cores,
+                    bestSeconds, sequentialSeconds / bestSeconds, identical));
+            if (cores < maxCores && cores * 2 > maxCores) {
+                cores = maxCores / 2;
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.decisiontree.ID3;
+import com.kirthanaa.id3.decisiontree.ID3Tree;
+import com.kirthanaa.id3.entities.ID3Attribute;
+import com.kirthanaa.id3.server.PredictionBatcher;
+import com.kirthanaa.id3.server.ScoringServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the throughput and latency of ScoringServer under load. The server runs in process with a tree trained on a
+ * synthetic dataset; client threads POST one ARFF row per request as fast as they can, for a fixed time at every level
+ * of concurrency, and the requests per second, the latency percentiles and the average number of requests per batch
+ * are reported for every level.
+ * <p>
+ * Usage: ScoringLoadGenerator &lt;arff file&gt; [seconds per level] [max concurrency]
+ */
+public class ScoringLoadGenerator {
+
+    private static final int NUM_INSTANCES = 100000;
+
+    private static final int MIN_INSTANCES = 20;
+
+    private static final int NUM_REQUEST_ROWS = 10000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Formats a row of a dataset as an ARFF data line without its class value
+     *
+     * @param data Dataset
+     * @param row  Row
+     * @return ARFF data line
+     */
+    private static String toARFFLine(ID3Dataset data, int row) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < data.getNumAttributes(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            ID3Attribute attribute = data.getAttributeList().get(i);
+            if (attribute.mAttributeType == ID3Attribute.NUMERIC) {
+                double value = data.getNumericValue(i, row);
+                if (Double.isNaN(value)) {
+                    line.append('?');
+                } else {
+                    line.append(value);
+                }
+            } else {
+                int code = data.getNominalCode(i, row);
+                line.append(code < 0 ? "?" : attribute.mAttributeValues[code]);
+            }
+        }
+        return line.append('\n').toString();
+    }
+
+    /**
+     * POSTs a body to a URL and drains the response
+     *
+     * @param url  URL
+     * @param body Request body
+     * @return Response status
+     * @throws IOException If the request fails
+     */
+    private static int post(URL url, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "text/plain");
+        connection.setFixedLengthStreamingMode(body.length);
+        OutputStream outputStream = connection.getOutputStream();
+        outputStream.write(body);
+        outputStream.close();
+        int status = connection.getResponseCode();
+        InputStream inputStream = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (inputStream != null) {
+            byte[] buffer = new byte[1024];
+            while (inputStream.read(buffer) != -1) {
+                // Drained so that the connection can be reused
+            }
+            inputStream.close();
+        }
+        return status;
+    }
+
+    /**
+     * Sends requests from concurrency threads for the given time
+     *
+     * @param url         URL of the predict endpoint
+     * @param requests    Request bodies, cycled through
+     * @param concurrency Number of client threads
+     * @param seconds     Time to send requests for
+     * @return Latency of every request in nanoseconds, sorted
+     * @throws InterruptedException If interrupted while waiting for the client threads
+     */
+    private static long[] runLevel(final URL url, final byte[][] requests, int concurrency, final double seconds)
+            throws InterruptedException {
+        final long end = System.nanoTime() + (long) (seconds * 1e9);
+        final AtomicInteger errors = new AtomicInteger();
+        final ArrayList<long[]> threadLatencies = new ArrayList<long[]>();
+        final int[] threadCounts = new int[concurrency];
+        Thread[] threads = new Thread[concurrency];
+        for (int t = 0; t < concurrency; t++) {
+            final int thread = t;
+            final long[] latencies = new long[1 << 20];
+            threadLatencies.add(latencies);
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int count = 0;
+                    int next = thread * 7919;
+                    while (System.nanoTime() < end && count < latencies.length) {
+                        long start = System.nanoTime();
+                        try {
+                            if (post(url, requests[next++ % requests.length]) != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    threadCounts[thread] = count;
+                }
+            });
+            threads[t].start();
+        }
+        int total = 0;
+        for (int t = 0; t < concurrency; t++) {
+            threads[t].join();
+            total += threadCounts[t];
+        }
+        if (errors.get() > 0) {
+            System.out.println(errors.get() + " failed requests");
+        }
+        long[] latencies = new long[total];
+        int offset = 0;
+        for (int t = 0; t < concurrency; t++) {
+            System.arraycopy(threadLatencies.get(t), 0, latencies, offset, threadCounts[t]);
+            offset += threadCounts[t];
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static double toMicros(long[] latencies, double quantile) {
+        if (latencies.length == 0) {
+            return Double.NaN;
+        }
+        return latencies[Math.min(latencies.length - 1, (int) (latencies.length * quantile))] / 1e3;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: ScoringLoadGenerator <arff file> [seconds per level] [max concurrency]");
+            return;
+        }
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 5.0;
+        int maxConcurrency = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        ID3Dataset source = ARFFParserBenchmark.parse(new File(args[0]), null);
+        ID3Dataset data = SyntheticDatasets.generate(source, NUM_INSTANCES, 42L);
+        ID3Tree tree = new ID3(MIN_INSTANCES, ID3.DEFAULT_MAX_DEPTH).buildTree(data);
+        byte[][] requests = new byte[Math.min(NUM_REQUEST_ROWS, NUM_INSTANCES)][];
+        for (int row = 0; row < requests.length; row++) {
+            requests[row] = toARFFLine(data, row).getBytes(UTF_8);
+        }
+
+        ScoringServer.enableNoDelay();
+        ScoringServer server = new ScoringServer(tree, new InetSocketAddress("127.0.0.1", 0),
+                Math.max(ScoringServer.DEFAULT_NUM_THREADS, maxConcurrency), PredictionBatcher.DEFAULT_MAX_BATCH_ROWS,
+                0);
+        server.start();
+        for (int i = 0; i < 100 && server.getPredictor() == tree; i++) {
+            // The compiled predictor replaces the tree in the background
+            Thread.sleep(50);
+        }
+        URL url = new URL("http://127.0.0.1:" + server.getPort() + "/predict");
+        System.out.println(String.format("Tree : %d nodes, %d request threads", tree.getNumNodes(),
+                Math.max(ScoringServer.DEFAULT_NUM_THREADS, maxConcurrency)));
+
+        runLevel(url, requests, 1, Math.min(seconds, 2.0));
+        PredictionBatcher batcher = server.getBatcher();
+        for (int concurrency = 1; concurrency <= maxConcurrency; concurrency *= 2) {
+            long batches = batcher.getNumBatches();
+            long batchedRequests = batcher.getNumRequests();
+            long[] latencies = runLevel(url, requests, concurrency, seconds);
+            batches = batcher.getNumBatches() - batches;
+            batchedRequests = batcher.getNumRequests() - batchedRequests;
+            System.out.println(String.format("%3d clients : %,9.0f req/s, p50 %7.1f us, p99 %7.1f us, "
+                            + "p99.9 %8.1f us, %.2f requests/batch", concurrency, latencies.length / seconds,
+                    toMicros(latencies, 0.5), toMicros(latencies, 0.99), toMicros(latencies, 0.999),
+                    batches == 0 ? 0.0 : (double) batchedRequests / batches));
+        }
+        server.stop(0);
+    }
+}
@@ -0,0 +1,184 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.dataset.ArrayNumericColumn;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.dataset.NominalColumn;
+import com.kirthanaa.id3.dataset.NumericColumn;
+import com.kirthanaa.id3.decisiontree.ID3;
+import com.kirthanaa.id3.decisiontree.ID3Tree;
+import com.kirthanaa.id3.entities.ID3Attribute;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Measures sparse ARFF support on a wide synthetic dataset whose rows are mostly zeros. The dataset is written as
+ * sparse ARFF rows, with a share of the stored values missing, and parsed into compressed sparse columns. The heap
+ * taken by the parsed dataset is compared with that of the same data in dense columns, and trees are trained on both
+ * with the exact split search, which only visits the stored entries of sparse columns. Both must give the same tree.
+ * <p>
+ * Every tenth attribute is nominal with three values, the others are numeric. The class depends on the first
+ * INFORMATIVE attributes, which are denser than the others so that the trees have some structure.
+ * <p>
+ * Usage: SparseDatasetBenchmark [rows] [attributes] [density] [max depth]
+ */
+public class SparseDatasetBenchmark {
+
+    private static final long SEED = 42L;
+
+    private static final int NOMINAL_EVERY = 10;
+
+    private static final double MISSING_SHARE = 0.02;
+
+    private static final int INFORMATIVE = 40;
+
+    private static final double INFORMATIVE_DENSITY = 0.25;
+
+    private static final int RUNS = 3;
+
+    /**
+     * Writes a sparse ARFF file of random rows
+     *
+     * @param file          Destination file
+     * @param numInstances  Number of rows
+     * @param numAttributes Number of attributes, excluding the class
+     * @param density       Share of the attribute values of a row that are stored
+     * @throws IOException If the file cannot be written
+     */
+    private static void writeSparseARFF(File file, int numInstances, int numAttributes, double density)
+            throws IOException {
+        Random random = new Random(SEED);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1 << 16);
+        try {
+            writer.write("@relation sparse\n");
+            for (int i = 0; i < numAttributes; i++) {
+                writer.write("@attribute a" + i + (i % NOMINAL_EVERY == 0 ? " {v0,v1,v2}\n" : " numeric\n"));
+            }
+            writer.write("@attribute class {no,yes}\n@data\n");
+            StringBuilder line = new StringBuilder();
+            for (int row = 0; row < numInstances; row++) {
+                line.setLength(0);
+                line.append('{');
+                double signal = 0.0;
+                for (int i = 0; i < numAttributes; i++) {
+                    if (random.nextDouble() >= (i < INFORMATIVE ? INFORMATIVE_DENSITY : density)) {
+                        continue;
+                    }
+                    line.append(i).append(' ');
+                    if (random.nextDouble() < MISSING_SHARE) {
+                        line.append('?');
+                    } else if (i % NOMINAL_EVERY == 0) {
+                        int code = 1 + random.nextInt(2);
+                        line.append('v').append(code);
+                        signal += i < INFORMATIVE ? code - 1.5 : 0.0;
+                    } else {
+                        double value = Math.round(random.nextGaussian() * 1000.0) / 100.0;
+                        line.append(value);
+                        signal += i < INFORMATIVE ? value : 0.0;
+                    }
+                    line.append(',');
+                }
+                if (signal + random.nextGaussian() > 0.0) {
+                    line.append(numAttributes).append(" yes");
+                } else if (line.charAt(line.length() - 1) == ',') {
+                    line.setLength(line.length() - 1);
+                }
+                line.append("}\n");
+                writer.write(line.toString());
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Copies a dataset into dense columns
+     *
+     * @param data Dataset to copy
+     * @return Dataset with one array per column
+     */
+    private static ID3Dataset densify(ID3Dataset data) {
+        int numInstances = data.getNumInstances();
+        int numAttributes = data.getNumAttributes();
+        NumericColumn[] numericColumns = new NumericColumn[numAttributes];
+        NominalColumn[] nominalColumns = new NominalColumn[numAttributes];
+        for (ID3Attribute attribute : data.getAttributeList()) {
+            int ordinal = attribute.mAttributeOrdinal;
+            if (attribute.mAttributeType == ID3Attribute.NUMERIC) {
+                double[] values = new double[numInstances];
+                for (int row = 0; row < numInstances; row++) {
+                    values[row] = data.getNumericValue(ordinal, row);
+                }
+                numericColumns[ordinal] = new ArrayNumericColumn(values, numInstances);
+            } else {
+                int[] codes = new int[numInstances];
+                for (int row = 0; row < numInstances; row++) {
+                    codes[row] = data.getNominalCode(ordinal, row);
+                }
+                nominalColumns[ordinal] = NominalColumn.of(codes, numInstances,
+                        attribute.getNumberOfAttributeValues());
+            }
+        }
+        return new ID3Dataset(data.getAttributeList(), data.getID3Class(), numInstances, numericColumns,
+                nominalColumns, data.getClassColumn());
+    }
+
+    /**
+     * Trains a tree RUNS times
+     *
+     * @param id3  Trainer
+     * @param data Training data
+     * @param time Receives the best training time in seconds at index 0
+     * @return Last tree trained
+     */
+    private static ID3Tree train(ID3 id3, ID3Dataset data, double[] time) {
+        ID3Tree tree = null;
+        time[0] = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            tree = id3.buildTree(data);
+            time[0] = Math.min(time[0], (System.nanoTime() - start) / 1e9);
+        }
+        return tree;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].startsWith("-")) {
+            System.out.println("Usage: SparseDatasetBenchmark [rows] [attributes] [density] [max depth]");
+            return;
+        }
+        int numInstances = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int numAttributes = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        double density = args.length > 2 ? Double.parseDouble(args[2]) : 0.01;
+        int maxDepth = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+
+        File file = File.createTempFile("sparse_", ".arff");
+        file.deleteOnExit();
+        writeSparseARFF(file, numInstances, numAttributes, density);
+
+        long start = System.nanoTime();
+        ID3Dataset sparse = ARFFParserBenchmark.parse(file, null);
+        double parseSeconds = (System.nanoTime() - start) / 1e9;
+        ID3Dataset dense = densify(sparse);
+        System.out.println(String.format("%d rows x %d attributes, density %.3f, file %d bytes parsed in %.3f s",
+                numInstances, numAttributes, density, file.length(), parseSeconds));
+        System.out.println(String.format("Heap : sparse %d bytes, dense %d bytes (%.1fx)", sparse.getHeapBytes(),
+                dense.getHeapBytes(), (double) dense.getHeapBytes() / sparse.getHeapBytes()));
+
+        ID3 id3 = new ID3(ID3.DEFAULT_MIN_INSTANCES, maxDepth);
+        double[] sparseTime = new double[1];
+        double[] denseTime = new double[1];
+        ID3Tree sparseTree = train(id3, sparse, sparseTime);
+        ID3Tree denseTree = train(id3, dense, denseTime);
+        System.out.println(String.format("Training, max depth %d, best of %d : sparse %.3f s, dense %.3f s (%.1fx)",
+                maxDepth, RUNS, sparseTime[0], denseTime[0], denseTime[0] / sparseTime[0]));
+        System.out.println(String.format("Trees : %d nodes, identical %b, training accuracy %.4f",
+                sparseTree.getNumNodes(), sparseTree.toString().equals(denseTree.toString()),
+                BinnedSplitBenchmark.getAccuracy(sparseTree, sparse)));
+    }
+}
@@ -0,0 +1,75 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.decisiontree.ID3;
+import com.kirthanaa.id3.decisiontree.ID3HoeffdingLearner;
+import com.kirthanaa.id3.decisiontree.ID3Tree;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Feeds a synthetic stream to ID3HoeffdingLearner in micro-batches. Every batch is first scored by the tree learnt so
+ * far and then learnt from (test-then-train), and the learning throughput, the accuracy on the upcoming batches and
+ * the size of the tree are reported as the stream goes on. At the end the learnt tree and a batch ID3 tree trained on
+ * the whole stream are compared on a held-out synthetic test set, with the time the batch tree took to train.
+ * <p>
+ * Usage: StreamingBenchmark &lt;arff file&gt; [rows] [batch size] [m]
+ */
+public class StreamingBenchmark {
+
+    private static final int REPORTS = 10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: StreamingBenchmark <arff file> [rows] [batch size] [m]");
+            return;
+        }
+        int numInstances = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int minInstances = args.length > 3 ? Integer.parseInt(args[3]) : ID3.DEFAULT_MIN_INSTANCES;
+
+        ID3Dataset source = ARFFParserBenchmark.parse(new File(args[0]), null);
+        ID3Dataset stream = SyntheticDatasets.generate(source, numInstances, 42L);
+        ID3Dataset test = SyntheticDatasets.generate(source, Math.max(numInstances / 10, 1), 43L);
+        ID3 id3 = new ID3(minInstances, ID3.DEFAULT_MAX_DEPTH);
+        ID3HoeffdingLearner learner = new ID3HoeffdingLearner(id3, stream.getAttributeList(),
+                stream.getID3Class());
+
+        double[] features = new double[stream.getNumAttributes()];
+        long learnNanos = 0;
+        int correct = 0;
+        int scored = 0;
+        int reportEvery = Math.max(numInstances / REPORTS, batchSize);
+        int nextReport = reportEvery;
+        for (int from = 0; from < numInstances; from += batchSize) {
+            int to = Math.min(from + batchSize, numInstances);
+            for (int row = from; row < to; row++) {
+                if (learner.predict(stream.getFeatures(row, features)) == stream.getClassCode(row)) {
+                    correct++;
+                }
+            }
+            scored += to - from;
+            long start = System.nanoTime();
+            learner.update(stream, from, to);
+            learnNanos += System.nanoTime() - start;
+            if (to >= nextReport || to == numInstances) {
+                System.out.println(String.format("%,10d rows : %,11.0f rows/s, accuracy on upcoming rows %.4f, "
+                                + "%5d nodes, %,9d bytes of leaf statistics", to, to / (learnNanos / 1e9),
+                        (double) correct / scored, learner.getNumNodes(), learner.getStatisticsBytes()));
+                correct = 0;
+                scored = 0;
+                nextReport += reportEvery;
+            }
+        }
+
+        ID3Tree streamed = learner.getTree();
+        long start = System.nanoTime();
+        ID3Tree batch = id3.buildTree(stream);
+        double batchSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("Hoeffding tree : %5d nodes, learnt in %.3f s, test accuracy %.4f",
+                streamed.getNumNodes(), learnNanos / 1e9, BinnedSplitBenchmark.getAccuracy(streamed, test)));
+        System.out.println(String.format("Batch ID3 tree : %5d nodes, trained in %.3f s, test accuracy %.4f",
+                batch.getNumNodes(), batchSeconds, BinnedSplitBenchmark.getAccuracy(batch, test)));
+    }
+}
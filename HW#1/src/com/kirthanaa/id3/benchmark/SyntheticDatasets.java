@@ -0,0 +1,172 @@
+package com.kirthanaa.id3.benchmark;
+
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.dataset.ID3DatasetBuilder;
+import com.kirthanaa.id3.entities.ID3Attribute;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Generates large datasets with the schema of a real one, such as heart_train.arff or diabetes_train.arff.
+ * Every synthetic row is a randomly chosen row of the source whose numeric values are perturbed with gaussian noise
+ * of a few percent of the column's standard deviation, so the columns keep their distributions and class
+ * correlations but have many distinct values.
+ */
+public class SyntheticDatasets {
+
+    private static final double NOISE = 0.05;
+
+    /**
+     * Generates a dataset with the schema and value distribution of the source dataset
+     *
+     * @param source       Dataset to imitate
+     * @param numInstances Number of rows to generate
+     * @param seed         Seed of the random generator, the same seed always gives the same dataset
+     * @return Synthetic dataset
+     */
+    public static ID3Dataset generate(ID3Dataset source, int numInstances, long seed) {
+        Random random = new Random(seed);
+        ArrayList<ID3Attribute> attributeList = source.getAttributeList();
+        int numAttributes = attributeList.size();
+        int sourceInstances = source.getNumInstances();
+
+        double[] noise = new double[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            if (source.getNumericColumn(i) != null) {
+                double sum = 0.0;
+                double sumOfSquares = 0.0;
+                int numValues = 0;
+                for (int row = 0; row < sourceInstances; row++) {
+                    double value = source.getNumericValue(i, row);
+                    if (!Double.isNaN(value)) {
+                        sum += value;
+                        sumOfSquares += value * value;
+                        numValues++;
+                    }
+                }
+                double mean = numValues > 0 ? sum / numValues : 0.0;
+                noise[i] = numValues > 0
+                        ? NOISE * Math.sqrt(Math.max(sumOfSquares / numValues - mean * mean, 0.0)) : 0.0;
+            }
+        }
+
+        ID3DatasetBuilder datasetBuilder = new ID3DatasetBuilder(attributeList, source.getID3Class(), numInstances);
+        for (int n = 0; n < numInstances; n++) {
+            int row = random.nextInt(sourceInstances);
+            for (int i = 0; i < numAttributes; i++) {
+                if (source.getNumericColumn(i) != null) {
+                    datasetBuilder.setNumericValue(i, source.getNumericValue(i, row) + noise[i] * random.nextGaussian());
+                } else {
+                    datasetBuilder.setNominalCode(i, source.getNominalCode(i, row));
+                }
+            }
+            datasetBuilder.setClassCode(source.getClassCode(row));
+            datasetBuilder.commitRow();
+        }
+        return datasetBuilder.build();
+    }
+
+    /**
+     * Copies the given rows of a dataset into a new dataset
+     *
+     * @param source Dataset to copy from
+     * @param rows   Rows to copy, in order
+     * @return Dataset holding the rows
+     */
+    public static ID3Dataset select(ID3Dataset source, int[] rows) {
+        int numAttributes = source.getNumAttributes();
+        ID3DatasetBuilder datasetBuilder = new ID3DatasetBuilder(source.getAttributeList(), source.getID3Class(),
+                rows.length);
+        for (int row : rows) {
+            for (int i = 0; i < numAttributes; i++) {
+                if (source.getNumericColumn(i) != null) {
+                    datasetBuilder.setNumericValue(i, source.getNumericValue(i, row));
+                } else {
+                    datasetBuilder.setNominalCode(i, source.getNominalCode(i, row));
+                }
+            }
+            datasetBuilder.setClassCode(source.getClassCode(row));
+            datasetBuilder.commitRow();
+        }
+        return datasetBuilder.build();
+    }
+
+    /**
+     * Splits a dataset into a training half (even rows) and a test half (odd rows)
+     *
+     * @param source Dataset to split
+     * @return Training and test datasets
+     */
+    public static ID3Dataset[] splitHalves(ID3Dataset source) {
+        int numInstances = source.getNumInstances();
+        int[] evenRows = new int[(numInstances + 1) / 2];
+        int[] oddRows = new int[numInstances / 2];
+        for (int row = 0; row < numInstances; row++) {
+            if (row % 2 == 0) {
+                evenRows[row / 2] = row;
+            } else {
+                oddRows[row / 2] = row;
+            }
+        }
+        return new ID3Dataset[]{select(source, evenRows), select(source, oddRows)};
+    }
+
+    /**
+     * Writes a dataset as a dense ARFF file
+     *
+     * @param data Dataset to write
+     * @param file Destination file
+     * @throws IOException If the file cannot be written
+     */
+    public static void writeARFF(ID3Dataset data, File file) throws IOException {
+        ArrayList<ID3Attribute> attributeList = data.getAttributeList();
+        String[] classLabels = data.getID3Class().mClassLabels;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1 << 16);
+        try {
+            writer.write("@relation synthetic\n");
+            for (ID3Attribute attribute : attributeList) {
+                writer.write("@attribute '" + attribute.mAttributeName + "' ");
+                writer.write(attribute.mAttributeType == ID3Attribute.NUMERIC ? "numeric"
+                        : "{" + join(attribute.mAttributeValues) + "}");
+                writer.write('\n');
+            }
+            writer.write("@attribute 'class' {" + join(classLabels) + "}\n@data\n");
+            StringBuilder line = new StringBuilder();
+            for (int row = 0; row < data.getNumInstances(); row++) {
+                line.setLength(0);
+                for (ID3Attribute attribute : attributeList) {
+                    int ordinal = attribute.mAttributeOrdinal;
+                    if (attribute.mAttributeType == ID3Attribute.NUMERIC) {
+                        double value = data.getNumericValue(ordinal, row);
+                        if (Double.isNaN(value)) {
+                            line.append('?');
+                        } else {
+                            line.append(value);
+                        }
+                    } else {
+                        int code = data.getNominalCode(ordinal, row);
+                        line.append(code < 0 ? "?" : attribute.mAttributeValues[code]);
+                    }
+                    line.append(',');
+                }
+                line.append(classLabels[data.getClassCode(row)]).append('\n');
+                writer.write(line.toString());
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String join(String[] values) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(values[i]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package com.kirthanaa.id3.criterion;
+
+/**
+ * Gain ratio: information gain divided by the entropy of the branch sizes, which penalizes splits into many small
+ * branches
+ */
+public class GainRatioCriterion implements SplitCriterion {
+
+    @Override
+    public double getWeightedImpurity(int[] classCounts, int offset, int numClasses, int total) {
+        return NLogNTable.getWeightedEntropy(classCounts, offset, numClasses, total);
+    }
+
+    @Override
+    public double getScore(double parentImpurity, double childrenImpurity, int total, int[] branchTotals,
+                           int numBranches) {
+        double splitInformation = NLogNTable.getWeightedEntropy(branchTotals, 0, numBranches, total);
+        if (splitInformation <= 0.0) {
+            return 0.0;
+        }
+        return (parentImpurity - childrenImpurity) / splitInformation;
+    }
+}
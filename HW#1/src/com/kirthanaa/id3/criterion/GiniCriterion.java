@@ -0,0 +1,25 @@
+package com.kirthanaa.id3.criterion;
+
+/**
+ * Gini impurity decrease. Needs no logarithms at all, so it is the cheapest criterion to evaluate.
+ */
+public class GiniCriterion implements SplitCriterion {
+
+    @Override
+    public double getWeightedImpurity(int[] classCounts, int offset, int numClasses, int total) {
+        if (total == 0) {
+            return 0.0;
+        }
+        double sumOfSquares = 0.0;
+        for (int i = offset; i < offset + numClasses; i++) {
+            sumOfSquares += (double) classCounts[i] * classCounts[i];
+        }
+        return total - sumOfSquares / total;
+    }
+
+    @Override
+    public double getScore(double parentImpurity, double childrenImpurity, int total, int[] branchTotals,
+                           int numBranches) {
+        return (parentImpurity - childrenImpurity) / total;
+    }
+}
@@ -0,0 +1,18 @@
+package com.kirthanaa.id3.criterion;
+
+/**
+ * Information gain: the decrease in class entropy achieved by a split
+ */
+public class InformationGainCriterion implements SplitCriterion {
+
+    @Override
+    public double getWeightedImpurity(int[] classCounts, int offset, int numClasses, int total) {
+        return NLogNTable.getWeightedEntropy(classCounts, offset, numClasses, total);
+    }
+
+    @Override
+    public double getScore(double parentImpurity, double childrenImpurity, int total, int[] branchTotals,
+                           int numBranches) {
+        return (parentImpurity - childrenImpurity) / total;
+    }
+}
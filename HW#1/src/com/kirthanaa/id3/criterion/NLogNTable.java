@@ -0,0 +1,78 @@
+package com.kirthanaa.id3.criterion;
+
+/**
+ * Lookup table of n * log2(n) for integer n, with 0 * log2(0) = 0.
+ * The table starts with 2^16 entries and can be grown up to 2^21 entries with ensureCapacity before training on
+ * large data. Values beyond the table are computed directly.
+ */
+public final class NLogNTable {
+
+    private static final int INITIAL_SIZE = 1 << 16;
+
+    private static final int MAX_SIZE = 1 << 21;
+
+    private static final double INV_LN2 = 1.0 / Math.log(2.0);
+
+    private static volatile double[] mTable = build(INITIAL_SIZE);
+
+    private NLogNTable() {
+    }
+
+    private static double[] build(int size) {
+        double[] table = new double[size];
+        for (int n = 1; n < size; n++) {
+            table[n] = compute(n);
+        }
+        return table;
+    }
+
+    private static double compute(int n) {
+        return n == 0 ? 0.0 : n * Math.log(n) * INV_LN2;
+    }
+
+    /**
+     * Grows the table so that it covers counts up to n, within the maximum table size
+     *
+     * @param n Largest count expected
+     */
+    public static synchronized void ensureCapacity(int n) {
+        if (n < mTable.length || mTable.length >= MAX_SIZE) {
+            return;
+        }
+        int size = mTable.length;
+        while (size <= n && size < MAX_SIZE) {
+            size <<= 1;
+        }
+        mTable = build(size);
+    }
+
+    /**
+     * Returns n * log2(n)
+     *
+     * @param n Non negative count
+     * @return n * log2(n), 0 for n = 0
+     */
+    public static double get(int n) {
+        double[] table = mTable;
+        return n < table.length ? table[n] : compute(n);
+    }
+
+    /**
+     * Returns the entropy of a histogram multiplied by its total, as total * log2(total) - sum(c * log2(c))
+     *
+     * @param counts Histogram
+     * @param offset Index of the first count
+     * @param length Number of counts
+     * @param total  Sum of the counts
+     * @return Weighted entropy in bits
+     */
+    public static double getWeightedEntropy(int[] counts, int offset, int length, int total) {
+        double[] table = mTable;
+        double sum = 0.0;
+        for (int i = offset; i < offset + length; i++) {
+            int count = counts[i];
+            sum += count < table.length ? table[count] : compute(count);
+        }
+        return (total < table.length ? table[total] : compute(total)) - sum;
+    }
+}
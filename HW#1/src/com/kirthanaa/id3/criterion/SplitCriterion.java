@@ -0,0 +1,39 @@
+package com.kirthanaa.id3.criterion;
+
+/**
+ * Measure used to choose between candidate splits, computed from integer class count histograms.
+ * <p>
+ * Impurities are weighted by the number of instances, so the impurity of a split is the sum of the weighted
+ * impurities of its branches and no division is needed until a split is scored.
+ */
+public interface SplitCriterion {
+
+    /**
+     * Highest score that still counts as no improvement. Weighted impurities are differences of n log n terms, so a
+     * split that carries no information can score a few units in the last place above 0 instead of exactly 0.
+     */
+    double MIN_SCORE = 1e-10;
+
+    /**
+     * Returns the impurity of a class distribution multiplied by its number of instances
+     *
+     * @param classCounts Histogram holding the class counts
+     * @param offset      Index of the count of the first class in the histogram
+     * @param numClasses  Number of classes
+     * @param total       Sum of the class counts
+     * @return Weighted impurity, 0 for an empty distribution
+     */
+    double getWeightedImpurity(int[] classCounts, int offset, int numClasses, int total);
+
+    /**
+     * Scores a split. Higher is better, and a split with a score of MIN_SCORE or less does not improve on the parent.
+     *
+     * @param parentImpurity   Weighted impurity of the instances before the split
+     * @param childrenImpurity Sum of the weighted impurities of the branches
+     * @param total            Number of instances split
+     * @param branchTotals     Number of instances in each branch
+     * @param numBranches      Number of branches
+     * @return Score of the split
+     */
+    double getScore(double parentImpurity, double childrenImpurity, int total, int[] branchTotals, int numBranches);
+}
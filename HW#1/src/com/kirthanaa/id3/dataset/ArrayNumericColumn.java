@@ -0,0 +1,40 @@
+package com.kirthanaa.id3.dataset;
+
+/**
+ * Numeric column backed by a primitive double array.
+ */
+public class ArrayNumericColumn extends NumericColumn {
+
+    private final double[] mValues;
+
+    private final int mSize;
+
+    public ArrayNumericColumn(double[] values, int size) {
+        this.mValues = values;
+        this.mSize = size;
+    }
+
+    @Override
+    public double getValue(int row) {
+        return mValues[row];
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public long getHeapBytes() {
+        return 8L * mValues.length;
+    }
+
+    /**
+     * Returns the backing array. Callers must not modify it.
+     *
+     * @return Values of the column
+     */
+    public double[] getValues() {
+        return mValues;
+    }
+}
@@ -0,0 +1,229 @@
+package com.kirthanaa.id3.dataset;
+
+import java.util.Arrays;
+
+/**
+ * Quantile binning of the NUMERIC attributes of a dataset, used for approximate split search.
+ * Every numeric attribute is quantized once into at most mMaxBins bins holding roughly the same number of instances,
+ * and the bin of every row is stored as an unsigned byte. Equal values never straddle two bins, so an attribute with
+ * no more distinct values than bins gets one bin per value and loses no split points.
+ */
+public class ID3Binning {
+
+    public static final int MAX_BINS = 256;
+
+    private final int mMaxBins;
+
+    private final int[] mNumBins;
+
+    private final double[][] mBinLowerBounds;
+
+    private final double[][] mBinUpperBounds;
+
+    private final double[][] mSplitValues;
+
+    private final byte[][] mBinCodes;
+
+    /**
+     * @param data    Dataset to quantize
+     * @param maxBins Maximum number of bins per attribute, at most MAX_BINS
+     */
+    public ID3Binning(ID3Dataset data, int maxBins) {
+        if (maxBins < 2 || maxBins > MAX_BINS) {
+            throw new IllegalArgumentException("Number of bins must be between 2 and " + MAX_BINS);
+        }
+        this.mMaxBins = maxBins;
+        int numAttributes = data.getNumAttributes();
+        mNumBins = new int[numAttributes];
+        mBinLowerBounds = new double[numAttributes][];
+        mBinUpperBounds = new double[numAttributes][];
+        mSplitValues = new double[numAttributes][];
+        mBinCodes = new byte[numAttributes][];
+        for (int i = 0; i < numAttributes; i++) {
+            NumericColumn column = data.getNumericColumn(i);
+            if (column != null) {
+                quantize(i, column, data.getNumInstances());
+            }
+        }
+    }
+
+    /**
+     * Bins the values of a numeric attribute. NaN values are left out of the quantiles and fall in the last bin, above
+     * every split value, like in partition and prediction. The rows of a sparse column that are not stored are all 0,
+     * so they are binned once.
+     */
+    private void quantize(int attributeOrdinal, NumericColumn column, int numInstances) {
+        SparseNumericColumn sparseColumn = column instanceof SparseNumericColumn ? (SparseNumericColumn) column : null;
+        double[] sorted = new double[numInstances];
+        if (sparseColumn != null) {
+            System.arraycopy(sparseColumn.getValues(), 0, sorted, 0, sparseColumn.getNumNonZeros());
+        } else {
+            for (int row = 0; row < numInstances; row++) {
+                sorted[row] = column.getValue(row);
+            }
+        }
+        Arrays.sort(sorted);
+        int numValues = numInstances;
+        while (numValues > 0 && Double.isNaN(sorted[numValues - 1])) {
+            numValues--;
+        }
+        double[] lowerBounds = new double[mMaxBins];
+        double[] upperBounds = new double[mMaxBins];
+        int numBins = getQuantileBins(sorted, numValues, mMaxBins, lowerBounds, upperBounds);
+        if (numBins == 0) {
+            lowerBounds[0] = Double.NaN;
+            upperBounds[0] = Double.NaN;
+            numBins = 1;
+        }
+
+        mNumBins[attributeOrdinal] = numBins;
+        mBinLowerBounds[attributeOrdinal] = Arrays.copyOf(lowerBounds, numBins);
+        mBinUpperBounds[attributeOrdinal] = Arrays.copyOf(upperBounds, numBins);
+        double[] splitValues = new double[Math.max(numBins - 1, 0)];
+        for (int b = 0; b < splitValues.length; b++) {
+            splitValues[b] = getSplitValue(upperBounds[b], lowerBounds[b + 1]);
+        }
+        mSplitValues[attributeOrdinal] = splitValues;
+
+        byte[] codes = new byte[numInstances];
+        double[] binUpperBounds = mBinUpperBounds[attributeOrdinal];
+        if (sparseColumn != null) {
+            Arrays.fill(codes, (byte) getBin(binUpperBounds, 0.0));
+            int[] rows = sparseColumn.getRows();
+            double[] values = sparseColumn.getValues();
+            for (int i = 0; i < rows.length; i++) {
+                codes[rows[i]] = (byte) getBin(binUpperBounds, values[i]);
+            }
+        } else {
+            for (int row = 0; row < numInstances; row++) {
+                codes[row] = (byte) getBin(binUpperBounds, column.getValue(row));
+            }
+        }
+        mBinCodes[attributeOrdinal] = codes;
+    }
+
+    private static int getBin(double[] binUpperBounds, double value) {
+        int bin = Arrays.binarySearch(binUpperBounds, value);
+        return bin >= 0 ? bin : Math.min(-bin - 1, binUpperBounds.length - 1);
+    }
+
+    /**
+     * Threshold separating two adjacent values: their midpoint. Both values are halved before they are added, so the
+     * sum stays finite even for values of opposite sign near Double.MAX_VALUE. Rows with a value up to the threshold
+     * take the first branch, so when the two values are adjacent doubles and the midpoint rounds up to the larger one,
+     * the smaller one is used instead.
+     *
+     * @param lower Largest value of the first branch
+     * @param upper Smallest value of the second branch, greater than lower
+     * @return Threshold at least lower and less than upper
+     */
+    public static double getSplitValue(double lower, double upper) {
+        double splitValue = lower / 2.0 + upper / 2.0;
+        return splitValue < upper ? splitValue : lower;
+    }
+
+    /**
+     * Divides sorted values into at most maxBins bins holding roughly the same number of values. Equal values are
+     * always put in the same bin, and if there are no more distinct values than bins every value gets its own bin.
+     *
+     * @param sorted      Values in ascending order
+     * @param length      Number of values in sorted
+     * @param maxBins     Maximum number of bins
+     * @param lowerBounds Receives the smallest value of each bin, at least maxBins long
+     * @param upperBounds Receives the largest value of each bin, at least maxBins long
+     * @return Number of bins
+     */
+    public static int getQuantileBins(double[] sorted, int length, int maxBins, double[] lowerBounds,
+                                      double[] upperBounds) {
+        int numDistinct = length == 0 ? 0 : 1;
+        for (int i = 1; i < length; i++) {
+            if (sorted[i] != sorted[i - 1]) {
+                numDistinct++;
+            }
+        }
+
+        int numBins = 0;
+        int start = 0;
+        while (start < length) {
+            int remainingBins = maxBins - numBins;
+            int end = numDistinct <= maxBins ? start : remainingBins == 1 ? length - 1
+                    : Math.max(start, start + (length - start) / remainingBins - 1);
+            while (end + 1 < length && sorted[end + 1] == sorted[end]) {
+                end++;
+            }
+            lowerBounds[numBins] = sorted[start];
+            upperBounds[numBins] = sorted[end];
+            numBins++;
+            start = end + 1;
+        }
+        return numBins;
+    }
+
+    /**
+     * Returns the number of bins of an attribute
+     *
+     * @param attributeOrdinal Ordinal of the attribute
+     * @return Number of bins, 0 for a nominal attribute
+     */
+    public int getNumBins(int attributeOrdinal) {
+        return mNumBins[attributeOrdinal];
+    }
+
+    /**
+     * Returns the bin of a row
+     *
+     * @param attributeOrdinal Ordinal of a numeric attribute
+     * @param row              Row index
+     * @return Bin of the row, between 0 and getNumBins(attributeOrdinal) - 1
+     */
+    public int getBin(int attributeOrdinal, int row) {
+        return mBinCodes[attributeOrdinal][row] & 0xff;
+    }
+
+    /**
+     * Returns the bin codes of an attribute. Codes are unsigned and must be read as code &amp; 0xff.
+     *
+     * @param attributeOrdinal Ordinal of a numeric attribute
+     * @return Bin code of each row
+     */
+    public byte[] getBinCodes(int attributeOrdinal) {
+        return mBinCodes[attributeOrdinal];
+    }
+
+    /**
+     * Returns the threshold separating a bin from the next one, halfway between the largest value of the bin and the
+     * smallest value of the next bin
+     *
+     * @param attributeOrdinal Ordinal of a numeric attribute
+     * @param bin              Bin, lower than getNumBins(attributeOrdinal) - 1
+     * @return Split value
+     */
+    public double getSplitValue(int attributeOrdinal, int bin) {
+        return mSplitValues[attributeOrdinal][bin];
+    }
+
+    /**
+     * Returns the thresholds separating every bin from the next one, as given by getSplitValue
+     *
+     * @param attributeOrdinal Ordinal of a numeric attribute
+     * @return Split value after each bin but the last. Callers must not modify it.
+     */
+    public double[] getSplitValues(int attributeOrdinal) {
+        return mSplitValues[attributeOrdinal];
+    }
+
+    /**
+     * Returns the number of bytes held on the heap by the bin codes and bounds
+     *
+     * @return Heap footprint in bytes
+     */
+    public long getHeapBytes() {
+        long bytes = 0;
+        for (int i = 0; i < mBinCodes.length; i++) {
+            if (mBinCodes[i] != null) {
+                bytes += mBinCodes[i].length + 24L * mNumBins[i];
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,186 @@
+package com.kirthanaa.id3.dataset;
+
+import com.kirthanaa.id3.entities.ID3Attribute;
+import com.kirthanaa.id3.entities.ID3Class;
+
+import java.util.ArrayList;
+
+/**
+ * Columnar store of the data instances of an ARFF file.
+ * NUMERIC attributes are kept as double columns, NOMINAL attributes and the class as dictionary coded columns.
+ * Columns are indexed by ID3Attribute.mAttributeOrdinal. Mostly empty attributes may be kept as sparse columns.
+ * Missing values are NaN in numeric columns and code -1 in nominal columns.
+ * A dataset is never modified after it is built and can be shared between threads training different models.
+ */
+public class ID3Dataset {
+
+    private final ArrayList<ID3Attribute> mID3AttributeList;
+
+    private final ID3Class mId3Class;
+
+    private final int mNumInstances;
+
+    private final NumericColumn[] mNumericColumns;
+
+    private final NominalColumn[] mNominalColumns;
+
+    private final NominalColumn mClassColumn;
+
+    private final boolean mHasSparseColumns;
+
+    public ID3Dataset(ArrayList<ID3Attribute> attributeList, ID3Class id3Class, int numInstances,
+                      NumericColumn[] numericColumns, NominalColumn[] nominalColumns, NominalColumn classColumn) {
+        this.mID3AttributeList = new ArrayList<ID3Attribute>(attributeList);
+        this.mId3Class = id3Class;
+        this.mNumInstances = numInstances;
+        this.mNumericColumns = numericColumns;
+        this.mNominalColumns = nominalColumns;
+        this.mClassColumn = classColumn;
+        boolean hasSparseColumns = false;
+        for (int i = 0; i < numericColumns.length; i++) {
+            hasSparseColumns |= numericColumns[i] instanceof SparseNumericColumn
+                    || nominalColumns[i] instanceof SparseNominalColumn;
+        }
+        this.mHasSparseColumns = hasSparseColumns;
+    }
+
+    /**
+     * Returns the attributes of the dataset, excluding the class. The list is the dataset's own and is shared, without
+     * a copy, with the trees trained on it and with the threads training them, so modifying it would change the
+     * dataset under them.
+     *
+     * @return List of ID3Attributes, indexed by ID3Attribute.mAttributeOrdinal. Callers must not modify it.
+     */
+    public ArrayList<ID3Attribute> getAttributeList() {
+        return mID3AttributeList;
+    }
+
+    /**
+     * Returns the class attribute of the dataset
+     *
+     * @return ID3Class variable
+     */
+    public ID3Class getID3Class() {
+        return mId3Class;
+    }
+
+    /**
+     * Returns the number of data instances
+     *
+     * @return Number of data instances
+     */
+    public int getNumInstances() {
+        return mNumInstances;
+    }
+
+    /**
+     * Returns the number of attributes, excluding the class
+     *
+     * @return Number of attributes
+     */
+    public int getNumAttributes() {
+        return mID3AttributeList.size();
+    }
+
+    /**
+     * @return True if any attribute is kept as a SparseNumericColumn or a SparseNominalColumn
+     */
+    public boolean hasSparseColumns() {
+        return mHasSparseColumns;
+    }
+
+    /**
+     * Returns the column of a NUMERIC attribute
+     *
+     * @param attributeOrdinal Ordinal of the attribute
+     * @return Numeric column, or null if the attribute is not numeric
+     */
+    public NumericColumn getNumericColumn(int attributeOrdinal) {
+        return mNumericColumns[attributeOrdinal];
+    }
+
+    /**
+     * Returns the column of a NOMINAL attribute
+     *
+     * @param attributeOrdinal Ordinal of the attribute
+     * @return Nominal column, or null if the attribute is not nominal
+     */
+    public NominalColumn getNominalColumn(int attributeOrdinal) {
+        return mNominalColumns[attributeOrdinal];
+    }
+
+    /**
+     * Returns the column of class codes
+     *
+     * @return Class column
+     */
+    public NominalColumn getClassColumn() {
+        return mClassColumn;
+    }
+
+    /**
+     * Returns the value of a NUMERIC attribute at the given row
+     *
+     * @param attributeOrdinal Ordinal of the attribute
+     * @param row              Row index
+     * @return Value of the attribute
+     */
+    public double getNumericValue(int attributeOrdinal, int row) {
+        return mNumericColumns[attributeOrdinal].getValue(row);
+    }
+
+    /**
+     * Returns the code of a NOMINAL attribute at the given row
+     *
+     * @param attributeOrdinal Ordinal of the attribute
+     * @param row              Row index
+     * @return Index of the value in ID3Attribute.mAttributeValues, or -1 if the value is missing
+     */
+    public int getNominalCode(int attributeOrdinal, int row) {
+        return mNominalColumns[attributeOrdinal].getCode(row);
+    }
+
+    /**
+     * Copies a row into a feature array indexed by attribute ordinal, holding the value of every NUMERIC attribute and
+     * the code of every NOMINAL attribute
+     *
+     * @param row      Row index
+     * @param features Array of at least getNumAttributes() entries receiving the features
+     * @return features
+     */
+    public double[] getFeatures(int row, double[] features) {
+        for (int i = 0; i < mNumericColumns.length; i++) {
+            features[i] = mNumericColumns[i] != null ? mNumericColumns[i].getValue(row)
+                    : mNominalColumns[i].getCode(row);
+        }
+        return features;
+    }
+
+    /**
+     * Returns the class code at the given row
+     *
+     * @param row Row index
+     * @return Index of the class label in ID3Class.mClassLabels
+     */
+    public int getClassCode(int row) {
+        return mClassColumn.getCode(row);
+    }
+
+    /**
+     * Returns the number of bytes held on the heap by the columns of the dataset
+     *
+     * @return Heap footprint in bytes
+     */
+    public long getHeapBytes() {
+        long bytes = mClassColumn.getHeapBytes();
+        for (int i = 0; i < mNumericColumns.length; i++) {
+            if (mNumericColumns[i] != null) {
+                bytes += mNumericColumns[i].getHeapBytes();
+            }
+            if (mNominalColumns[i] != null) {
+                bytes += mNominalColumns[i].getHeapBytes();
+            }
+        }
+        return bytes;
+    }
+}
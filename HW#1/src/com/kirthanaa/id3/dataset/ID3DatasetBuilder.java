@@ -0,0 +1,319 @@
+package com.kirthanaa.id3.dataset;
+
+import com.kirthanaa.id3.entities.ID3Attribute;
+import com.kirthanaa.id3.entities.ID3Class;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Accumulates data instances row by row into growable columns and builds an ID3Dataset.
+ * Values of the current row are set by attribute ordinal, then the row is committed with commitRow(). Values that are
+ * not set are 0 for a NUMERIC attribute and the first value for a NOMINAL attribute, as in sparse ARFF rows.
+ * <p>
+ * Columns are dense arrays until the first sparse row is announced with startSparseRow(). From then on every column
+ * that is not dense enough keeps only the rows whose value is not the default, and turns dense again once it holds
+ * more than DENSE_MIN_NON_ZEROS values and more than one row in SPARSE_DENSITY has one. Data given as sparse rows,
+ * with wide and mostly empty rows, thus takes memory in proportion to its values rather than to rows times
+ * attributes, while data given as dense rows always gets dense columns, whatever share of its values are 0.
+ */
+public class ID3DatasetBuilder implements ID3RowSink {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Columns having at most one stored value in this many rows are kept sparse
+     */
+    private static final int SPARSE_DENSITY = 4;
+
+    private static final int DENSE_MIN_NON_ZEROS = 1024;
+
+    private static final int INITIAL_NON_ZEROS = 16;
+
+    private final ArrayList<ID3Attribute> mID3AttributeList;
+
+    private final ID3Class mId3Class;
+
+    private final double[][] mNumericValues;
+
+    private final int[][] mNominalCodes;
+
+    private final int[][] mSparseRows;
+
+    private final double[][] mSparseValues;
+
+    private final int[][] mSparseCodes;
+
+    private final int[] mNumNonZeros;
+
+    private int[] mClassCodes;
+
+    private int mNumInstances = 0;
+
+    private int mCapacity;
+
+    private boolean mHasSparseRows = false;
+
+    public ID3DatasetBuilder(ArrayList<ID3Attribute> attributeList, ID3Class id3Class) {
+        this(attributeList, id3Class, DEFAULT_CAPACITY);
+    }
+
+    public ID3DatasetBuilder(ArrayList<ID3Attribute> attributeList, ID3Class id3Class, int expectedInstances) {
+        this.mID3AttributeList = attributeList;
+        this.mId3Class = id3Class;
+        this.mCapacity = Math.max(expectedInstances, 1);
+
+        int numAttributes = attributeList.size();
+        mNumericValues = new double[numAttributes][];
+        mNominalCodes = new int[numAttributes][];
+        mSparseRows = new int[numAttributes][];
+        mSparseValues = new double[numAttributes][];
+        mSparseCodes = new int[numAttributes][];
+        mNumNonZeros = new int[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            ID3Attribute attribute = attributeList.get(i);
+            if (attribute.mAttributeType == ID3Attribute.NUMERIC) {
+                mNumericValues[attribute.mAttributeOrdinal] = new double[mCapacity];
+            } else {
+                mNominalCodes[attribute.mAttributeOrdinal] = new int[mCapacity];
+            }
+        }
+        mClassCodes = new int[mCapacity];
+    }
+
+    /**
+     * Announces that the current row is a sparse row. On the first one, every column where at most one row in
+     * SPARSE_DENSITY has a value other than the default is turned sparse.
+     */
+    @Override
+    public void startSparseRow() {
+        if (mHasSparseRows) {
+            return;
+        }
+        mHasSparseRows = true;
+        for (int ordinal = 0; ordinal < mNumericValues.length; ordinal++) {
+            sparsify(ordinal);
+        }
+    }
+
+    /**
+     * Gathers the values of a dense column other than the default into a sparse column, unless the column is too dense
+     *
+     * @param attributeOrdinal Ordinal of a dense column
+     */
+    private void sparsify(int attributeOrdinal) {
+        double[] values = mNumericValues[attributeOrdinal];
+        int[] codes = mNominalCodes[attributeOrdinal];
+        int numNonZeros = 0;
+        for (int row = 0; row < mNumInstances; row++) {
+            if (values != null ? Double.doubleToRawLongBits(values[row]) != 0L : codes[row] != 0) {
+                numNonZeros++;
+            }
+        }
+        if ((long) numNonZeros * SPARSE_DENSITY > mNumInstances) {
+            return;
+        }
+        int[] rows = new int[Math.max(numNonZeros, INITIAL_NON_ZEROS)];
+        double[] sparseValues = values != null ? new double[rows.length] : null;
+        int[] sparseCodes = values != null ? null : new int[rows.length];
+        int index = 0;
+        for (int row = 0; row < mNumInstances; row++) {
+            if (values != null ? Double.doubleToRawLongBits(values[row]) != 0L : codes[row] != 0) {
+                rows[index] = row;
+                if (values != null) {
+                    sparseValues[index] = values[row];
+                } else {
+                    sparseCodes[index] = codes[row];
+                }
+                index++;
+            }
+        }
+        mSparseRows[attributeOrdinal] = rows;
+        mSparseValues[attributeOrdinal] = sparseValues;
+        mSparseCodes[attributeOrdinal] = sparseCodes;
+        mNumNonZeros[attributeOrdinal] = numNonZeros;
+        mNumericValues[attributeOrdinal] = null;
+        mNominalCodes[attributeOrdinal] = null;
+    }
+
+    /**
+     * Sets the value of a NUMERIC attribute in the current row
+     *
+     * @param attributeOrdinal Ordinal of the attribute
+     * @param value            Value of the attribute
+     */
+    @Override
+    public void setNumericValue(int attributeOrdinal, double value) {
+        double[] values = mNumericValues[attributeOrdinal];
+        if (values != null) {
+            values[mNumInstances] = value;
+        } else if (Double.doubleToRawLongBits(value) != 0L) {
+            int index = addNonZero(attributeOrdinal);
+            if (index >= 0) {
+                mSparseValues[attributeOrdinal][index] = value;
+            } else {
+                mNumericValues[attributeOrdinal][mNumInstances] = value;
+            }
+        }
+    }
+
+    /**
+     * Sets the code of a NOMINAL attribute in the current row
+     *
+     * @param attributeOrdinal Ordinal of the attribute
+     * @param code             Index of the value in ID3Attribute.mAttributeValues, or -1 if the value is missing
+     */
+    @Override
+    public void setNominalCode(int attributeOrdinal, int code) {
+        int[] codes = mNominalCodes[attributeOrdinal];
+        if (codes != null) {
+            codes[mNumInstances] = code;
+        } else if (code != 0) {
+            int index = addNonZero(attributeOrdinal);
+            if (index >= 0) {
+                mSparseCodes[attributeOrdinal][index] = code;
+            } else {
+                mNominalCodes[attributeOrdinal][mNumInstances] = code;
+            }
+        }
+    }
+
+    /**
+     * Appends the current row to the stored rows of a sparse column, or turns the column dense if it has become dense
+     *
+     * @param attributeOrdinal Ordinal of a sparse column
+     * @return Position of the value to store in the sparse column, or -1 if the column is now dense
+     */
+    private int addNonZero(int attributeOrdinal) {
+        int numNonZeros = mNumNonZeros[attributeOrdinal];
+        if (numNonZeros >= DENSE_MIN_NON_ZEROS && (long) numNonZeros * SPARSE_DENSITY > mNumInstances) {
+            densify(attributeOrdinal);
+            return -1;
+        }
+        if (numNonZeros == mSparseRows[attributeOrdinal].length) {
+            int length = numNonZeros + (numNonZeros >> 1) + 1;
+            mSparseRows[attributeOrdinal] = Arrays.copyOf(mSparseRows[attributeOrdinal], length);
+            if (mSparseValues[attributeOrdinal] != null) {
+                mSparseValues[attributeOrdinal] = Arrays.copyOf(mSparseValues[attributeOrdinal], length);
+            } else {
+                mSparseCodes[attributeOrdinal] = Arrays.copyOf(mSparseCodes[attributeOrdinal], length);
+            }
+        }
+        mSparseRows[attributeOrdinal][numNonZeros] = mNumInstances;
+        mNumNonZeros[attributeOrdinal] = numNonZeros + 1;
+        return numNonZeros;
+    }
+
+    /**
+     * Scatters the stored values of a sparse column into a dense column of the current capacity
+     *
+     * @param attributeOrdinal Ordinal of a sparse column
+     */
+    private void densify(int attributeOrdinal) {
+        int[] rows = mSparseRows[attributeOrdinal];
+        int numNonZeros = mNumNonZeros[attributeOrdinal];
+        if (mSparseValues[attributeOrdinal] != null) {
+            double[] values = new double[mCapacity];
+            for (int i = 0; i < numNonZeros; i++) {
+                values[rows[i]] = mSparseValues[attributeOrdinal][i];
+            }
+            mNumericValues[attributeOrdinal] = values;
+            mSparseValues[attributeOrdinal] = null;
+        } else {
+            int[] codes = new int[mCapacity];
+            for (int i = 0; i < numNonZeros; i++) {
+                codes[rows[i]] = mSparseCodes[attributeOrdinal][i];
+            }
+            mNominalCodes[attributeOrdinal] = codes;
+            mSparseCodes[attributeOrdinal] = null;
+        }
+        mSparseRows[attributeOrdinal] = null;
+        mNumNonZeros[attributeOrdinal] = 0;
+    }
+
+    /**
+     * Sets the class code of the current row
+     *
+     * @param code Index of the class label in ID3Class.mClassLabels
+     */
+    @Override
+    public void setClassCode(int code) {
+        mClassCodes[mNumInstances] = code;
+    }
+
+    /**
+     * Commits the current row and moves to the next one
+     */
+    @Override
+    public void commitRow() {
+        mNumInstances++;
+        if (mNumInstances == mCapacity) {
+            grow();
+        }
+    }
+
+    /**
+     * Returns the number of rows committed so far
+     *
+     * @return Number of data instances
+     */
+    public int getNumInstances() {
+        return mNumInstances;
+    }
+
+    private void grow() {
+        mCapacity = mCapacity + (mCapacity >> 1) + 1;
+        for (int i = 0; i < mNumericValues.length; i++) {
+            if (mNumericValues[i] != null) {
+                mNumericValues[i] = Arrays.copyOf(mNumericValues[i], mCapacity);
+            }
+            if (mNominalCodes[i] != null) {
+                mNominalCodes[i] = Arrays.copyOf(mNominalCodes[i], mCapacity);
+            }
+        }
+        mClassCodes = Arrays.copyOf(mClassCodes, mCapacity);
+    }
+
+    /**
+     * Builds the dataset from the committed rows. Numeric columns are trimmed to size and nominal columns are
+     * narrowed to byte or short codes when the cardinality of the attribute allows it. Once sparse rows have been
+     * seen, columns with at most one value other than the default in SPARSE_DENSITY rows become SparseNumericColumn
+     * and SparseNominalColumn, the others dense columns.
+     *
+     * @return Columnar dataset
+     */
+    public ID3Dataset build() {
+        int numAttributes = mNumericValues.length;
+        NumericColumn[] numericColumns = new NumericColumn[numAttributes];
+        NominalColumn[] nominalColumns = new NominalColumn[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            ID3Attribute attribute = mID3AttributeList.get(i);
+            int ordinal = attribute.mAttributeOrdinal;
+            int numNonZeros = mNumNonZeros[ordinal];
+            if (mSparseRows[ordinal] != null) {
+                if ((long) numNonZeros * SPARSE_DENSITY <= mNumInstances) {
+                    int[] rows = Arrays.copyOf(mSparseRows[ordinal], numNonZeros);
+                    if (mSparseValues[ordinal] != null) {
+                        numericColumns[ordinal] = new SparseNumericColumn(rows,
+                                Arrays.copyOf(mSparseValues[ordinal], numNonZeros), mNumInstances);
+                    } else {
+                        nominalColumns[ordinal] = new SparseNominalColumn(rows, NominalColumn.of(mSparseCodes[ordinal],
+                                numNonZeros, attribute.getNumberOfAttributeValues()), mNumInstances);
+                    }
+                    continue;
+                }
+                densify(ordinal);
+            }
+            if (mNumericValues[ordinal] != null) {
+                double[] values = mNumericValues[ordinal].length == mNumInstances ? mNumericValues[ordinal]
+                        : Arrays.copyOf(mNumericValues[ordinal], mNumInstances);
+                numericColumns[ordinal] = new ArrayNumericColumn(values, mNumInstances);
+            } else {
+                nominalColumns[ordinal] = NominalColumn.of(mNominalCodes[ordinal], mNumInstances,
+                        attribute.getNumberOfAttributeValues());
+            }
+        }
+        NominalColumn classColumn = NominalColumn.of(mClassCodes, mNumInstances, mId3Class.mNoOfClasses);
+        return new ID3Dataset(mID3AttributeList, mId3Class, mNumInstances, numericColumns, nominalColumns, classColumn);
+    }
+}
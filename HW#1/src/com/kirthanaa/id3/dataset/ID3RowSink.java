@@ -0,0 +1,43 @@
+package com.kirthanaa.id3.dataset;
+
+/**
+ * Receives data instances row by row, as produced by the ARFF parser.
+ * Values of the current row are set by attribute ordinal, then the row is committed with commitRow(). A sparse row
+ * only sets the values it lists: a value that is not set is 0 for a NUMERIC attribute and the first value for a
+ * NOMINAL attribute. A missing value is set as NaN for a NUMERIC attribute and as code -1 for a NOMINAL attribute.
+ */
+public interface ID3RowSink {
+
+    /**
+     * Announces that the current row is a sparse row, before any of its values is set
+     */
+    void startSparseRow();
+
+    /**
+     * Sets the value of a NUMERIC attribute in the current row
+     *
+     * @param attributeOrdinal Ordinal of the attribute
+     * @param value            Value of the attribute
+     */
+    void setNumericValue(int attributeOrdinal, double value);
+
+    /**
+     * Sets the code of a NOMINAL attribute in the current row
+     *
+     * @param attributeOrdinal Ordinal of the attribute
+     * @param code             Index of the value in ID3Attribute.mAttributeValues, or -1 if the value is missing
+     */
+    void setNominalCode(int attributeOrdinal, int code);
+
+    /**
+     * Sets the class code of the current row
+     *
+     * @param code Index of the class label in ID3Class.mClassLabels
+     */
+    void setClassCode(int code);
+
+    /**
+     * Commits the current row and moves to the next one
+     */
+    void commitRow();
+}
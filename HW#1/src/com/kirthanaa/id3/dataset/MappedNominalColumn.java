@@ -0,0 +1,131 @@
+package com.kirthanaa.id3.dataset;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Nominal columns read in place from a memory-mapped file, one per code width. The codes stay in the page cache
+ * and take no heap.
+ */
+public final class MappedNominalColumn {
+
+    private MappedNominalColumn() {
+    }
+
+    /**
+     * Creates a column over codes of the given width
+     *
+     * @param codes Buffer holding one code per row, from position 0
+     * @param size  Number of rows
+     * @param width Width of a code in bytes: 1, 2 or 4
+     * @return Column reading the buffer
+     */
+    public static NominalColumn of(ByteBuffer codes, int size, int width) {
+        switch (width) {
+            case 1:
+                ByteBuffer byteCodes = codes.slice();
+                byteCodes.limit(size);
+                return new ByteColumn(byteCodes);
+            case 2:
+                ShortBuffer shortCodes = codes.asShortBuffer();
+                shortCodes.limit(size);
+                return new ShortColumn(shortCodes);
+            case 4:
+                IntBuffer intCodes = codes.asIntBuffer();
+                intCodes.limit(size);
+                return new IntColumn(intCodes);
+            default:
+                throw new IllegalArgumentException("Unsupported code width " + width);
+        }
+    }
+
+    /**
+     * Returns the width in bytes of the codes of a column, as written to a mapped file
+     *
+     * @param column Column on the heap or mapped
+     * @return 1, 2 or 4
+     */
+    public static int getWidth(NominalColumn column) {
+        if (column instanceof SparseNominalColumn) {
+            return getWidth(((SparseNominalColumn) column).getCodes());
+        } else if (column instanceof NominalColumn.ByteNominalColumn || column instanceof ByteColumn) {
+            return 1;
+        } else if (column instanceof NominalColumn.ShortNominalColumn || column instanceof ShortColumn) {
+            return 2;
+        }
+        return 4;
+    }
+
+    private static class ByteColumn extends NominalColumn {
+
+        private final ByteBuffer mCodes;
+
+        ByteColumn(ByteBuffer codes) {
+            this.mCodes = codes;
+        }
+
+        @Override
+        public int getCode(int row) {
+            return mCodes.get(row);
+        }
+
+        @Override
+        public int size() {
+            return mCodes.limit();
+        }
+
+        @Override
+        public long getHeapBytes() {
+            return 0L;
+        }
+    }
+
+    private static class ShortColumn extends NominalColumn {
+
+        private final ShortBuffer mCodes;
+
+        ShortColumn(ShortBuffer codes) {
+            this.mCodes = codes;
+        }
+
+        @Override
+        public int getCode(int row) {
+            return mCodes.get(row);
+        }
+
+        @Override
+        public int size() {
+            return mCodes.limit();
+        }
+
+        @Override
+        public long getHeapBytes() {
+            return 0L;
+        }
+    }
+
+    private static class IntColumn extends NominalColumn {
+
+        private final IntBuffer mCodes;
+
+        IntColumn(IntBuffer codes) {
+            this.mCodes = codes;
+        }
+
+        @Override
+        public int getCode(int row) {
+            return mCodes.get(row);
+        }
+
+        @Override
+        public int size() {
+            return mCodes.limit();
+        }
+
+        @Override
+        public long getHeapBytes() {
+            return 0L;
+        }
+    }
+}
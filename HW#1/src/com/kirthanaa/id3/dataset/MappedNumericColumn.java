@@ -0,0 +1,33 @@
+package com.kirthanaa.id3.dataset;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Numeric column read in place from a memory-mapped file. The values stay in the page cache and take no heap.
+ */
+public class MappedNumericColumn extends NumericColumn {
+
+    private final DoubleBuffer mValues;
+
+    /**
+     * @param values Buffer holding one value per row, from position 0
+     */
+    public MappedNumericColumn(DoubleBuffer values) {
+        this.mValues = values;
+    }
+
+    @Override
+    public double getValue(int row) {
+        return mValues.get(row);
+    }
+
+    @Override
+    public int size() {
+        return mValues.limit();
+    }
+
+    @Override
+    public long getHeapBytes() {
+        return 0L;
+    }
+}
@@ -0,0 +1,166 @@
+package com.kirthanaa.id3.dataset;
+
+/**
+ * Column of dictionary codes for a NOMINAL attribute or the class. A code is the index of the value in
+ * ID3Attribute.mAttributeValues (or ID3Class.mClassLabels).
+ */
+public abstract class NominalColumn {
+
+    /**
+     * Returns the code stored at the given row
+     *
+     * @param row Row index
+     * @return Code of the value at the row
+     */
+    public abstract int getCode(int row);
+
+    /**
+     * Returns the number of rows in the column
+     *
+     * @return Number of rows
+     */
+    public abstract int size();
+
+    /**
+     * Returns the number of bytes the column keeps on the heap
+     *
+     * @return Heap footprint of the column in bytes
+     */
+    public abstract long getHeapBytes();
+
+    /**
+     * Creates the narrowest column able to hold the given codes
+     *
+     * @param codes       Codes of each row
+     * @param size        Number of valid rows in codes
+     * @param cardinality Number of distinct values of the attribute
+     * @return Byte, short or int backed column
+     */
+    public static NominalColumn of(int[] codes, int size, int cardinality) {
+        if (cardinality <= Byte.MAX_VALUE) {
+            byte[] values = new byte[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = (byte) codes[i];
+            }
+            return new ByteNominalColumn(values);
+        } else if (cardinality <= Short.MAX_VALUE) {
+            short[] values = new short[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = (short) codes[i];
+            }
+            return new ShortNominalColumn(values);
+        } else {
+            int[] values = new int[size];
+            System.arraycopy(codes, 0, values, 0, size);
+            return new IntNominalColumn(values);
+        }
+    }
+
+    /**
+     * Returns the width of the codes of the column that of() creates for an attribute
+     *
+     * @param cardinality Number of distinct values of the attribute
+     * @return Width of a code in bytes: 1, 2 or 4
+     */
+    public static int getCodeWidth(int cardinality) {
+        if (cardinality <= Byte.MAX_VALUE) {
+            return 1;
+        } else if (cardinality <= Short.MAX_VALUE) {
+            return 2;
+        }
+        return 4;
+    }
+
+    /**
+     * Nominal column with at most Byte.MAX_VALUE values
+     */
+    public static class ByteNominalColumn extends NominalColumn {
+
+        private final byte[] mCodes;
+
+        public ByteNominalColumn(byte[] codes) {
+            this.mCodes = codes;
+        }
+
+        @Override
+        public int getCode(int row) {
+            return mCodes[row];
+        }
+
+        @Override
+        public int size() {
+            return mCodes.length;
+        }
+
+        @Override
+        public long getHeapBytes() {
+            return mCodes.length;
+        }
+
+        public byte[] getCodes() {
+            return mCodes;
+        }
+    }
+
+    /**
+     * Nominal column with at most Short.MAX_VALUE values
+     */
+    public static class ShortNominalColumn extends NominalColumn {
+
+        private final short[] mCodes;
+
+        public ShortNominalColumn(short[] codes) {
+            this.mCodes = codes;
+        }
+
+        @Override
+        public int getCode(int row) {
+            return mCodes[row];
+        }
+
+        @Override
+        public int size() {
+            return mCodes.length;
+        }
+
+        @Override
+        public long getHeapBytes() {
+            return 2L * mCodes.length;
+        }
+
+        public short[] getCodes() {
+            return mCodes;
+        }
+    }
+
+    /**
+     * Nominal column for attributes with very large cardinality
+     */
+    public static class IntNominalColumn extends NominalColumn {
+
+        private final int[] mCodes;
+
+        public IntNominalColumn(int[] codes) {
+            this.mCodes = codes;
+        }
+
+        @Override
+        public int getCode(int row) {
+            return mCodes[row];
+        }
+
+        @Override
+        public int size() {
+            return mCodes.length;
+        }
+
+        @Override
+        public long getHeapBytes() {
+            return 4L * mCodes.length;
+        }
+
+        public int[] getCodes() {
+            return mCodes;
+        }
+    }
+}
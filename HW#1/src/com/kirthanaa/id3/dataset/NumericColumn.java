@@ -0,0 +1,29 @@
+package com.kirthanaa.id3.dataset;
+
+/**
+ * Column of values for a NUMERIC attribute, addressed by row index.
+ */
+public abstract class NumericColumn {
+
+    /**
+     * Returns the value stored at the given row
+     *
+     * @param row Row index
+     * @return Numeric value of the row
+     */
+    public abstract double getValue(int row);
+
+    /**
+     * Returns the number of rows in the column
+     *
+     * @return Number of rows
+     */
+    public abstract int size();
+
+    /**
+     * Returns the number of bytes the column keeps on the heap
+     *
+     * @return Heap footprint of the column in bytes
+     */
+    public abstract long getHeapBytes();
+}
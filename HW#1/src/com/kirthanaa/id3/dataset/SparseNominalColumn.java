@@ -0,0 +1,69 @@
+package com.kirthanaa.id3.dataset;
+
+import java.util.Arrays;
+
+/**
+ * Nominal column of a sparse dataset, in compressed sparse column form: the rows holding a code other than 0, in
+ * increasing order, and their codes. Every other row has code 0, the first value of the attribute, as in sparse ARFF.
+ * Missing values are stored as code -1.
+ */
+public class SparseNominalColumn extends NominalColumn {
+
+    private final int[] mRows;
+
+    private final NominalColumn mCodes;
+
+    private final int mSize;
+
+    /**
+     * @param rows  Rows with a stored code, in increasing order
+     * @param codes Code of each stored row, indexed by its position in rows
+     * @param size  Number of rows of the column
+     */
+    public SparseNominalColumn(int[] rows, NominalColumn codes, int size) {
+        this.mRows = rows;
+        this.mCodes = codes;
+        this.mSize = size;
+    }
+
+    @Override
+    public int getCode(int row) {
+        int index = Arrays.binarySearch(mRows, row);
+        return index >= 0 ? mCodes.getCode(index) : 0;
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public long getHeapBytes() {
+        return 4L * mRows.length + mCodes.getHeapBytes();
+    }
+
+    /**
+     * @return Number of stored codes
+     */
+    public int getNumNonZeros() {
+        return mRows.length;
+    }
+
+    /**
+     * Returns the rows with a stored code. Callers must not modify them.
+     *
+     * @return Rows in increasing order
+     */
+    public int[] getRows() {
+        return mRows;
+    }
+
+    /**
+     * Returns the stored codes, indexed by the position of their row in getRows()
+     *
+     * @return Codes of the stored rows
+     */
+    public NominalColumn getCodes() {
+        return mCodes;
+    }
+}
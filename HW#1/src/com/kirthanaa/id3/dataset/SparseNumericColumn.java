@@ -0,0 +1,68 @@
+package com.kirthanaa.id3.dataset;
+
+import java.util.Arrays;
+
+/**
+ * Numeric column of a sparse dataset, in compressed sparse column form: the rows holding a value other than 0, in
+ * increasing order, and their values. Every other row is 0. Missing values are stored as NaN entries.
+ */
+public class SparseNumericColumn extends NumericColumn {
+
+    private final int[] mRows;
+
+    private final double[] mValues;
+
+    private final int mSize;
+
+    /**
+     * @param rows   Rows with a stored value, in increasing order
+     * @param values Value of each stored row
+     * @param size   Number of rows of the column
+     */
+    public SparseNumericColumn(int[] rows, double[] values, int size) {
+        this.mRows = rows;
+        this.mValues = values;
+        this.mSize = size;
+    }
+
+    @Override
+    public double getValue(int row) {
+        int index = Arrays.binarySearch(mRows, row);
+        return index >= 0 ? mValues[index] : 0.0;
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public long getHeapBytes() {
+        return 4L * mRows.length + 8L * mValues.length;
+    }
+
+    /**
+     * @return Number of stored values
+     */
+    public int getNumNonZeros() {
+        return mRows.length;
+    }
+
+    /**
+     * Returns the rows with a stored value. Callers must not modify them.
+     *
+     * @return Rows in increasing order
+     */
+    public int[] getRows() {
+        return mRows;
+    }
+
+    /**
+     * Returns the stored values, in the order of getRows(). Callers must not modify them.
+     *
+     * @return Values of the stored rows
+     */
+    public double[] getValues() {
+        return mValues;
+    }
+}
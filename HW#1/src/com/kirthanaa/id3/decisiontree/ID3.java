@@ -1,197 +1,500 @@
 package com.kirthanaa.id3.decisiontree;
 
 import com.kirthanaa.id3.arffreader.ARFFReader;
+import com.kirthanaa.id3.criterion.InformationGainCriterion;
+import com.kirthanaa.id3.criterion.NLogNTable;
+import com.kirthanaa.id3.criterion.SplitCriterion;
+import com.kirthanaa.id3.dataset.ID3Binning;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.dataset.NominalColumn;
+import com.kirthanaa.id3.dataset.NumericColumn;
+import com.kirthanaa.id3.dataset.SparseNominalColumn;
+import com.kirthanaa.id3.dataset.SparseNumericColumn;
 import com.kirthanaa.id3.entities.ID3Attribute;
 import com.kirthanaa.id3.entities.ID3Class;
-import com.kirthanaa.id3.entities.ID3ContinuousInstance;
+import com.kirthanaa.id3.metrics.TrainingListener;
+import com.kirthanaa.id3.metrics.TrainingLog;
+import com.kirthanaa.id3.metrics.TrainingMetrics;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 
 /**
  * Created by kirthanaaraghuraman on 9/24/15.
+ * <p>
+ * An ID3 instance only holds its immutable stopping parameters, split criterion and optional thread safe listener, so
+ * one instance can train any number of trees on different datasets at the same time.
+ * <p>
+ * Missing values are skipped rather than imputed. A nominal split is scored on the instances having a known value of
+ * the attribute and its score is scaled by their share of the node, as in C4.5; instances missing the value stay at
+ * the split node, whose prediction they get. A missing numeric value (NaN) sorts above every other value and goes to
+ * the greater than branch. On a sparse column, the exact split search only visits the stored entries of the rows at
+ * the node and accounts for all the implicit zeros at once.
  */
 public class ID3 {
 
-    private static ARFFReader mArffReader;
-    private static double mOverallEntropy = 0.0;
+    public static final int DEFAULT_MIN_INSTANCES = 2;
+
+    public static final int DEFAULT_MAX_DEPTH = Integer.MAX_VALUE;
+
+    private static final double INV_LN2 = 1.0 / Math.log(2.0);
 
     /**
-     * Given an array of entropies, returns the index with the minimum entropy
-     *
-     * @param data Array containing various entropies calculated for continuous attributes at identified candidate splits
-     * @return Index of element with minimum entropy
+     * A sparse column is searched through its stored entries at a node unless it has more than this many entries per
+     * row of the node, beyond which looking up the value of every row is cheaper
      */
-    private int findMinEntropyInstanceIndex(double[] data) {
+    private static final int SPARSE_SCAN_RATIO = 8;
 
-        double min = data[0];
-        int minIndex = 0;
+    private final int mMinInstances;
 
-        for (int i = 1; i < data.length; i++) {
-            if (data[i] < min) {
-                min = data[i];
-                minIndex = i;
-            }
-        }
-        return minIndex;
+    private final int mMaxDepth;
+
+    private final SplitCriterion mSplitCriterion;
+
+    private final TrainingListener mTrainingListener;
+
+    public ID3() {
+        this(DEFAULT_MIN_INSTANCES, DEFAULT_MAX_DEPTH);
     }
 
     /**
-     * Returns Information gain given the entropy
-     *
-     * @param entropy Entropy of the attribute
-     * @return Information Gain
+     * @param minInstances Nodes with fewer training instances than this become leaves
+     * @param maxDepth     Nodes at this depth become leaves, the root being at depth 0
+     */
+    public ID3(int minInstances, int maxDepth) {
+        this(minInstances, maxDepth, new InformationGainCriterion());
+    }
+
+    /**
+     * @param minInstances   Nodes with fewer training instances than this become leaves
+     * @param maxDepth       Nodes at this depth become leaves, the root being at depth 0
+     * @param splitCriterion Criterion used to score candidate splits
+     */
+    public ID3(int minInstances, int maxDepth, SplitCriterion splitCriterion) {
+        this(minInstances, maxDepth, splitCriterion, null);
+    }
+
+    /**
+     * @param minInstances     Nodes with fewer training instances than this become leaves
+     * @param maxDepth         Nodes at this depth become leaves, the root being at depth 0
+     * @param splitCriterion   Criterion used to score candidate splits
+     * @param trainingListener Thread safe listener notified of every node, attribute evaluation and tree, or null
      */
-    private double getInformationGain(double entropy) {
-        return mOverallEntropy - entropy;
+    public ID3(int minInstances, int maxDepth, SplitCriterion splitCriterion, TrainingListener trainingListener) {
+        this.mMinInstances = minInstances;
+        this.mMaxDepth = maxDepth;
+        this.mSplitCriterion = splitCriterion;
+        this.mTrainingListener = trainingListener;
     }
 
     /**
-     * Gets the entropy for the nominal attribute
-     * Identifies the number of values of the nominal attribute, loops over the instances to find the number of instances
-     * belonging to each value and calculates entropy.
+     * @return Listener notified of training events, or null
+     */
+    TrainingListener getTrainingListener() {
+        return mTrainingListener;
+    }
+
+    /**
+     * Gets the class conditional entropy for the nominal attribute
+     * With a criterion other than information gain, this is the class conditional impurity under that criterion.
      *
      * @param attribute Nominal ID3Attribute for which entropy is to be calculated
      * @param data      Data instances to be considered while calculating the entropy
+     * @param rows      Rows of the data instances to consider
      * @return Entropy
      */
-    private double getEntropyForNominalAttribute(ID3Attribute attribute, ArrayList<String[]> data) {
+    public double getEntropyForNominalAttribute(ID3Attribute attribute, ID3Dataset data, int[] rows) {
+        ID3Split split = getSplitForNominalAttribute(attribute, data, rows, 0, rows.length);
+        return split == null ? 0.0 : split.mEntropy;
+    }
 
-        int attributeCount = 0;
-        double entropy = 0.0;
+    /**
+     * Evaluates the multiway split on a nominal attribute
+     * Counts the classes of the instances having each value of the nominal attribute in one pass over its column
+     * of codes. The weighted impurity of every value is added up and the split is scored against the impurity of
+     * all the instances having a known value, which is obtained from the same histogram.
+     *
+     * @param attribute Nominal ID3Attribute to split on
+     * @param data      Data instances to be considered while calculating the entropy
+     * @param rows      Row index holding the rows of the data instances to consider
+     * @param from      First position of the rows in the row index
+     * @param to        Position after the last row
+     * @return Split on the attribute, or null if no instance has a known value
+     */
+    private ID3Split getSplitForNominalAttribute(ID3Attribute attribute, ID3Dataset data, int[] rows, int from,
+                                                int to) {
+        if (from == to) {
+            // No instance reaches this node, so there is nothing to split
+            if (TrainingLog.isEnabled(TrainingLog.DEBUG)) {
+                TrainingLog.log(TrainingLog.DEBUG, "Data instances list is of size 0 for attribute "
+                        + attribute.mAttributeName);
+            }
+            return null;
+        }
 
-        if (data.size() == 0) {
-            //TODO Decide how to handle this
-            System.out.println("Data instances list is of size 0 for attribute " + attribute.mAttributeName);
-        } else {
+        NominalColumn column = data.getNominalColumn(attribute.mAttributeOrdinal);
+        NominalColumn classColumn = data.getClassColumn();
+        int numberOfClasses = data.getID3Class().mNoOfClasses;
+        int numberOfValues = attribute.getNumberOfAttributeValues();
+        ID3Scratch scratch = ID3Scratch.get();
+        int[] attributeCount = scratch.getAtLeast(ID3Scratch.ATTRIBUTE_COUNT, numberOfValues);
+        int[] classCounts = scratch.getAtLeast(ID3Scratch.HISTOGRAM, numberOfValues * numberOfClasses);
+        ID3Kernels.get().countValueClasses(column, classColumn, rows, from, to, numberOfValues, numberOfClasses,
+                attributeCount, classCounts);
 
-            String attributeValues[] = attribute.mAttributeValues;
-            int attributeOrdinal = attribute.mAttributeOrdinal;
-            for (int i = 0; i < attribute.getNumberOfAttributeValues(); i++) {
-                attributeCount = 0;
-                for (int j = 0; j < data.size(); j++) {
-                    if (data.get(j)[attributeOrdinal].equalsIgnoreCase(attributeValues[i])) {
-                        attributeCount++;
-                    }
-                }
-                double pi = ((double) attributeCount / (double) data.size());
-                double logpi = log2(pi);
-                entropy = entropy + (-pi * logpi);
+        return getSplitForKnownValues(attribute, attributeCount, classCounts, numberOfClasses, to - from);
+    }
+
+    /**
+     * Evaluates the multiway split on a sparse nominal attribute from the stored entries of the rows at a node. The
+     * rows without a stored entry have the first value, so its counts are those of the node minus those of the
+     * stored entries.
+     *
+     * @param attribute       Nominal ID3Attribute to split on
+     * @param column          Sparse column of the attribute
+     * @param classColumn     Class column
+     * @param rowWeights      Number of times every row appears at the node
+     * @param nodeClassCounts Class counts of the node
+     * @param numInstances    Number of instances at the node
+     * @return Split on the attribute, or null if no instance has a known value
+     */
+    private ID3Split getSplitForSparseNominalAttribute(ID3Attribute attribute, SparseNominalColumn column,
+                                                       NominalColumn classColumn, int[] rowWeights,
+                                                       int[] nodeClassCounts, int numInstances) {
+        int numberOfClasses = nodeClassCounts.length;
+        int numberOfValues = attribute.getNumberOfAttributeValues();
+        ID3Scratch scratch = ID3Scratch.get();
+        int[] attributeCount = scratch.getAtLeast(ID3Scratch.ATTRIBUTE_COUNT, numberOfValues);
+        int[] classCounts = scratch.getAtLeast(ID3Scratch.HISTOGRAM, numberOfValues * numberOfClasses);
+        int[] storedCounts = scratch.getExact(ID3Scratch.LESS_THAN_COUNTS, numberOfClasses);
+        int[] storedRows = column.getRows();
+        NominalColumn storedCodes = column.getCodes();
+        int numStored = 0;
+        for (int i = 0; i < storedRows.length; i++) {
+            int weight = rowWeights[storedRows[i]];
+            if (weight == 0) {
+                continue;
+            }
+            int code = storedCodes.getCode(i);
+            int classCode = classColumn.getCode(storedRows[i]);
+            storedCounts[classCode] += weight;
+            numStored += weight;
+            if (code >= 0) {
+                attributeCount[code] += weight;
+                classCounts[code * numberOfClasses + classCode] += weight;
             }
         }
-        return entropy;
+        attributeCount[0] += numInstances - numStored;
+        for (int c = 0; c < numberOfClasses; c++) {
+            classCounts[c] += nodeClassCounts[c] - storedCounts[c];
+        }
+        return getSplitForKnownValues(attribute, attributeCount, classCounts, numberOfClasses, numInstances);
+    }
+
+    /**
+     * Scores the multiway split on a nominal attribute from the class histogram of the instances having a known
+     * value. When some instances miss the value, the score is multiplied by the share of instances having one, so an
+     * attribute is not favoured for being often missing.
+     *
+     * @param attribute       Nominal ID3Attribute to split on
+     * @param attributeCount  Number of instances having each value of the attribute
+     * @param classCounts     Class counts of the instances having each value, indexed by value * number of classes
+     *                        + class
+     * @param numberOfClasses Number of classes
+     * @param numInstances    Number of instances, including those missing the value
+     * @return Split on the attribute, or null if no instance has a known value
+     */
+    ID3Split getSplitForKnownValues(ID3Attribute attribute, int[] attributeCount, int[] classCounts,
+                                    int numberOfClasses, int numInstances) {
+        int numKnown = 0;
+        for (int i = 0; i < attribute.getNumberOfAttributeValues(); i++) {
+            numKnown += attributeCount[i];
+        }
+        if (numKnown == 0) {
+            return null;
+        }
+        ID3Split split = getSplitForNominalHistogram(attribute, attributeCount, classCounts, numberOfClasses,
+                numKnown);
+        if (numKnown < numInstances) {
+            split.mScore = split.mScore * numKnown / numInstances;
+        }
+        return split;
+    }
+
+    /**
+     * Scores the multiway split on a nominal attribute from its class histogram
+     *
+     * @param attribute       Nominal ID3Attribute to split on
+     * @param attributeCount  Number of instances having each value of the attribute
+     * @param classCounts     Class counts of the instances having each value, indexed by value * number of classes
+     *                        + class
+     * @param numberOfClasses Number of classes
+     * @param numInstances    Number of instances
+     * @return Split on the attribute
+     */
+    private ID3Split getSplitForNominalHistogram(ID3Attribute attribute, int[] attributeCount, int[] classCounts,
+                                                 int numberOfClasses, int numInstances) {
+        int numberOfValues = attribute.getNumberOfAttributeValues();
+        int[] totalCounts = ID3Scratch.get().getExact(ID3Scratch.TOTAL_COUNTS, numberOfClasses);
+        double childrenImpurity = 0.0;
+        for (int i = 0; i < numberOfValues; i++) {
+            int offset = i * numberOfClasses;
+            for (int c = 0; c < numberOfClasses; c++) {
+                totalCounts[c] += classCounts[offset + c];
+            }
+            childrenImpurity += mSplitCriterion.getWeightedImpurity(classCounts, offset, numberOfClasses,
+                    attributeCount[i]);
+        }
+        double parentImpurity = mSplitCriterion.getWeightedImpurity(totalCounts, 0, numberOfClasses, numInstances);
+        double score = mSplitCriterion.getScore(parentImpurity, childrenImpurity, numInstances, attributeCount,
+                numberOfValues);
+        return new ID3Split(attribute.mAttributeOrdinal, Double.NaN, childrenImpurity / numInstances, score);
     }
 
     /**
-     * Calculates the entropy for continuous attribute
-     * Loops over the data and identifies number of instances lesser than/equal to and greater than the split value
-     * Calculates entropy
+     * Calculates the class conditional entropy for a continuous attribute split at the given value
+     * Loops over the data and counts the classes of instances lesser than/equal to and greater than the split value
+     * Calculates the entropy of each side weighted by its share of the instances. With a criterion other than
+     * information gain, this is the class conditional impurity under that criterion.
      *
      * @param attribute      Continuous ID3Attribute for which entropy is to be calculated
      * @param attributeValue Value of attribute over which instances are to be split
      * @param data           Data instances to be considered while calculating the entropy
-     * @return Entropy
+     * @param rows           Rows of the data instances to consider
+     * @return Entropy, 0 if there are no rows
      */
-    private double getEntropyForContinuousAttribute(ID3Attribute attribute, double attributeValue, ArrayList<String[]> data) {
-        int attributeLessThanCount = 0;
-        int attributeGreaterThanCount = 0;
+    public double getEntropyForContinuousAttribute(ID3Attribute attribute, double attributeValue, ID3Dataset data,
+                                                   int[] rows) {
         double entropy = 0.0;
 
-        if (data.size() == 0) {
-            //TODO Decide how to handle this
-            System.out.println("Data instances list is of size 0 for attribute " + attribute.mAttributeName);
-        } else {
-            int attributeOrdinal = attribute.mAttributeOrdinal;
-            for (int i = 0; i < data.size(); i++) {
-                if (Double.parseDouble(data.get(i)[attributeOrdinal]) <= attributeValue) {
-                    attributeLessThanCount++;
-                } else {
-                    attributeGreaterThanCount++;
-                }
+        if (rows.length == 0) {
+            // No instance to split, which leaves no uncertainty
+            if (TrainingLog.isEnabled(TrainingLog.DEBUG)) {
+                TrainingLog.log(TrainingLog.DEBUG, "Data instances list is of size 0 for attribute "
+                        + attribute.mAttributeName);
             }
-            double p1 = (double) attributeLessThanCount / (double) data.size();
-            double p2 = (double) attributeGreaterThanCount / (double) data.size();
-            entropy = -(p1 * log2(p1)) - (p2 * log2(p2));
+        } else {
+            NumericColumn column = data.getNumericColumn(attribute.mAttributeOrdinal);
+            NominalColumn classColumn = data.getClassColumn();
+            int numberOfClasses = data.getID3Class().mNoOfClasses;
+            ID3Scratch scratch = ID3Scratch.get();
+            int[] lessThanCounts = scratch.getExact(ID3Scratch.LESS_THAN_COUNTS, numberOfClasses);
+            int[] greaterThanCounts = scratch.getExact(ID3Scratch.GREATER_THAN_COUNTS, numberOfClasses);
+            int attributeLessThanCount = ID3Kernels.get().countThresholdClasses(column, classColumn, rows, 0,
+                    rows.length, attributeValue, lessThanCounts, greaterThanCounts);
+            int attributeGreaterThanCount = rows.length - attributeLessThanCount;
+            entropy = (mSplitCriterion.getWeightedImpurity(lessThanCounts, 0, numberOfClasses, attributeLessThanCount)
+                    + mSplitCriterion.getWeightedImpurity(greaterThanCounts, 0, numberOfClasses,
+                    attributeGreaterThanCount)) / rows.length;
         }
         return entropy;
     }
 
     /**
      * Gets the best split value for the continuous attribute
-     * Extracts the required attribute value, ordinal and class label.
-     * Sorts the list by the value. Check for candidate splits by taking points where the class label changes.
-     * Store all the points of candidate splits in an array.
-     * Calculate entropy at each point and find the maximum information gain. Split and return the value on which you are splitting.
+     * Sorts the instances by the value of the attribute once, then sweeps over them in order while accumulating the
+     * class counts of the instances at or below the current value. Every point between two distinct values is a
+     * candidate split, and it is scored from the accumulated counts and the class counts of the whole node, so no
+     * candidate rescans the data.
      *
-     * @param attribute Continuous Attribute for which the candidate splits are to be avaluated.
+     * @param attribute Continuous Attribute for which the candidate splits are to be evaluated.
      * @param data      Data instances to be considered while calculating the entropy
-     * @return Value of the continuous attribute where the instances are to be split
+     * @param rows      Rows of the data instances to consider
+     * @return Split with the highest score, or null if all instances have the same value
      */
-    private double getBestSplitForContinuousAttribute(ID3Attribute attribute, ArrayList<String[]> data) {
-        if (data.size() == 0) {
-            //TODO Decide how to handle this
-            System.out.println("Data instances list is of size 0 for attribute " + attribute.mAttributeName);
-        } else {
-            /*
-
-             */
-            int attributeOrdinal = attribute.mAttributeOrdinal;
-
-            int[] candidateSplitPoints = new int[data.size()];
-            double[] entropy = new double[data.size()];
-            int noOfCandidateSplits = 0;
-            int bestCandidateSplitIndex = 0;
-            double informationGain = 0.0;
-
-            ArrayList<ID3ContinuousInstance> continuousInstancesList = new ArrayList<ID3ContinuousInstance>(data.size());
-            for (int i = 0; i < data.size(); i++) {
-                ID3ContinuousInstance id3ContinuousInstance = new ID3ContinuousInstance(i,
-                        Double.parseDouble(data.get(i)[attributeOrdinal]),
-                        data.get(i)[data.size() - 1]);
-                continuousInstancesList.add(id3ContinuousInstance);
-            }
-
-            Collections.sort(continuousInstancesList);
-
-            int k = 0;
-            for (int j = 0; j < continuousInstancesList.size() - 1; j++) {
-                //TODO Check condition for attributes with same value but different class labels
-                if (!continuousInstancesList.get(j).mInstanceLabel.equalsIgnoreCase(continuousInstancesList.get(j + 1).mInstanceLabel)) {
-                    candidateSplitPoints[k++] = j;
-                    System.out.println("###############################################################");
-                    System.out.println("Candidate split identified at index " + j + " and index " + j + 1);
-                    System.out.println("Class at index " + j + " : " + continuousInstancesList.get(j).mInstanceLabel);
-                    System.out.println("Class at index " + j + 1 + " : " + continuousInstancesList.get(j + 1).mInstanceLabel);
-                    System.out.println("###############################################################");
-                }
+    public ID3Split getBestSplitForContinuousAttribute(ID3Attribute attribute, ID3Dataset data, int[] rows) {
+        return getBestSplitForContinuousAttribute(attribute, data, rows, 0, rows.length);
+    }
+
+    /**
+     * Gets the best split value for the continuous attribute over a range of a row index.
+     * The values are sorted as primitive keys along with their class codes by ID3Sort. Instances whose value is NaN
+     * sort last and are never split between; they go to the greater than branch like in partition and prediction.
+     *
+     * @param attribute Continuous Attribute for which the candidate splits are to be evaluated.
+     * @param data      Data instances to be considered while calculating the entropy
+     * @param rows      Row index holding the rows of the data instances to consider
+     * @param from      First position of the rows in the row index
+     * @param to        Position after the last row
+     * @return Split with the highest score, or null if all instances have the same value
+     */
+    ID3Split getBestSplitForContinuousAttribute(ID3Attribute attribute, ID3Dataset data, int[] rows, int from,
+                                                int to) {
+        if (from == to) {
+            // No instance reaches this node, so there is nothing to split
+            if (TrainingLog.isEnabled(TrainingLog.DEBUG)) {
+                TrainingLog.log(TrainingLog.DEBUG, "Data instances list is of size 0 for attribute "
+                        + attribute.mAttributeName);
             }
-            noOfCandidateSplits = k;
+            return null;
+        }
 
-            for (k = 0; k < noOfCandidateSplits; k++) {
-                entropy[k] = getEntropyForContinuousAttribute(attribute,
-                        continuousInstancesList.get(candidateSplitPoints[k]).mInstanceValue, data);
-                System.out.println("Entropy for candidate split at index " + k + " : " + entropy[k]);
+        NumericColumn column = data.getNumericColumn(attribute.mAttributeOrdinal);
+        NominalColumn classColumn = data.getClassColumn();
+        int numberOfClasses = data.getID3Class().mNoOfClasses;
+        int numInstances = to - from;
+
+        ID3Scratch scratch = ID3Scratch.get();
+        long[] keys = scratch.getLongBuffer(ID3Scratch.SORT_KEYS, numInstances);
+        int[] classes = scratch.getBuffer(ID3Scratch.SORT_CLASSES, numInstances);
+        int[] totalCounts = scratch.getExact(ID3Scratch.TOTAL_COUNTS, numberOfClasses);
+        for (int i = 0; i < numInstances; i++) {
+            int row = rows[from + i];
+            keys[i] = ID3Sort.toKey(column.getValue(row));
+            classes[i] = classColumn.getCode(row);
+            totalCounts[classes[i]]++;
+        }
+
+        ID3Sort.sort(keys, classes, numInstances, scratch.getLongBuffer(ID3Scratch.SORT_KEY_BUFFER, numInstances),
+                scratch.getBuffer(ID3Scratch.SORT_CLASS_BUFFER, numInstances),
+                scratch.getAtLeast(ID3Scratch.RADIX_COUNTS, ID3Sort.NUM_PASSES * ID3Sort.RADIX));
+        return getBestSplitForSortedValues(attribute.mAttributeOrdinal, keys, classes, numInstances, 0, null, 0,
+                totalCounts, numInstances);
+    }
+
+    /**
+     * Gets the best split value for a sparse continuous attribute from the stored entries of the rows at a node.
+     * Only the stored values are sorted; the rows without a stored entry are all 0 and are swept as a single block
+     * whose class counts are those of the node minus those of the stored entries.
+     *
+     * @param attribute       Continuous Attribute for which the candidate splits are to be evaluated.
+     * @param column          Sparse column of the attribute
+     * @param classColumn     Class column
+     * @param rowWeights      Number of times every row appears at the node
+     * @param nodeClassCounts Class counts of the node
+     * @param numInstances    Number of instances at the node
+     * @return Split with the highest score, or null if all instances have the same value
+     */
+    private ID3Split getBestSplitForSparseAttribute(ID3Attribute attribute, SparseNumericColumn column,
+                                                    NominalColumn classColumn, int[] rowWeights,
+                                                    int[] nodeClassCounts, int numInstances) {
+        int numberOfClasses = nodeClassCounts.length;
+        int[] storedRows = column.getRows();
+        double[] storedValues = column.getValues();
+        ID3Scratch scratch = ID3Scratch.get();
+        long[] keys = scratch.getLongBuffer(ID3Scratch.SORT_KEYS, numInstances);
+        int[] classes = scratch.getBuffer(ID3Scratch.SORT_CLASSES, numInstances);
+        int[] zeroCounts = scratch.getExact(ID3Scratch.TOTAL_COUNTS, numberOfClasses);
+        System.arraycopy(nodeClassCounts, 0, zeroCounts, 0, numberOfClasses);
+        int numKeys = 0;
+        for (int i = 0; i < storedRows.length; i++) {
+            int weight = rowWeights[storedRows[i]];
+            if (weight == 0) {
+                continue;
             }
+            long key = ID3Sort.toKey(storedValues[i]);
+            int classCode = classColumn.getCode(storedRows[i]);
+            zeroCounts[classCode] -= weight;
+            for (int w = 0; w < weight; w++) {
+                keys[numKeys] = key;
+                classes[numKeys++] = classCode;
+            }
+        }
 
-            bestCandidateSplitIndex = findMinEntropyInstanceIndex(entropy);
+        ID3Sort.sort(keys, classes, numKeys, scratch.getLongBuffer(ID3Scratch.SORT_KEY_BUFFER, numKeys),
+                scratch.getBuffer(ID3Scratch.SORT_CLASS_BUFFER, numKeys),
+                scratch.getAtLeast(ID3Scratch.RADIX_COUNTS, ID3Sort.NUM_PASSES * ID3Sort.RADIX));
+        int zeroPosition = 0;
+        while (zeroPosition < numKeys && ID3Sort.toValue(keys[zeroPosition]) < 0.0) {
+            zeroPosition++;
+        }
+        return getBestSplitForSortedValues(attribute.mAttributeOrdinal, keys, classes, numKeys, zeroPosition,
+                zeroCounts, numInstances - numKeys, nodeClassCounts, numInstances);
+    }
 
-            if (bestCandidateSplitIndex != -1) {
-                System.out.println("Min entropy found at index : " + bestCandidateSplitIndex);
-                informationGain = mOverallEntropy - entropy[bestCandidateSplitIndex];
-                if (informationGain < 0) {
-                    //TODO Decide how to handle this
-                } else {
-                    System.out.println("Value of attribute after which we split : " + continuousInstancesList.get(bestCandidateSplitIndex).mInstanceValue);
-                    double splitValue = (continuousInstancesList.get(bestCandidateSplitIndex).mInstanceValue +
-                            continuousInstancesList.get(bestCandidateSplitIndex + 1).mInstanceValue) / 2.0;
-                    System.out.println("Split value : " + splitValue);
-                    return splitValue;
+    /**
+     * Sweeps over sorted values in order while accumulating the class counts of the instances at or below the current
+     * value, and scores every point between two distinct values as a candidate split. A block of instances all having
+     * the value 0 may be inserted into the order without being listed one by one.
+     *
+     * @param attributeOrdinal Ordinal of the continuous attribute to split on
+     * @param keys             Sort keys of the values, in increasing order with NaN keys last
+     * @param classes          Class code of every key
+     * @param numKeys          Number of keys
+     * @param zeroPosition     Number of keys below the block of zeros
+     * @param zeroCounts       Class counts of the block of zeros, or null if there is none
+     * @param zeroTotal        Number of instances in the block of zeros
+     * @param totalCounts      Class counts of all the instances
+     * @param numInstances     Number of instances, keys and block together
+     * @return Split with the highest score, or null if all instances have the same value
+     */
+    private ID3Split getBestSplitForSortedValues(int attributeOrdinal, long[] keys, int[] classes, int numKeys,
+                                                 int zeroPosition, int[] zeroCounts, int zeroTotal,
+                                                 int[] totalCounts, int numInstances) {
+        int numberOfClasses = totalCounts.length;
+        int numValues = numKeys;
+        while (numValues > 0 && keys[numValues - 1] == ID3Sort.NAN_KEY) {
+            numValues--;
+        }
+        boolean zeroPending = zeroTotal > 0;
+
+        ID3Scratch scratch = ID3Scratch.get();
+        double parentImpurity = mSplitCriterion.getWeightedImpurity(totalCounts, 0, numberOfClasses, numInstances);
+        int[] lessThanCounts = scratch.getExact(ID3Scratch.LESS_THAN_COUNTS, numberOfClasses);
+        int[] greaterThanCounts = scratch.getExact(ID3Scratch.GREATER_THAN_COUNTS, numberOfClasses);
+        int[] branchTotals = scratch.getExact(ID3Scratch.BRANCH_TOTALS, 2);
+        double bestScore = Double.NEGATIVE_INFINITY;
+        double bestImpurity = 0.0;
+        double bestSplitValue = 0.0;
+        int numCandidates = 0;
+        int lessThanTotal = 0;
+        double previous = 0.0;
+        int j = 0;
+        while (j < numValues || zeroPending) {
+            boolean zeroBlock = zeroPending && (j == zeroPosition || j == numValues);
+            double current = zeroBlock ? 0.0 : ID3Sort.toValue(keys[j]);
+            if (lessThanTotal > 0 && previous != current) {
+                numCandidates++;
+                branchTotals[0] = lessThanTotal;
+                branchTotals[1] = numInstances - lessThanTotal;
+                for (int c = 0; c < numberOfClasses; c++) {
+                    greaterThanCounts[c] = totalCounts[c] - lessThanCounts[c];
                 }
+                double childrenImpurity = mSplitCriterion.getWeightedImpurity(lessThanCounts, 0, numberOfClasses,
+                        branchTotals[0])
+                        + mSplitCriterion.getWeightedImpurity(greaterThanCounts, 0, numberOfClasses,
+                        branchTotals[1]);
+                double score = mSplitCriterion.getScore(parentImpurity, childrenImpurity, numInstances, branchTotals,
+                        2);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestImpurity = childrenImpurity;
+                    bestSplitValue = ID3Binning.getSplitValue(previous, current);
+                }
+            }
+            if (zeroBlock) {
+                for (int c = 0; c < numberOfClasses; c++) {
+                    lessThanCounts[c] += zeroCounts[c];
+                }
+                lessThanTotal += zeroTotal;
+                zeroPending = false;
+            } else {
+                lessThanCounts[classes[j]]++;
+                lessThanTotal++;
+                j++;
             }
+            previous = current;
+        }
 
+        if (bestScore == Double.NEGATIVE_INFINITY) {
+            return null;
         }
+        return new ID3Split(attributeOrdinal, bestSplitValue, bestImpurity / numInstances, bestScore,
+                numCandidates);
+    }
 
-        return 0.0;
+    /**
+     * Calculates the entropy of a class distribution
+     *
+     * @param classCounts Number of instances of each class
+     * @param total       Total number of instances
+     * @return Entropy, 0 for an empty distribution
+     */
+    static double getEntropy(int[] classCounts, int total) {
+        if (total == 0) {
+            return 0.0;
+        }
+        return NLogNTable.getWeightedEntropy(classCounts, 0, classCounts.length, total) / total;
     }
 
     /**
@@ -201,25 +504,590 @@ public class ID3 {
      * @param data     Data instances in the file
      * @return Entropy
      */
-    private static double getOverallEntropy(ID3Class id3Class, ArrayList<String[]> data) {
-        int numberOfClassLabels = id3Class.mNoOfClasses;
-        double entropy = 0.0;
+    public static double getOverallEntropy(ID3Class id3Class, ID3Dataset data) {
+        int totalInstances = data.getNumInstances();
+        int[] classCount = new int[id3Class.mNoOfClasses];
+        ID3Kernels.get().countCodes(data.getClassColumn(), totalInstances, classCount);
+        return getEntropy(classCount, totalInstances);
+    }
+
+    /**
+     * Counts the number of instances of each class in a range of a row index
+     *
+     * @param data        Data instances
+     * @param rows        Row index
+     * @param from        First position of the rows in the row index
+     * @param to          Position after the last row
+     * @param classCounts Zeroed array receiving the counts, one entry per class
+     * @return classCounts
+     */
+    static int[] getClassCounts(ID3Dataset data, int[] rows, int from, int to, int[] classCounts) {
+        ID3Kernels.get().countCodes(data.getClassColumn(), rows, from, to, classCounts);
+        return classCounts;
+    }
+
+    /**
+     * Returns the class with the most instances. Ties go to the class listed first in the header.
+     *
+     * @param classCounts       Number of instances of each class
+     * @param defaultPrediction Class returned when there are no instances
+     * @return Majority class code
+     */
+    static int getMajorityClass(int[] classCounts, int defaultPrediction) {
+        int majorityClass = defaultPrediction;
+        int majorityCount = 0;
+        for (int i = 0; i < classCounts.length; i++) {
+            if (classCounts[i] > majorityCount) {
+                majorityCount = classCounts[i];
+                majorityClass = i;
+            }
+        }
+        return majorityClass;
+    }
+
+    /**
+     * Builds a decision tree from all instances of the dataset
+     *
+     * @param data Training data
+     * @return Trained decision tree
+     */
+    public ID3Tree buildTree(ID3Dataset data) {
+        int[] rows = new int[data.getNumInstances()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        return buildTree(data, rows, null);
+    }
+
+    /**
+     * Builds a decision tree from the rows of a row index, which may repeat a row to weigh it, such as a bootstrap
+     * sample
+     *
+     * @param data    Training data
+     * @param rows    Row index, partitioned in place while the tree is grown
+     * @param sampler Sampler drawing the attributes evaluated at each node, or null to evaluate all of them
+     * @return Trained decision tree
+     */
+    ID3Tree buildTree(ID3Dataset data, int[] rows, ID3AttributeSampler sampler) {
+        long startNanos = System.nanoTime();
+        NLogNTable.ensureCapacity(rows.length);
+        ID3Tree tree = new ID3Tree(data.getAttributeList(), data.getID3Class());
+        int root = tree.addNodes(1);
+        buildNode(tree, root, data, rows, 0, rows.length, 0, 0, sampler);
+        tree.trimToSize();
+        if (mTrainingListener != null) {
+            mTrainingListener.treeBuilt(tree.getNumNodes(), System.nanoTime() - startNanos);
+        }
+        return tree;
+    }
+
+    /**
+     * Grows the subtree rooted at a node.
+     * The node becomes a leaf if its instances all belong to one class, if it has fewer than mMinInstances instances,
+     * if it is at mMaxDepth, or if no attribute scores above SplitCriterion.MIN_SCORE. Otherwise it is split on the
+     * attribute with the highest score under the split criterion (the first one in attribute order on ties), its rows
+     * are partitioned in place into one range per child, its children are appended to the tree contiguously and each
+     * child subtree is grown in turn.
+     *
+     * @param tree             Tree being built
+     * @param node             Index of the node to grow
+     * @param data             Training data
+     * @param rows             Row index shared by the whole tree
+     * @param from             First position of the rows of the node in the row index
+     * @param to               Position after the last row of the node
+     * @param depth            Depth of the node
+     * @param parentPrediction Class predicted by the parent, used when no instance reaches the node
+     * @param sampler          Sampler drawing the attributes evaluated at each node, or null to evaluate all of them
+     */
+    void buildNode(ID3Tree tree, int node, ID3Dataset data, int[] rows, int from, int to, int depth,
+                   int parentPrediction, ID3AttributeSampler sampler) {
+        if (mTrainingListener != null) {
+            mTrainingListener.nodeBuilt(depth, to - from);
+        }
+        ID3Scratch scratch = ID3Scratch.get();
+        int[] classCounts = getClassCounts(data, rows, from, to,
+                scratch.getExact(ID3Scratch.CLASS_COUNTS, data.getID3Class().mNoOfClasses));
+        int prediction = getMajorityClass(classCounts, parentPrediction);
+        tree.setClassCounts(node, classCounts, prediction);
+
+        if (isStoppingNode(to - from, depth, classCounts, prediction)) {
+            return;
+        }
+
+        ID3Split bestSplit = findBestSplit(data, rows, from, to, sampler, classCounts);
+        if (bestSplit == null) {
+            return;
+        }
 
-        //TODO - Check again for accuracy
-        int totalInstances = data.size();
-        for (int i = 0; i < numberOfClassLabels; i++) {
-            int classCount = 0;
-            String classLabel = id3Class.mClassLabels[i];
-            for (int j = 0; j < data.size(); j++) {
-                if (data.get(j)[data.get(j).length - 1].equalsIgnoreCase(classLabel)) {
-                    classCount++;
+        int numberOfBranches = getNumberOfBranches(data, bestSplit);
+        int[] branchStarts = scratch.getBranchStarts(depth, numberOfBranches + 2);
+        partition(data, rows, from, to, bestSplit, branchStarts, scratch.getBranchNext(depth, numberOfBranches + 1));
+        int firstChild = tree.addNodes(numberOfBranches);
+        tree.setSplit(node, bestSplit.mAttributeOrdinal, bestSplit.mSplitValue, firstChild);
+        for (int b = 0; b < numberOfBranches; b++) {
+            buildNode(tree, firstChild + b, data, rows, branchStarts[b], branchStarts[b + 1], depth + 1, prediction,
+                    sampler);
+        }
+    }
+
+    /**
+     * Builds a decision tree from all instances of the dataset, searching numeric splits over the bins of a
+     * quantile binning instead of over every distinct value.
+     * Each node keeps one class histogram per bin of every numeric attribute. The histograms of all children but the
+     * largest are counted from their rows, and those of the largest child are obtained by subtracting its siblings
+     * from the parent, so the split search of a numeric attribute costs O(bins) per node.
+     *
+     * @param data    Training data
+     * @param binning Binning of the numeric attributes of the training data
+     * @return Trained decision tree
+     */
+    public ID3Tree buildTree(ID3Dataset data, ID3Binning binning) {
+        int[] rows = new int[data.getNumInstances()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        return buildTree(data, binning, rows);
+    }
+
+    /**
+     * Builds a decision tree from the rows of a row index like buildTree(ID3Dataset, ID3Binning). The binning may
+     * have been computed over more rows than the index holds, such as all the folds of a cross-validation.
+     *
+     * @param data    Training data
+     * @param binning Binning of the numeric attributes of the data
+     * @param rows    Row index, partitioned in place while the tree is grown
+     * @return Trained decision tree
+     */
+    ID3Tree buildTree(ID3Dataset data, ID3Binning binning, int[] rows) {
+        long startNanos = System.nanoTime();
+        NLogNTable.ensureCapacity(data.getNumInstances());
+        ID3Tree tree = new ID3Tree(data.getAttributeList(), data.getID3Class());
+        int root = tree.addNodes(1);
+        int[][] histograms = ID3Scratch.get().getHistograms(0, 0, data.getNumAttributes());
+        buildBinnedNode(tree, root, data, binning, rows, 0, rows.length,
+                getBinnedHistograms(data, binning, rows, 0, rows.length, histograms), 0, 0);
+        tree.trimToSize();
+        if (mTrainingListener != null) {
+            mTrainingListener.treeBuilt(tree.getNumNodes(), System.nanoTime() - startNanos);
+        }
+        return tree;
+    }
+
+    /**
+     * Grows the subtree rooted at a node like buildNode, with numeric attributes evaluated from bin histograms.
+     * The largest child takes over the histograms of the node, from which those of its siblings are subtracted. The
+     * siblings count theirs into the per-thread histogram sets of their depth, so no histogram is allocated once the
+     * sets have grown to the shape of the data.
+     *
+     * @param tree             Tree being built
+     * @param node             Index of the node to grow
+     * @param data             Training data
+     * @param binning          Binning of the numeric attributes
+     * @param rows             Row index shared by the whole tree
+     * @param from             First position of the rows of the node in the row index
+     * @param to               Position after the last row of the node
+     * @param histograms       Bin class histograms of the rows, indexed by attribute ordinal
+     * @param depth            Depth of the node
+     * @param parentPrediction Class predicted by the parent, used when no instance reaches the node
+     */
+    private void buildBinnedNode(ID3Tree tree, int node, ID3Dataset data, ID3Binning binning, int[] rows, int from,
+                                 int to, int[][] histograms, int depth, int parentPrediction) {
+        int numRows = to - from;
+        if (mTrainingListener != null) {
+            mTrainingListener.nodeBuilt(depth, numRows);
+        }
+        ID3Scratch scratch = ID3Scratch.get();
+        int[] classCounts = getClassCounts(data, rows, from, to,
+                scratch.getExact(ID3Scratch.CLASS_COUNTS, data.getID3Class().mNoOfClasses));
+        int prediction = getMajorityClass(classCounts, parentPrediction);
+        tree.setClassCounts(node, classCounts, prediction);
+
+        if (isStoppingNode(numRows, depth, classCounts, prediction)) {
+            return;
+        }
+
+        ArrayList<ID3Attribute> attributeList = data.getAttributeList();
+        ID3Split[] splits = scratch.getSplits(attributeList.size());
+        for (int i = 0; i < attributeList.size(); i++) {
+            ID3Attribute attribute = attributeList.get(i);
+            long startNanos = mTrainingListener != null ? System.nanoTime() : 0L;
+            if (attribute.mAttributeType == ID3Attribute.NUMERIC) {
+                splits[i] = getBestSplitForHistogram(attribute.mAttributeOrdinal,
+                        histograms[attribute.mAttributeOrdinal], binning.getSplitValues(attribute.mAttributeOrdinal),
+                        classCounts, numRows);
+            } else {
+                splits[i] = getSplitForNominalAttribute(attribute, data, rows, from, to);
+            }
+            if (mTrainingListener != null) {
+                mTrainingListener.attributeEvaluated(attribute, numRows,
+                        splits[i] == null ? 0 : splits[i].mNumCandidates, System.nanoTime() - startNanos);
+            }
+        }
+        ID3Split bestSplit = chooseBestSplit(splits);
+        if (bestSplit == null) {
+            return;
+        }
+
+        int numberOfBranches = getNumberOfBranches(data, bestSplit);
+        int[] branchStarts = scratch.getBranchStarts(depth, numberOfBranches + 2);
+        partition(data, rows, from, to, bestSplit, branchStarts, scratch.getBranchNext(depth, numberOfBranches + 1));
+        int numAttributes = data.getNumAttributes();
+        if (branchStarts[numberOfBranches] < to) {
+            // Rows missing the value of a nominal split stay at this node and are taken out of the parent histograms
+            subtractHistograms(histograms, getBinnedHistograms(data, binning, rows, branchStarts[numberOfBranches],
+                    to, scratch.getHistograms(depth + 1, numberOfBranches, numAttributes)));
+        }
+        int largestChild = 0;
+        for (int i = 1; i < numberOfBranches; i++) {
+            if (branchStarts[i + 1] - branchStarts[i] > branchStarts[largestChild + 1] - branchStarts[largestChild]) {
+                largestChild = i;
+            }
+        }
+        for (int i = 0; i < numberOfBranches; i++) {
+            if (i != largestChild) {
+                subtractHistograms(histograms, getBinnedHistograms(data, binning, rows, branchStarts[i],
+                        branchStarts[i + 1], scratch.getHistograms(depth + 1, i, numAttributes)));
+            }
+        }
+
+        int firstChild = tree.addNodes(numberOfBranches);
+        tree.setSplit(node, bestSplit.mAttributeOrdinal, bestSplit.mSplitValue, firstChild);
+        for (int i = 0; i < numberOfBranches; i++) {
+            int[][] childHistograms = i == largestChild ? histograms
+                    : scratch.getHistograms(depth + 1, i, numAttributes);
+            buildBinnedNode(tree, firstChild + i, data, binning, rows, branchStarts[i], branchStarts[i + 1],
+                    childHistograms, depth + 1, prediction);
+        }
+    }
+
+    /**
+     * Subtracts the bin histograms of some rows from those of a larger set of rows holding them
+     *
+     * @param histograms Histograms to subtract from, indexed by attribute ordinal
+     * @param subset     Histograms of the rows to take out
+     */
+    private static void subtractHistograms(int[][] histograms, int[][] subset) {
+        for (int a = 0; a < histograms.length; a++) {
+            if (histograms[a] != null) {
+                for (int j = 0; j < histograms[a].length; j++) {
+                    histograms[a][j] -= subset[a][j];
                 }
             }
-            double pi = ((double) classCount / (double) totalInstances);
-            double logpi = log2(pi);
-            entropy = entropy + (-pi * logpi);
         }
-        return entropy;
+    }
+
+    /**
+     * Counts the classes of the given rows in every bin of every numeric attribute
+     *
+     * @param data       Training data
+     * @param binning    Binning of the numeric attributes
+     * @param rows       Row index
+     * @param from       First position of the rows to count in the row index
+     * @param to         Position after the last row to count
+     * @param histograms Receives the histogram of each numeric attribute, indexed by bin * number of classes + class,
+     *                   and null for nominal attributes. Histograms of the right length are reused.
+     * @return histograms
+     */
+    private static int[][] getBinnedHistograms(ID3Dataset data, ID3Binning binning, int[] rows, int from, int to,
+                                               int[][] histograms) {
+        int numberOfClasses = data.getID3Class().mNoOfClasses;
+        NominalColumn classColumn = data.getClassColumn();
+        int[] rowClasses = ID3Scratch.get().getAtLeast(ID3Scratch.ROW_CLASSES, to - from);
+        for (int i = from; i < to; i++) {
+            rowClasses[i - from] = classColumn.getCode(rows[i]);
+        }
+
+        for (int a = 0; a < histograms.length; a++) {
+            if (binning.getNumBins(a) > 0) {
+                int length = binning.getNumBins(a) * numberOfClasses;
+                int[] histogram = histograms[a];
+                if (histogram == null || histogram.length != length) {
+                    histogram = new int[length];
+                } else {
+                    Arrays.fill(histogram, 0);
+                }
+                ID3Kernels.get().countBinClasses(binning.getBinCodes(a), rows, from, to, rowClasses,
+                        binning.getNumBins(a), numberOfClasses, histogram);
+                histograms[a] = histogram;
+            } else {
+                histograms[a] = null;
+            }
+        }
+        return histograms;
+    }
+
+    /**
+     * Gets the best split value for a binned continuous attribute
+     * Sweeps over the bins in order while accumulating the class counts of the bins at or below the current one, and
+     * scores a candidate split after every non empty bin.
+     *
+     * @param attributeOrdinal Ordinal of the continuous attribute to split on
+     * @param histogram        Class histogram of the attribute's bins at the node
+     * @param splitValues      Threshold separating each bin from the next one
+     * @param classCounts      Class counts at the node
+     * @param numInstances     Number of instances at the node
+     * @return Split with the highest score, or null if all instances fall in one bin
+     */
+    ID3Split getBestSplitForHistogram(int attributeOrdinal, int[] histogram, double[] splitValues, int[] classCounts,
+                                      int numInstances) {
+        int numberOfClasses = classCounts.length;
+        int numberOfBins = splitValues.length + 1;
+        double parentImpurity = mSplitCriterion.getWeightedImpurity(classCounts, 0, numberOfClasses, numInstances);
+        ID3Scratch scratch = ID3Scratch.get();
+        int[] lessThanCounts = scratch.getExact(ID3Scratch.LESS_THAN_COUNTS, numberOfClasses);
+        int[] greaterThanCounts = scratch.getExact(ID3Scratch.GREATER_THAN_COUNTS, numberOfClasses);
+        int[] branchTotals = scratch.getExact(ID3Scratch.BRANCH_TOTALS, 2);
+        double bestScore = Double.NEGATIVE_INFINITY;
+        double bestImpurity = 0.0;
+        int bestBin = -1;
+        int numCandidates = 0;
+        int lessThanTotal = 0;
+        for (int b = 0; b < numberOfBins - 1; b++) {
+            int binTotal = 0;
+            for (int c = 0; c < numberOfClasses; c++) {
+                lessThanCounts[c] += histogram[b * numberOfClasses + c];
+                binTotal += histogram[b * numberOfClasses + c];
+            }
+            lessThanTotal += binTotal;
+            if (lessThanTotal == numInstances) {
+                break;
+            }
+            if (binTotal == 0 || lessThanTotal == 0) {
+                continue;
+            }
+            numCandidates++;
+            branchTotals[0] = lessThanTotal;
+            branchTotals[1] = numInstances - lessThanTotal;
+            for (int c = 0; c < numberOfClasses; c++) {
+                greaterThanCounts[c] = classCounts[c] - lessThanCounts[c];
+            }
+            double childrenImpurity = mSplitCriterion.getWeightedImpurity(lessThanCounts, 0, numberOfClasses,
+                    branchTotals[0])
+                    + mSplitCriterion.getWeightedImpurity(greaterThanCounts, 0, numberOfClasses, branchTotals[1]);
+            double score = mSplitCriterion.getScore(parentImpurity, childrenImpurity, numInstances, branchTotals, 2);
+            if (score > bestScore) {
+                bestScore = score;
+                bestImpurity = childrenImpurity;
+                bestBin = b;
+            }
+        }
+
+        if (bestBin == -1) {
+            return null;
+        }
+        return new ID3Split(attributeOrdinal, splitValues[bestBin], bestImpurity / numInstances, bestScore,
+                numCandidates);
+    }
+
+    /**
+     * Checks the stopping rules for a node
+     *
+     * @param numRows     Number of training instances at the node
+     * @param depth       Depth of the node
+     * @param classCounts Number of instances of each class at the node
+     * @param prediction  Majority class of the node
+     * @return True if the node must be a leaf
+     */
+    boolean isStoppingNode(int numRows, int depth, int[] classCounts, int prediction) {
+        return numRows == 0 || numRows < mMinInstances || depth >= mMaxDepth || classCounts[prediction] == numRows;
+    }
+
+    /**
+     * Evaluates every attribute, or the attributes drawn by the sampler, on the given rows and returns the split with
+     * the highest score. If the data has sparse columns, the number of times every row appears at the node is
+     * recorded first so that sparse columns can be searched through their stored entries.
+     *
+     * @param data        Training data
+     * @param rows        Row index
+     * @param from        First position of the rows to split in the row index
+     * @param to          Position after the last row to split
+     * @param sampler     Sampler drawing the attributes to evaluate, or null to evaluate all of them
+     * @param classCounts Class counts of the rows
+     * @return Best split, or null if no split scores above SplitCriterion.MIN_SCORE
+     */
+    private ID3Split findBestSplit(ID3Dataset data, int[] rows, int from, int to, ID3AttributeSampler sampler,
+                                   int[] classCounts) {
+        ArrayList<ID3Attribute> attributeList = data.getAttributeList();
+        ID3Scratch scratch = ID3Scratch.get();
+        ID3Split[] splits = scratch.getSplits(attributeList.size());
+        int[] rowWeights = null;
+        if (data.hasSparseColumns()) {
+            rowWeights = scratch.getBuffer(ID3Scratch.ROW_WEIGHTS, data.getNumInstances());
+            for (int i = from; i < to; i++) {
+                rowWeights[rows[i]]++;
+            }
+        }
+        try {
+            if (sampler == null) {
+                for (int i = 0; i < attributeList.size(); i++) {
+                    splits[i] = evaluateAttribute(attributeList.get(i), data, rows, from, to, classCounts,
+                            rowWeights);
+                }
+            } else {
+                Arrays.fill(splits, null);
+                int[] ordinals = sampler.sample();
+                for (int i = 0; i < sampler.getAttributesPerNode(); i++) {
+                    splits[ordinals[i]] = evaluateAttribute(attributeList.get(ordinals[i]), data, rows, from, to,
+                            classCounts, rowWeights);
+                }
+            }
+        } finally {
+            if (rowWeights != null) {
+                for (int i = from; i < to; i++) {
+                    rowWeights[rows[i]] = 0;
+                }
+            }
+        }
+        return chooseBestSplit(splits);
+    }
+
+    /**
+     * Finds the best split of the given rows on one attribute. A sparse column with few stored entries for the
+     * number of rows is searched through its stored entries when the weights of the rows are known.
+     *
+     * @param attribute   Attribute to evaluate
+     * @param data        Training data
+     * @param rows        Row index
+     * @param from        First position of the rows to split in the row index
+     * @param to          Position after the last row to split
+     * @param classCounts Class counts of the rows, or null
+     * @param rowWeights  Number of times every row of the dataset appears in the range, or null
+     * @return Split on the attribute, or null if the attribute cannot split the rows
+     */
+    ID3Split evaluateAttribute(ID3Attribute attribute, ID3Dataset data, int[] rows, int from, int to,
+                               int[] classCounts, int[] rowWeights) {
+        long startNanos = mTrainingListener != null ? System.nanoTime() : 0L;
+        int ordinal = attribute.mAttributeOrdinal;
+        long maxStored = (long) SPARSE_SCAN_RATIO * (to - from);
+        ID3Split split;
+        if (attribute.mAttributeType == ID3Attribute.NUMERIC) {
+            NumericColumn column = data.getNumericColumn(ordinal);
+            if (rowWeights != null && column instanceof SparseNumericColumn
+                    && ((SparseNumericColumn) column).getNumNonZeros() <= maxStored) {
+                split = getBestSplitForSparseAttribute(attribute, (SparseNumericColumn) column,
+                        data.getClassColumn(), rowWeights, classCounts, to - from);
+            } else {
+                split = getBestSplitForContinuousAttribute(attribute, data, rows, from, to);
+            }
+        } else {
+            NominalColumn column = data.getNominalColumn(ordinal);
+            if (rowWeights != null && column instanceof SparseNominalColumn
+                    && ((SparseNominalColumn) column).getNumNonZeros() <= maxStored) {
+                split = getSplitForSparseNominalAttribute(attribute, (SparseNominalColumn) column,
+                        data.getClassColumn(), rowWeights, classCounts, to - from);
+            } else {
+                split = getSplitForNominalAttribute(attribute, data, rows, from, to);
+            }
+        }
+        if (mTrainingListener != null) {
+            mTrainingListener.attributeEvaluated(attribute, to - from, split == null ? 0 : split.mNumCandidates,
+                    System.nanoTime() - startNanos);
+        }
+        return split;
+    }
+
+    /**
+     * Picks the split with the highest score. Ties go to the split that comes first, so the result does not depend
+     * on the order in which the splits were evaluated.
+     *
+     * @param splits Split of each attribute, in attribute order, null where an attribute cannot split
+     * @return Best split, or null if no split scores above SplitCriterion.MIN_SCORE
+     */
+    ID3Split chooseBestSplit(ID3Split[] splits) {
+        ID3Split bestSplit = null;
+        double bestScore = SplitCriterion.MIN_SCORE;
+        for (int i = 0; i < splits.length; i++) {
+            if (splits[i] != null && splits[i].mScore > bestScore) {
+                bestScore = splits[i].mScore;
+                bestSplit = splits[i];
+            }
+        }
+        return bestSplit;
+    }
+
+    /**
+     * Returns the number of branches of a split
+     *
+     * @param data  Training data
+     * @param split Split
+     * @return 2 for a continuous split, the number of values of the attribute for a nominal split
+     */
+    static int getNumberOfBranches(ID3Dataset data, ID3Split split) {
+        return data.getNumericColumn(split.mAttributeOrdinal) != null ? 2
+                : data.getAttributeList().get(split.mAttributeOrdinal).getNumberOfAttributeValues();
+    }
+
+    /**
+     * Partitions a range of a row index in place so that the rows of every branch of a split are contiguous and in
+     * branch order. The rows are counted per branch, then every misplaced row is swapped straight into the next free
+     * position of its branch, so nothing is allocated and every row moves at most once. A numeric split compares
+     * every row to the split value once, into a mask that both passes read. The rows missing the value of a nominal
+     * split are moved after the last branch, where they start at branchStarts[branches].
+     *
+     * @param data         Training data
+     * @param rows         Row index
+     * @param from         First position of the rows to partition
+     * @param to           Position after the last row to partition
+     * @param split        Split to apply
+     * @param branchStarts Receives the start of every branch, then of the missing rows, followed by to, at least
+     *                     branches + 2 long
+     * @param next         Scratch of at least branches + 1 entries
+     */
+    static void partition(ID3Dataset data, int[] rows, int from, int to, ID3Split split, int[] branchStarts,
+                          int[] next) {
+        int attributeOrdinal = split.mAttributeOrdinal;
+        NumericColumn numericColumn = data.getNumericColumn(attributeOrdinal);
+        NominalColumn nominalColumn = data.getNominalColumn(attributeOrdinal);
+        if (numericColumn != null) {
+            int[] mask = ID3Scratch.get().getBuffer(ID3Scratch.PARTITION_MASK, to - from);
+            int end = from + ID3Kernels.get().getThresholdMask(numericColumn, rows, from, to, split.mSplitValue,
+                    mask);
+            int nextGreater = end;
+            for (int i = from; i < end; i++) {
+                while (mask[i - from] != 0) {
+                    int row = rows[i];
+                    rows[i] = rows[nextGreater];
+                    rows[nextGreater] = row;
+                    mask[i - from] = mask[nextGreater - from];
+                    nextGreater++;
+                }
+            }
+            branchStarts[0] = from;
+            branchStarts[1] = end;
+            branchStarts[2] = to;
+            branchStarts[3] = to;
+            return;
+        }
+        int missingBranch = getNumberOfBranches(data, split);
+
+        Arrays.fill(branchStarts, 0, missingBranch + 2, 0);
+        for (int i = from; i < to; i++) {
+            branchStarts[getBranch(nominalColumn, missingBranch, rows[i]) + 1]++;
+        }
+        branchStarts[0] = from;
+        for (int b = 0; b <= missingBranch; b++) {
+            branchStarts[b + 1] += branchStarts[b];
+            next[b] = branchStarts[b];
+        }
+
+        for (int b = 0; b <= missingBranch; b++) {
+            int end = branchStarts[b + 1];
+            while (next[b] < end) {
+                int row = rows[next[b]];
+                int branch = getBranch(nominalColumn, missingBranch, row);
+                if (branch == b) {
+                    next[b]++;
+                } else {
+                    rows[next[b]] = rows[next[branch]];
+                    rows[next[branch]++] = row;
+                }
+            }
+        }
+    }
+
+    private static int getBranch(NominalColumn nominalColumn, int missingBranch, int row) {
+        int code = nominalColumn.getCode(row);
+        return code < 0 ? missingBranch : code;
     }
 
     /**
@@ -229,36 +1097,64 @@ public class ID3 {
      * @return log2 (n)
      */
     public static double log2(double n) {
-        double num = Math.log(n);
-        double den = Math.log(2.00);
-        double ans = num / den;
-        return ans;
-        //return (Math.log(n) / Math.log((double)2));
+        return Math.log(n) * INV_LN2;
     }
 
     /**
      * Parses the given input ARFF File
      *
-     * @param filename Name/Path of file to be parsed
+     * @param filename         Name/Path of file to be parsed
+     * @param trainingListener Listener notified when the file has been parsed, or null
+     * @return Reader holding the parsed file
      */
-    private static void parseARFFFile(String filename) {
-        mArffReader = new ARFFReader(filename);
-        mArffReader.parseARFFFile();
+    private static ARFFReader parseARFFFile(String filename, TrainingListener trainingListener) {
+        ARFFReader arffReader = new ARFFReader(filename);
+        arffReader.setTrainingListener(trainingListener);
+        arffReader.parseARFFFile();
+        return arffReader;
     }
 
     public static void main(String[] args) {
-        //TODO - Fetch the input and output filenames from command line
-        String filename = "/Users/kirthanaaraghuraman/Documents/CS760/Assignments/HW#1/src/com/kirthanaa/id3/trainingset/heart_train.arff";
-        parseARFFFile(filename);
+        if (args.length < 1) {
+            System.out.println("Usage: ID3 <train-set-file> [test-set-file] [m]");
+            return;
+        }
+        String filename = args[0];
+        TrainingMetrics trainingMetrics = new TrainingMetrics();
+        ARFFReader arffReader = parseARFFFile(filename, trainingMetrics);
+        ID3Dataset trainData = arffReader.getDataset();
+        if (trainData == null) {
+            return;
+        }
         System.out.println("Entropy value of entire data set: ");
-        mOverallEntropy = getOverallEntropy(mArffReader.getID3Class(), mArffReader.getDataInstanceList());
-        System.out.println(String.valueOf(mOverallEntropy));
+        double overallEntropy = getOverallEntropy(arffReader.getID3Class(), trainData);
+        System.out.println(String.valueOf(overallEntropy));
 
-        if (mOverallEntropy == 0.0) {
+        if (overallEntropy == 0.0) {
             System.out.println("Overall Entropy is 0. All instances belong to same class.");
-            //TODO print tree with all instances in the root node
         }
 
+        int minInstances = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MIN_INSTANCES;
+        ID3 id3 = new ID3(minInstances, DEFAULT_MAX_DEPTH, new InformationGainCriterion(), trainingMetrics);
+        ID3Tree tree = id3.buildTree(trainData);
+        System.out.print(tree);
+        TrainingLog.log(TrainingLog.INFO, trainingMetrics.toString());
+
+        if (args.length > 1) {
+            ID3Dataset testData = parseARFFFile(args[1], null).getDataset();
+            if (testData == null) {
+                return;
+            }
+            int[] predictions = tree.predict(testData);
+            int correct = 0;
+            for (int i = 0; i < predictions.length; i++) {
+                if (predictions[i] == testData.getClassCode(i)) {
+                    correct++;
+                }
+            }
+            System.out.println("Number of correctly classified: " + correct + " Total number of test instances: "
+                    + predictions.length);
+        }
     }
 
 }
@@ -0,0 +1,57 @@
+package com.kirthanaa.id3.decisiontree;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws the random subset of attributes evaluated at each node of a forest tree.
+ * A sampler belongs to a single tree and is not thread safe. Its random sequence depends only on its seed and on the
+ * order in which nodes are grown, so a tree built from the same seed and rows is always the same.
+ */
+final class ID3AttributeSampler {
+
+    private final Random mRandom;
+
+    private final int[] mOrdinals;
+
+    private final int mAttributesPerNode;
+
+    /**
+     * @param numAttributes     Number of attributes of the dataset
+     * @param attributesPerNode Number of attributes evaluated at each node, at most numAttributes
+     * @param seed              Seed of the random sequence
+     */
+    ID3AttributeSampler(int numAttributes, int attributesPerNode, long seed) {
+        this.mRandom = new Random(seed);
+        this.mOrdinals = new int[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            mOrdinals[i] = i;
+        }
+        this.mAttributesPerNode = Math.min(attributesPerNode, numAttributes);
+    }
+
+    /**
+     * @return Number of attributes drawn by sample
+     */
+    int getAttributesPerNode() {
+        return mAttributesPerNode;
+    }
+
+    /**
+     * Draws a new subset of attributes with a partial Fisher-Yates shuffle. The subset is sorted so that ties between
+     * attributes are still broken by attribute order.
+     *
+     * @return Array whose first getAttributesPerNode() entries are the ordinals of the drawn attributes. It is
+     * overwritten by the next call.
+     */
+    int[] sample() {
+        for (int i = 0; i < mAttributesPerNode; i++) {
+            int j = i + mRandom.nextInt(mOrdinals.length - i);
+            int ordinal = mOrdinals[j];
+            mOrdinals[j] = mOrdinals[i];
+            mOrdinals[i] = ordinal;
+        }
+        Arrays.sort(mOrdinals, 0, mAttributesPerNode);
+        return mOrdinals;
+    }
+}
@@ -0,0 +1,398 @@
+package com.kirthanaa.id3.decisiontree;
+
+import com.kirthanaa.id3.arffreader.ARFFReader;
+import com.kirthanaa.id3.criterion.GainRatioCriterion;
+import com.kirthanaa.id3.criterion.GiniCriterion;
+import com.kirthanaa.id3.criterion.InformationGainCriterion;
+import com.kirthanaa.id3.criterion.SplitCriterion;
+import com.kirthanaa.id3.dataset.ID3Binning;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.dataset.NominalColumn;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs k-fold cross-validation of many ID3 configurations at once on a ForkJoinPool, one task per fold and
+ * configuration.
+ * <p>
+ * The folds are row indexes into the loaded dataset, which is never copied: a task trains on a copy of the row index
+ * of its training folds, which the builder partitions in place, and scores the rows of its test fold. Folds are
+ * stratified, every class being spread evenly over them in a shuffled order. Configurations searching numeric splits
+ * over bins share one ID3Binning per number of bins, sorted and quantized once over the whole dataset for all folds
+ * and configurations; the binning only looks at attribute values, never at classes, so it leaks no label of a test
+ * fold into training.
+ * <p>
+ * Every configuration gets the same folds, so their accuracies are directly comparable, and the results do not
+ * depend on how the tasks are scheduled over the cores.
+ */
+public class ID3CrossValidator {
+
+    public static final int DEFAULT_NUM_FOLDS = 10;
+
+    private final ForkJoinPool mPool;
+
+    private final int mNumFolds;
+
+    private final long mSeed;
+
+    /**
+     * Stopping rules, split criterion and split search of one ID3 configuration
+     */
+    public static class Configuration {
+
+        public final int mMinInstances;
+
+        public final int mMaxDepth;
+
+        public final SplitCriterion mSplitCriterion;
+
+        public final int mNumBins;
+
+        /**
+         * @param minInstances   Nodes with fewer training instances than this become leaves
+         * @param maxDepth       Nodes at this depth become leaves
+         * @param splitCriterion Criterion used to score candidate splits
+         * @param numBins        Number of bins of the numeric attributes, or 0 to search every distinct value
+         */
+        public Configuration(int minInstances, int maxDepth, SplitCriterion splitCriterion, int numBins) {
+            this.mMinInstances = minInstances;
+            this.mMaxDepth = maxDepth;
+            this.mSplitCriterion = splitCriterion;
+            this.mNumBins = numBins;
+        }
+
+        ID3 newID3() {
+            return new ID3(mMinInstances, mMaxDepth, mSplitCriterion);
+        }
+
+        @Override
+        public String toString() {
+            String criterion = mSplitCriterion.getClass().getSimpleName().replace("Criterion", "");
+            return "m=" + mMinInstances + (mMaxDepth == ID3.DEFAULT_MAX_DEPTH ? "" : " depth=" + mMaxDepth) + " "
+                    + criterion + (mNumBins > 0 ? " bins=" + mNumBins : " exact");
+        }
+    }
+
+    /**
+     * Accuracy, training time and size of the trees of one configuration over every fold
+     */
+    public static class Result {
+
+        private final Configuration mConfiguration;
+
+        private final double[] mAccuracies;
+
+        private final long[] mTrainNanos;
+
+        private final int[] mNumNodes;
+
+        Result(Configuration configuration, int numFolds) {
+            this.mConfiguration = configuration;
+            this.mAccuracies = new double[numFolds];
+            this.mTrainNanos = new long[numFolds];
+            this.mNumNodes = new int[numFolds];
+        }
+
+        public Configuration getConfiguration() {
+            return mConfiguration;
+        }
+
+        /**
+         * @return Mean test accuracy over the folds
+         */
+        public double getMeanAccuracy() {
+            double sum = 0.0;
+            for (double accuracy : mAccuracies) {
+                sum += accuracy;
+            }
+            return sum / mAccuracies.length;
+        }
+
+        /**
+         * @return Sample standard deviation of the test accuracy over the folds
+         */
+        public double getAccuracyStandardDeviation() {
+            if (mAccuracies.length < 2) {
+                return 0.0;
+            }
+            double mean = getMeanAccuracy();
+            double sumOfSquares = 0.0;
+            for (double accuracy : mAccuracies) {
+                sumOfSquares += (accuracy - mean) * (accuracy - mean);
+            }
+            return Math.sqrt(sumOfSquares / (mAccuracies.length - 1));
+        }
+
+        /**
+         * @return Mean time taken to train the tree of a fold, in milliseconds
+         */
+        public double getMeanTrainMillis() {
+            long sum = 0;
+            for (long nanos : mTrainNanos) {
+                sum += nanos;
+            }
+            return sum / 1e6 / mTrainNanos.length;
+        }
+
+        /**
+         * @return Mean number of nodes of the tree of a fold
+         */
+        public double getMeanNumNodes() {
+            long sum = 0;
+            for (int numNodes : mNumNodes) {
+                sum += numNodes;
+            }
+            return (double) sum / mNumNodes.length;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-32s accuracy %.4f +- %.4f, train %9.2f ms, %8.1f nodes", mConfiguration,
+                    getMeanAccuracy(), getAccuracyStandardDeviation(), getMeanTrainMillis(), getMeanNumNodes());
+        }
+    }
+
+    /**
+     * @param pool     Pool running the fold tasks
+     * @param numFolds Number of folds, at least 2
+     * @param seed     Seed of the assignment of the rows to the folds
+     */
+    public ID3CrossValidator(ForkJoinPool pool, int numFolds, long seed) {
+        if (numFolds < 2) {
+            throw new IllegalArgumentException("Number of folds must be at least 2");
+        }
+        this.mPool = pool;
+        this.mNumFolds = numFolds;
+        this.mSeed = seed;
+    }
+
+    /**
+     * Assigns every row to a fold. The rows of each class are shuffled and dealt to the folds in turn, continuing
+     * from one class to the next, so every fold gets the same share of every class and the folds differ in size by
+     * at most one row.
+     *
+     * @param data Dataset
+     * @return Fold of every row
+     */
+    int[] getFolds(ID3Dataset data) {
+        int numInstances = data.getNumInstances();
+        int numberOfClasses = data.getID3Class().mNoOfClasses;
+        NominalColumn classColumn = data.getClassColumn();
+        int[] classStarts = new int[numberOfClasses + 1];
+        for (int row = 0; row < numInstances; row++) {
+            classStarts[classColumn.getCode(row) + 1]++;
+        }
+        for (int c = 0; c < numberOfClasses; c++) {
+            classStarts[c + 1] += classStarts[c];
+        }
+        int[] next = new int[numberOfClasses];
+        System.arraycopy(classStarts, 0, next, 0, numberOfClasses);
+        int[] rowsByClass = new int[numInstances];
+        for (int row = 0; row < numInstances; row++) {
+            rowsByClass[next[classColumn.getCode(row)]++] = row;
+        }
+
+        Random random = new Random(mSeed);
+        int[] folds = new int[numInstances];
+        int fold = 0;
+        for (int c = 0; c < numberOfClasses; c++) {
+            for (int i = classStarts[c + 1] - 1; i > classStarts[c]; i--) {
+                int j = classStarts[c] + random.nextInt(i - classStarts[c] + 1);
+                int swap = rowsByClass[i];
+                rowsByClass[i] = rowsByClass[j];
+                rowsByClass[j] = swap;
+            }
+            for (int i = classStarts[c]; i < classStarts[c + 1]; i++) {
+                folds[rowsByClass[i]] = fold;
+                fold = fold + 1 == mNumFolds ? 0 : fold + 1;
+            }
+        }
+        return folds;
+    }
+
+    /**
+     * Cross-validates every configuration on the same folds
+     *
+     * @param data           Labelled data
+     * @param configurations Configurations to evaluate
+     * @return Result of every configuration, in the order of the configurations
+     */
+    public ArrayList<Result> crossValidate(ID3Dataset data, List<Configuration> configurations) {
+        int numInstances = data.getNumInstances();
+        if (numInstances < mNumFolds) {
+            throw new IllegalArgumentException("Cannot split " + numInstances + " rows into " + mNumFolds + " folds");
+        }
+        int[] folds = getFolds(data);
+        int[] foldSizes = new int[mNumFolds];
+        for (int row = 0; row < numInstances; row++) {
+            foldSizes[folds[row]]++;
+        }
+        int[][] testRows = new int[mNumFolds][];
+        int[][] trainRows = new int[mNumFolds][];
+        for (int f = 0; f < mNumFolds; f++) {
+            testRows[f] = new int[foldSizes[f]];
+            trainRows[f] = new int[numInstances - foldSizes[f]];
+        }
+        int[] testPositions = new int[mNumFolds];
+        int[] trainPositions = new int[mNumFolds];
+        for (int row = 0; row < numInstances; row++) {
+            for (int f = 0; f < mNumFolds; f++) {
+                if (folds[row] == f) {
+                    testRows[f][testPositions[f]++] = row;
+                } else {
+                    trainRows[f][trainPositions[f]++] = row;
+                }
+            }
+        }
+
+        HashMap<Integer, ID3Binning> binnings = new HashMap<Integer, ID3Binning>();
+        for (Configuration configuration : configurations) {
+            if (configuration.mNumBins > 0 && !binnings.containsKey(configuration.mNumBins)) {
+                binnings.put(configuration.mNumBins, new ID3Binning(data, configuration.mNumBins));
+            }
+        }
+
+        ArrayList<Result> results = new ArrayList<Result>(configurations.size());
+        ArrayList<FoldTask> foldTasks = new ArrayList<FoldTask>(configurations.size() * mNumFolds);
+        for (Configuration configuration : configurations) {
+            Result result = new Result(configuration, mNumFolds);
+            results.add(result);
+            ID3 id3 = configuration.newID3();
+            ID3Binning binning = configuration.mNumBins > 0 ? binnings.get(configuration.mNumBins) : null;
+            for (int f = 0; f < mNumFolds; f++) {
+                foldTasks.add(new FoldTask(data, id3, binning, trainRows[f], testRows[f], result, f));
+            }
+        }
+        mPool.invoke(new SweepTask(foldTasks));
+        return results;
+    }
+
+    /**
+     * Runs all the fold tasks of a sweep
+     */
+    private static class SweepTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<FoldTask> mFoldTasks;
+
+        SweepTask(ArrayList<FoldTask> foldTasks) {
+            this.mFoldTasks = foldTasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(mFoldTasks);
+        }
+    }
+
+    /**
+     * Trains one configuration on all folds but one and scores the remaining fold
+     */
+    private static class FoldTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ID3Dataset mData;
+
+        private final ID3 mId3;
+
+        private final ID3Binning mBinning;
+
+        private final int[] mTrainRows;
+
+        private final int[] mTestRows;
+
+        private final Result mResult;
+
+        private final int mFold;
+
+        FoldTask(ID3Dataset data, ID3 id3, ID3Binning binning, int[] trainRows, int[] testRows, Result result,
+                 int fold) {
+            this.mData = data;
+            this.mId3 = id3;
+            this.mBinning = binning;
+            this.mTrainRows = trainRows;
+            this.mTestRows = testRows;
+            this.mResult = result;
+            this.mFold = fold;
+        }
+
+        @Override
+        protected void compute() {
+            int[] rows = mTrainRows.clone();
+            long startNanos = System.nanoTime();
+            ID3Tree tree = mBinning != null ? mId3.buildTree(mData, mBinning, rows) : mId3.buildTree(mData, rows, null);
+            long trainNanos = System.nanoTime() - startNanos;
+
+            int correct = 0;
+            for (int row : mTestRows) {
+                if (tree.predict(mData, row) == mData.getClassCode(row)) {
+                    correct++;
+                }
+            }
+            mResult.mAccuracies[mFold] = (double) correct / mTestRows.length;
+            mResult.mTrainNanos[mFold] = trainNanos;
+            mResult.mNumNodes[mFold] = tree.getNumNodes();
+        }
+    }
+
+    /**
+     * Returns the default sweep: every combination of a range of minimum instances per node, the three split
+     * criteria, and exact or binned split search
+     *
+     * @return Configurations
+     */
+    public static ArrayList<Configuration> getDefaultSweep() {
+        int[] minInstances = {2, 5, 10, 20, 50, 100};
+        SplitCriterion[] criteria = {new InformationGainCriterion(), new GainRatioCriterion(), new GiniCriterion()};
+        int[] numBins = {0, 64};
+        ArrayList<Configuration> configurations = new ArrayList<Configuration>();
+        for (int bins : numBins) {
+            for (SplitCriterion criterion : criteria) {
+                for (int m : minInstances) {
+                    configurations.add(new Configuration(m, ID3.DEFAULT_MAX_DEPTH, criterion, bins));
+                }
+            }
+        }
+        return configurations;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: ID3CrossValidator <train-set-file> [folds] [cores]");
+            return;
+        }
+        int numFolds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_NUM_FOLDS;
+        int cores = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        ARFFReader arffReader = new ARFFReader(args[0]);
+        arffReader.parseARFFFile();
+        ID3Dataset data = arffReader.getDataset();
+        if (data == null) {
+            return;
+        }
+
+        ArrayList<Configuration> configurations = getDefaultSweep();
+        ForkJoinPool pool = new ForkJoinPool(cores);
+        long startNanos = System.nanoTime();
+        ArrayList<Result> results = new ID3CrossValidator(pool, numFolds, 42L).crossValidate(data, configurations);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        pool.shutdown();
+
+        Result best = null;
+        for (Result result : results) {
+            System.out.println(result);
+            if (best == null || result.getMeanAccuracy() > best.getMeanAccuracy()) {
+                best = result;
+            }
+        }
+        System.out.println(String.format("%d configurations x %d folds in %.3f s on %d cores", configurations.size(),
+                numFolds, seconds, cores));
+        System.out.println("Best : " + best);
+    }
+}
@@ -0,0 +1,138 @@
+package com.kirthanaa.id3.decisiontree;
+
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.entities.ID3Attribute;
+import com.kirthanaa.id3.entities.ID3Class;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Ensemble of ID3 trees predicting by majority vote, built by ID3ForestBuilder.
+ * Rows are scored block by block: every tree scores the whole block before the next tree is used, so each flattened
+ * tree stays in cache while it is applied to the block and the votes of the block fit in a small array.
+ */
+public class ID3Forest {
+
+    private static final int PREDICT_BLOCK_SIZE = 256;
+
+    private final ArrayList<ID3Attribute> mID3AttributeList;
+
+    private final ID3Class mId3Class;
+
+    private final ID3Tree[] mTrees;
+
+    private final double mOutOfBagAccuracy;
+
+    /**
+     * @param attributeList    Attributes of the training data
+     * @param id3Class         Class of the training data
+     * @param trees            Trees of the forest
+     * @param outOfBagAccuracy Accuracy of the votes of the trees that did not see each training row, NaN if unknown
+     */
+    public ID3Forest(ArrayList<ID3Attribute> attributeList, ID3Class id3Class, ID3Tree[] trees,
+                     double outOfBagAccuracy) {
+        this.mID3AttributeList = attributeList;
+        this.mId3Class = id3Class;
+        this.mTrees = trees;
+        this.mOutOfBagAccuracy = outOfBagAccuracy;
+    }
+
+    public ArrayList<ID3Attribute> getAttributeList() {
+        return mID3AttributeList;
+    }
+
+    public ID3Class getID3Class() {
+        return mId3Class;
+    }
+
+    public int getNumTrees() {
+        return mTrees.length;
+    }
+
+    public ID3Tree getTree(int index) {
+        return mTrees[index];
+    }
+
+    /**
+     * Returns the out-of-bag accuracy, measured while training over the rows that at least one tree did not see, each
+     * row being predicted by the vote of those trees only
+     *
+     * @return Out-of-bag accuracy, NaN if every tree saw every row
+     */
+    public double getOutOfBagAccuracy() {
+        return mOutOfBagAccuracy;
+    }
+
+    /**
+     * Returns the class with the most votes, the lowest class code on ties
+     *
+     * @param votes  Votes
+     * @param offset Index of the votes for class 0
+     * @param length Number of classes
+     * @return Class code
+     */
+    static int getMostVoted(int[] votes, int offset, int length) {
+        int mostVoted = 0;
+        for (int c = 1; c < length; c++) {
+            if (votes[offset + c] > votes[offset + mostVoted]) {
+                mostVoted = c;
+            }
+        }
+        return mostVoted;
+    }
+
+    /**
+     * Predicts the class of a single row
+     *
+     * @param data Dataset with the same attributes as the training data
+     * @param row  Row index
+     * @return Predicted class code
+     */
+    public int predict(ID3Dataset data, int row) {
+        int[] votes = new int[mId3Class.mNoOfClasses];
+        for (int t = 0; t < mTrees.length; t++) {
+            votes[mTrees[t].predict(data, row)]++;
+        }
+        return getMostVoted(votes, 0, votes.length);
+    }
+
+    /**
+     * Predicts the class of every row of the data
+     *
+     * @param data Dataset with the same attributes as the training data
+     * @return Predicted class code of each row
+     */
+    public int[] predict(ID3Dataset data) {
+        int[] predictions = new int[data.getNumInstances()];
+        predict(data, 0, data.getNumInstances(), predictions);
+        return predictions;
+    }
+
+    /**
+     * Predicts the class of a range of rows
+     *
+     * @param data        Dataset with the same attributes as the training data
+     * @param from        First row, inclusive
+     * @param to          Last row, exclusive
+     * @param predictions Receives the predicted class code of row i at index i - from
+     */
+    public void predict(ID3Dataset data, int from, int to, int[] predictions) {
+        int numberOfClasses = mId3Class.mNoOfClasses;
+        int[] treePredictions = new int[PREDICT_BLOCK_SIZE];
+        int[] votes = new int[PREDICT_BLOCK_SIZE * numberOfClasses];
+        for (int blockStart = from; blockStart < to; blockStart += PREDICT_BLOCK_SIZE) {
+            int blockSize = Math.min(PREDICT_BLOCK_SIZE, to - blockStart);
+            Arrays.fill(votes, 0, blockSize * numberOfClasses, 0);
+            for (int t = 0; t < mTrees.length; t++) {
+                mTrees[t].predict(data, blockStart, blockStart + blockSize, treePredictions);
+                for (int i = 0; i < blockSize; i++) {
+                    votes[i * numberOfClasses + treePredictions[i]]++;
+                }
+            }
+            for (int i = 0; i < blockSize; i++) {
+                predictions[blockStart - from + i] = getMostVoted(votes, i * numberOfClasses, numberOfClasses);
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.kirthanaa.id3.decisiontree;
+
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.dataset.NominalColumn;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Builds bagged forests of ID3 trees on a ForkJoinPool, one task per tree.
+ * <p>
+ * Every tree is trained on a bootstrap sample drawn as a per-row count of how many times the row was picked. The data
+ * is never copied: the counts are expanded into the row index of the tree, in which a row picked k times appears k
+ * times, so the counts it contributes to every node are weighted by k. At every node only a random subset of the
+ * attributes is evaluated. Rows a tree did not pick are scored by that tree as they are out of bag, and their votes
+ * give the out-of-bag accuracy of the forest without a separate test set.
+ * <p>
+ * The seed of every tree is drawn up front from the seed of the builder, so a forest does not depend on how its trees
+ * are scheduled over the cores.
+ */
+public class ID3ForestBuilder {
+
+    public static final int DEFAULT_NUM_TREES = 100;
+
+    private final ID3 mId3;
+
+    private final ForkJoinPool mPool;
+
+    private final int mNumTrees;
+
+    private final int mAttributesPerNode;
+
+    private final long mSeed;
+
+    /**
+     * @param id3               Trainer holding the stopping rules and the split search of every tree
+     * @param pool              Pool training the trees
+     * @param numTrees          Number of trees
+     * @param attributesPerNode Number of attributes evaluated at each node, or 0 for the square root of the number of
+     *                          attributes
+     * @param seed              Seed of the bootstrap samples and attribute subsets
+     */
+    public ID3ForestBuilder(ID3 id3, ForkJoinPool pool, int numTrees, int attributesPerNode, long seed) {
+        if (numTrees < 1) {
+            throw new IllegalArgumentException("Number of trees must be at least 1");
+        }
+        this.mId3 = id3;
+        this.mPool = pool;
+        this.mNumTrees = numTrees;
+        this.mAttributesPerNode = attributesPerNode;
+        this.mSeed = seed;
+    }
+
+    /**
+     * Returns the number of attributes evaluated at each node for a dataset
+     *
+     * @param numAttributes Number of attributes of the dataset
+     * @return mAttributesPerNode, or the rounded up square root of the number of attributes if it is 0
+     */
+    int getAttributesPerNode(int numAttributes) {
+        if (mAttributesPerNode > 0) {
+            return Math.min(mAttributesPerNode, numAttributes);
+        }
+        return Math.max(1, (int) Math.ceil(Math.sqrt(numAttributes)));
+    }
+
+    /**
+     * Builds a forest from all instances of the dataset
+     *
+     * @param data Training data
+     * @return Trained forest
+     */
+    public ID3Forest buildForest(ID3Dataset data) {
+        Random random = new Random(mSeed);
+        ArrayList<TreeTask> treeTasks = new ArrayList<TreeTask>(mNumTrees);
+        int numberOfClasses = data.getID3Class().mNoOfClasses;
+        AtomicIntegerArray outOfBagVotes = new AtomicIntegerArray(data.getNumInstances() * numberOfClasses);
+        for (int t = 0; t < mNumTrees; t++) {
+            treeTasks.add(new TreeTask(data, random.nextLong(), outOfBagVotes));
+        }
+        mPool.invoke(new ForestTask(treeTasks));
+
+        ID3Tree[] trees = new ID3Tree[mNumTrees];
+        for (int t = 0; t < mNumTrees; t++) {
+            trees[t] = treeTasks.get(t).getRawResult();
+        }
+        return new ID3Forest(data.getAttributeList(), data.getID3Class(), trees,
+                getOutOfBagAccuracy(data, outOfBagVotes));
+    }
+
+    /**
+     * Computes the accuracy of the out-of-bag votes
+     *
+     * @param data          Training data
+     * @param outOfBagVotes Votes of the trees that did not pick each row, indexed by row * number of classes + class
+     * @return Accuracy over the rows with at least one vote, NaN if there are none
+     */
+    private static double getOutOfBagAccuracy(ID3Dataset data, AtomicIntegerArray outOfBagVotes) {
+        int numberOfClasses = data.getID3Class().mNoOfClasses;
+        NominalColumn classColumn = data.getClassColumn();
+        int[] votes = new int[numberOfClasses];
+        int numVoted = 0;
+        int numCorrect = 0;
+        for (int row = 0; row < data.getNumInstances(); row++) {
+            int total = 0;
+            for (int c = 0; c < numberOfClasses; c++) {
+                votes[c] = outOfBagVotes.get(row * numberOfClasses + c);
+                total += votes[c];
+            }
+            if (total > 0) {
+                numVoted++;
+                if (ID3Forest.getMostVoted(votes, 0, numberOfClasses) == classColumn.getCode(row)) {
+                    numCorrect++;
+                }
+            }
+        }
+        return numVoted == 0 ? Double.NaN : (double) numCorrect / numVoted;
+    }
+
+    /**
+     * Trains all the trees of a forest
+     */
+    private static class ForestTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<TreeTask> mTreeTasks;
+
+        ForestTask(ArrayList<TreeTask> treeTasks) {
+            this.mTreeTasks = treeTasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(mTreeTasks);
+        }
+    }
+
+    /**
+     * Trains one tree on a bootstrap sample and adds its votes for the rows it did not pick
+     */
+    private class TreeTask extends RecursiveTask<ID3Tree> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ID3Dataset mData;
+
+        private final long mTreeSeed;
+
+        private final AtomicIntegerArray mOutOfBagVotes;
+
+        TreeTask(ID3Dataset data, long treeSeed, AtomicIntegerArray outOfBagVotes) {
+            this.mData = data;
+            this.mTreeSeed = treeSeed;
+            this.mOutOfBagVotes = outOfBagVotes;
+        }
+
+        @Override
+        protected ID3Tree compute() {
+            int numInstances = mData.getNumInstances();
+            Random random = new Random(mTreeSeed);
+            int[] counts = new int[numInstances];
+            for (int i = 0; i < numInstances; i++) {
+                counts[random.nextInt(numInstances)]++;
+            }
+            int[] rows = new int[numInstances];
+            int position = 0;
+            for (int row = 0; row < numInstances; row++) {
+                for (int k = 0; k < counts[row]; k++) {
+                    rows[position++] = row;
+                }
+            }
+
+            int numAttributes = mData.getNumAttributes();
+            ID3AttributeSampler sampler = new ID3AttributeSampler(numAttributes, getAttributesPerNode(numAttributes),
+                    random.nextLong());
+            ID3Tree tree = mId3.buildTree(mData, rows, sampler);
+
+            int numberOfClasses = mData.getID3Class().mNoOfClasses;
+            for (int row = 0; row < numInstances; row++) {
+                if (counts[row] == 0) {
+                    mOutOfBagVotes.incrementAndGet(row * numberOfClasses + tree.predict(mData, row));
+                }
+            }
+            return tree;
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.kirthanaa.id3.decisiontree;
+
+import com.kirthanaa.id3.criterion.SplitCriterion;
+import com.kirthanaa.id3.dataset.ID3Binning;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.entities.ID3Attribute;
+import com.kirthanaa.id3.entities.ID3Class;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Incremental decision tree learner for data arriving as a stream (Hoeffding tree).
+ * <p>
+ * Instances are consumed one at a time or in micro-batches and are never stored. Every leaf keeps sufficient
+ * statistics of the instances that reached it: a class histogram per value of every NOMINAL attribute and a class
+ * histogram per bin of every NUMERIC attribute. Every mGracePeriod instances a leaf scores its candidate splits from
+ * these histograms with the split criterion of the ID3 instance, exactly as the batch builders score nodes, and splits
+ * on the best attribute once the Hoeffding bound shows with probability 1 - delta that it beats the second best and
+ * not splitting, or once the bound is so tight that the two are tied within mTieThreshold. The stopping rules of the
+ * ID3 instance (minimum instances, maximum depth, pure nodes) apply to every leaf. Missing values are handled as in
+ * ID3: a nominal split is scored on the instances having a value, and an instance missing the value of a split it
+ * reaches stops there without updating any leaf.
+ * <p>
+ * The bins of a numeric attribute are fixed per leaf from the quantiles of the first mGracePeriod values it sees,
+ * which are buffered until then. Values later falling outside that range go to the first or last bin. The statistics
+ * of a leaf therefore take a bounded number of bytes, set by the attribute schema and mNumBins only, whatever the
+ * length of the stream.
+ * <p>
+ * New children are appended to the flattened tree, which stays a valid ID3Tree at all times. A learner is not thread
+ * safe; getTree returns a copy that can be scored, compiled or saved while the learner keeps going.
+ */
+public class ID3HoeffdingLearner implements ID3Predictor {
+
+    public static final int DEFAULT_GRACE_PERIOD = 200;
+
+    public static final double DEFAULT_DELTA = 1e-7;
+
+    public static final double DEFAULT_TIE_THRESHOLD = 0.05;
+
+    public static final int DEFAULT_NUM_BINS = 32;
+
+    private final ID3 mID3;
+
+    private final ArrayList<ID3Attribute> mID3AttributeList;
+
+    private final int mNumClasses;
+
+    private final int mGracePeriod;
+
+    private final double mTieThreshold;
+
+    private final int mNumBins;
+
+    private final double mBoundFactor;
+
+    private final ID3Tree mTree;
+
+    private final double[] mFeatures;
+
+    private LeafStatistics[] mLeaves = new LeafStatistics[16];
+
+    private long mNumInstances = 0;
+
+    /**
+     * Sufficient statistics of the instances that reached a leaf since it was created
+     */
+    private class LeafStatistics {
+
+        final int mDepth;
+
+        final int[] mClassCounts = new int[mNumClasses];
+
+        /**
+         * Class counts the leaf inherited from its parent's split, plus mClassCounts, used for its prediction
+         */
+        final int[] mPredictionCounts;
+
+        int mNumObserved = 0;
+
+        int mNumSinceCheck = 0;
+
+        final int[][] mValueCounts;
+
+        final int[][] mValueClassCounts;
+
+        final double[][] mSplitValues;
+
+        final int[][] mBinClassCounts;
+
+        double[][] mBufferedValues;
+
+        int[] mBufferedClasses;
+
+        LeafStatistics(int depth, int[] predictionCounts) {
+            this.mDepth = depth;
+            this.mPredictionCounts = predictionCounts;
+            int numAttributes = mID3AttributeList.size();
+            mValueCounts = new int[numAttributes][];
+            mValueClassCounts = new int[numAttributes][];
+            mSplitValues = new double[numAttributes][];
+            mBinClassCounts = new int[numAttributes][];
+            mBufferedValues = new double[numAttributes][];
+            for (int i = 0; i < numAttributes; i++) {
+                ID3Attribute attribute = mID3AttributeList.get(i);
+                if (attribute.mAttributeType == ID3Attribute.NOMINAL) {
+                    mValueCounts[i] = new int[attribute.getNumberOfAttributeValues()];
+                    mValueClassCounts[i] = new int[attribute.getNumberOfAttributeValues() * mNumClasses];
+                } else {
+                    mBufferedValues[i] = new double[Math.min(mGracePeriod, 16)];
+                }
+            }
+            mBufferedClasses = new int[Math.min(mGracePeriod, 16)];
+        }
+
+        void add(double[] features, int classCode) {
+            for (int i = 0; i < mValueCounts.length; i++) {
+                int[] valueCounts = mValueCounts[i];
+                if (valueCounts != null) {
+                    int code = (int) features[i];
+                    if (code >= 0) {
+                        valueCounts[code]++;
+                        mValueClassCounts[i][code * mNumClasses + classCode]++;
+                    }
+                } else if (mBufferedValues == null) {
+                    mBinClassCounts[i][getBin(mSplitValues[i], features[i]) * mNumClasses + classCode]++;
+                } else {
+                    if (mNumObserved == mBufferedValues[i].length) {
+                        mBufferedValues[i] = Arrays.copyOf(mBufferedValues[i], Math.min(mNumObserved * 2,
+                                mGracePeriod));
+                    }
+                    mBufferedValues[i][mNumObserved] = features[i];
+                }
+            }
+            if (mBufferedValues != null) {
+                if (mNumObserved == mBufferedClasses.length) {
+                    mBufferedClasses = Arrays.copyOf(mBufferedClasses, Math.min(mNumObserved * 2, mGracePeriod));
+                }
+                mBufferedClasses[mNumObserved] = classCode;
+            }
+            mClassCounts[classCode]++;
+            mPredictionCounts[classCode]++;
+            mNumObserved++;
+            mNumSinceCheck++;
+        }
+
+        /**
+         * Fixes the bins of every numeric attribute from the buffered values, then counts the buffered values into
+         * the bins and releases the buffers
+         */
+        void fixBins() {
+            double[] lowerBounds = new double[mNumBins];
+            double[] upperBounds = new double[mNumBins];
+            for (int i = 0; i < mBufferedValues.length; i++) {
+                double[] values = mBufferedValues[i];
+                if (values == null) {
+                    continue;
+                }
+                double[] sorted = Arrays.copyOf(values, mNumObserved);
+                Arrays.sort(sorted);
+                int numValues = mNumObserved;
+                while (numValues > 0 && Double.isNaN(sorted[numValues - 1])) {
+                    numValues--;
+                }
+                int numBins = ID3Binning.getQuantileBins(sorted, numValues, mNumBins, lowerBounds, upperBounds);
+                double[] splitValues = new double[Math.max(numBins - 1, 0)];
+                for (int b = 0; b < splitValues.length; b++) {
+                    splitValues[b] = ID3Binning.getSplitValue(upperBounds[b], lowerBounds[b + 1]);
+                }
+                int[] binClassCounts = new int[(splitValues.length + 1) * mNumClasses];
+                for (int j = 0; j < mNumObserved; j++) {
+                    binClassCounts[getBin(splitValues, values[j]) * mNumClasses + mBufferedClasses[j]]++;
+                }
+                mSplitValues[i] = splitValues;
+                mBinClassCounts[i] = binClassCounts;
+            }
+            mBufferedValues = null;
+            mBufferedClasses = null;
+        }
+
+        long getHeapBytes() {
+            long bytes = 8L * mNumClasses;
+            for (int i = 0; i < mValueCounts.length; i++) {
+                if (mValueCounts[i] != null) {
+                    bytes += 4L * (mValueCounts[i].length + mValueClassCounts[i].length);
+                }
+                if (mBinClassCounts[i] != null) {
+                    bytes += 8L * mSplitValues[i].length + 4L * mBinClassCounts[i].length;
+                }
+                if (mBufferedValues != null && mBufferedValues[i] != null) {
+                    bytes += 8L * mBufferedValues[i].length;
+                }
+            }
+            return mBufferedClasses != null ? bytes + 4L * mBufferedClasses.length : bytes;
+        }
+    }
+
+    /**
+     * Creates a learner with the default grace period, confidence, tie threshold and number of bins
+     *
+     * @param id3           Split criterion and stopping rules
+     * @param attributeList Attributes of the stream, excluding the class
+     * @param id3Class      Class of the stream
+     */
+    public ID3HoeffdingLearner(ID3 id3, ArrayList<ID3Attribute> attributeList, ID3Class id3Class) {
+        this(id3, attributeList, id3Class, DEFAULT_GRACE_PERIOD, DEFAULT_DELTA, DEFAULT_TIE_THRESHOLD,
+                DEFAULT_NUM_BINS);
+    }
+
+    /**
+     * @param id3           Split criterion and stopping rules
+     * @param attributeList Attributes of the stream, excluding the class
+     * @param id3Class      Class of the stream
+     * @param gracePeriod   Number of instances a leaf sees between two split attempts
+     * @param delta         Probability of splitting on an attribute that is not the best one
+     * @param tieThreshold  Bound under which the two best splits are considered tied and the best one is taken
+     * @param numBins       Maximum number of bins per numeric attribute and leaf
+     */
+    public ID3HoeffdingLearner(ID3 id3, ArrayList<ID3Attribute> attributeList, ID3Class id3Class, int gracePeriod,
+                               double delta, double tieThreshold, int numBins) {
+        if (gracePeriod < 1) {
+            throw new IllegalArgumentException("Grace period must be positive");
+        }
+        if (!(delta > 0.0 && delta < 1.0)) {
+            throw new IllegalArgumentException("Delta must be between 0 and 1");
+        }
+        if (numBins < 2) {
+            throw new IllegalArgumentException("Number of bins must be at least 2");
+        }
+        this.mID3 = id3;
+        this.mID3AttributeList = attributeList;
+        this.mNumClasses = id3Class.mNoOfClasses;
+        this.mGracePeriod = gracePeriod;
+        this.mTieThreshold = tieThreshold;
+        this.mNumBins = numBins;
+        // Scores are at most log2(number of classes) under information gain, and at most 1 under the other criteria
+        double range = ID3.log2(Math.max(mNumClasses, 2));
+        this.mBoundFactor = range * range * Math.log(1.0 / delta) / 2.0;
+        this.mFeatures = new double[attributeList.size()];
+        this.mTree = new ID3Tree(attributeList, id3Class);
+        int root = mTree.addNodes(1);
+        mLeaves[root] = new LeafStatistics(0, new int[mNumClasses]);
+        mTree.setClassCounts(root, mLeaves[root].mPredictionCounts, 0);
+    }
+
+    /**
+     * Learns from one instance
+     *
+     * @param features  Feature array of the instance, as filled by ID3Dataset.getFeatures
+     * @param classCode Class code of the instance
+     */
+    public void update(double[] features, int classCode) {
+        int node = mTree.getLeaf(features);
+        LeafStatistics leaf = mLeaves[node];
+        if (leaf == null) {
+            // The instance misses the value of a nominal split and stops at that internal node
+            mNumInstances++;
+            return;
+        }
+        leaf.add(features, classCode);
+        mTree.setClassCounts(node, leaf.mPredictionCounts,
+                ID3.getMajorityClass(leaf.mPredictionCounts, mTree.getPrediction(node)));
+        mNumInstances++;
+        if (leaf.mNumSinceCheck >= mGracePeriod) {
+            leaf.mNumSinceCheck = 0;
+            if (leaf.mBufferedValues != null) {
+                leaf.fixBins();
+            }
+            attemptSplit(node, leaf);
+        }
+    }
+
+    /**
+     * Learns from every row of a micro-batch, in row order
+     *
+     * @param data Labelled rows with the attributes of the stream
+     */
+    public void update(ID3Dataset data) {
+        update(data, 0, data.getNumInstances());
+    }
+
+    /**
+     * Learns from a range of rows, in row order
+     *
+     * @param data Labelled rows with the attributes of the stream
+     * @param from First row, inclusive
+     * @param to   Last row, exclusive
+     */
+    public void update(ID3Dataset data, int from, int to) {
+        double[] features = mFeatures;
+        for (int row = from; row < to; row++) {
+            update(data.getFeatures(row, features), data.getClassCode(row));
+        }
+    }
+
+    /**
+     * Splits a leaf if the Hoeffding bound shows that its best split is better than both its second best split and
+     * not splitting
+     *
+     * @param node Index of the leaf
+     * @param leaf Statistics of the leaf
+     */
+    private void attemptSplit(int node, LeafStatistics leaf) {
+        int numObserved = leaf.mNumObserved;
+        int[] classCounts = leaf.mClassCounts;
+        if (mID3.isStoppingNode(numObserved, leaf.mDepth, classCounts, ID3.getMajorityClass(classCounts, 0))) {
+            return;
+        }
+
+        ID3Split bestSplit = null;
+        double bestScore = 0.0;
+        double secondScore = 0.0;
+        for (int i = 0; i < mID3AttributeList.size(); i++) {
+            ID3Split split;
+            if (leaf.mValueCounts[i] != null) {
+                split = mID3.getSplitForKnownValues(mID3AttributeList.get(i), leaf.mValueCounts[i],
+                        leaf.mValueClassCounts[i], mNumClasses, numObserved);
+            } else {
+                split = mID3.getBestSplitForHistogram(i, leaf.mBinClassCounts[i], leaf.mSplitValues[i],
+                        classCounts, numObserved);
+            }
+            if (split == null) {
+                continue;
+            }
+            if (split.mScore > bestScore) {
+                secondScore = bestScore;
+                bestScore = split.mScore;
+                bestSplit = split;
+            } else if (split.mScore > secondScore) {
+                secondScore = split.mScore;
+            }
+        }
+
+        double bound = Math.sqrt(mBoundFactor / numObserved);
+        if (bestSplit != null && bestScore > SplitCriterion.MIN_SCORE
+                && (bestScore - secondScore > bound || bound < mTieThreshold)) {
+            split(node, leaf, bestSplit);
+        }
+    }
+
+    /**
+     * Turns a leaf into an internal node with one new leaf per branch of a split. The new leaves start from the class
+     * counts of their branch, so they predict sensibly before they see any instance.
+     *
+     * @param node  Index of the leaf
+     * @param leaf  Statistics of the leaf
+     * @param split Split to apply
+     */
+    private void split(int node, LeafStatistics leaf, ID3Split split) {
+        int attributeOrdinal = split.mAttributeOrdinal;
+        int numberOfBranches;
+        int[] branchClassCounts;
+        if (leaf.mValueCounts[attributeOrdinal] != null) {
+            numberOfBranches = leaf.mValueCounts[attributeOrdinal].length;
+            branchClassCounts = leaf.mValueClassCounts[attributeOrdinal];
+        } else {
+            numberOfBranches = 2;
+            branchClassCounts = new int[2 * mNumClasses];
+            int[] binClassCounts = leaf.mBinClassCounts[attributeOrdinal];
+            int lastLeftBin = Arrays.binarySearch(leaf.mSplitValues[attributeOrdinal], split.mSplitValue);
+            for (int b = 0; b < binClassCounts.length / mNumClasses; b++) {
+                int offset = b <= lastLeftBin ? 0 : mNumClasses;
+                for (int c = 0; c < mNumClasses; c++) {
+                    branchClassCounts[offset + c] += binClassCounts[b * mNumClasses + c];
+                }
+            }
+        }
+
+        int prediction = mTree.getPrediction(node);
+        int firstChild = mTree.addNodes(numberOfBranches);
+        mTree.setSplit(node, attributeOrdinal, split.mSplitValue, firstChild);
+        if (firstChild + numberOfBranches > mLeaves.length) {
+            mLeaves = Arrays.copyOf(mLeaves, Math.max(firstChild + numberOfBranches, mLeaves.length * 2));
+        }
+        mLeaves[node] = null;
+        for (int i = 0; i < numberOfBranches; i++) {
+            int[] predictionCounts = Arrays.copyOfRange(branchClassCounts, i * mNumClasses, (i + 1) * mNumClasses);
+            mLeaves[firstChild + i] = new LeafStatistics(leaf.mDepth + 1, predictionCounts);
+            mTree.setClassCounts(firstChild + i, predictionCounts,
+                    ID3.getMajorityClass(predictionCounts, prediction));
+        }
+    }
+
+    /**
+     * Returns the bin of a value: the first bin whose split value is at least the value, so that values equal to a
+     * split value go left like in the tree, and NaN goes to the last bin
+     */
+    private static int getBin(double[] splitValues, double value) {
+        int bin = Arrays.binarySearch(splitValues, value);
+        return bin >= 0 ? bin : -bin - 1;
+    }
+
+    /**
+     * Predicts the class of a row with the tree learnt so far
+     *
+     * @param features Feature array of the row
+     * @return Predicted class code
+     */
+    @Override
+    public int predict(double[] features) {
+        return mTree.predict(features);
+    }
+
+    /**
+     * @return Copy of the tree learnt so far
+     */
+    public ID3Tree getTree() {
+        return mTree.copy();
+    }
+
+    /**
+     * @return Number of nodes of the tree learnt so far
+     */
+    public int getNumNodes() {
+        return mTree.getNumNodes();
+    }
+
+    /**
+     * @return Number of instances learnt from
+     */
+    public long getNumInstances() {
+        return mNumInstances;
+    }
+
+    /**
+     * Returns the number of bytes held by the statistics of the leaves
+     *
+     * @return Heap footprint of the statistics in bytes, excluding object headers
+     */
+    public long getStatisticsBytes() {
+        long bytes = 0;
+        for (int node = 0; node < mTree.getNumNodes(); node++) {
+            if (mLeaves[node] != null) {
+                bytes += mLeaves[node].getHeapBytes();
+            }
+        }
+        return bytes;
+    }
+}
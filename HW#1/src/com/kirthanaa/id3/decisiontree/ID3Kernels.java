@@ -0,0 +1,428 @@
+package com.kirthanaa.id3.decisiontree;
+
+import com.kirthanaa.id3.dataset.ArrayNumericColumn;
+import com.kirthanaa.id3.dataset.NominalColumn;
+import com.kirthanaa.id3.dataset.NumericColumn;
+
+/**
+ * Counting and comparison loops of the split search: class histograms, the joint value and class histogram of a
+ * nominal attribute, the bin histograms of the binned search, and the threshold comparisons of a numeric split.
+ * <p>
+ * Two implementations are available. The scalar kernels read every value through the column abstraction, one row at a
+ * time. The unrolled kernels work on the primitive arrays behind byte coded nominal columns and in-memory numeric
+ * columns, four rows per iteration, and spread the counts over four interleaved copies of the histogram that are
+ * added up at the end, so consecutive rows of the same class do not wait on each other's increment. Comparisons are
+ * turned into 0 or 1 masks that are summed instead of branched on. Other columns, such as memory mapped ones, fall
+ * back to the scalar loops. Both produce the same counts.
+ * <p>
+ * The implementation is chosen once, when the class is loaded, from the id3.kernels system property (scalar or
+ * unrolled) and defaults to unrolled.
+ */
+public abstract class ID3Kernels {
+
+    public static final String KERNELS_PROPERTY = "id3.kernels";
+
+    public static final ID3Kernels SCALAR = new ScalarKernels();
+
+    public static final ID3Kernels UNROLLED = new UnrolledKernels();
+
+    private static final ID3Kernels KERNELS = "scalar".equalsIgnoreCase(System.getProperty(KERNELS_PROPERTY))
+            ? SCALAR : UNROLLED;
+
+    /**
+     * Histograms longer than this are counted without interleaved copies, which would no longer fit in the L1 cache
+     */
+    private static final int MAX_LANE_LENGTH = 1024;
+
+    /**
+     * @return Kernels selected at startup
+     */
+    public static ID3Kernels get() {
+        return KERNELS;
+    }
+
+    /**
+     * @return Name of the implementation
+     */
+    public abstract String getName();
+
+    /**
+     * Adds up the codes of the first rows of a column
+     *
+     * @param column  Nominal column
+     * @param numRows Number of rows to count, from row 0
+     * @param counts  Receives the number of rows having each code, one entry per code
+     */
+    public abstract void countCodes(NominalColumn column, int numRows, int[] counts);
+
+    /**
+     * Adds up the codes of the rows in a range of a row index
+     *
+     * @param column Nominal column
+     * @param rows   Row index
+     * @param from   First position of the rows in the row index
+     * @param to     Position after the last row
+     * @param counts Receives the number of rows having each code, one entry per code
+     */
+    public abstract void countCodes(NominalColumn column, int[] rows, int from, int to, int[] counts);
+
+    /**
+     * Adds up the values of a nominal attribute and their classes over a range of a row index. Rows missing the value
+     * (code -1) are not counted.
+     *
+     * @param column           Nominal column of the attribute
+     * @param classColumn      Class column
+     * @param rows             Row index
+     * @param from             First position of the rows in the row index
+     * @param to               Position after the last row
+     * @param numberOfValues   Number of values of the attribute
+     * @param numberOfClasses  Number of classes
+     * @param valueCounts      Receives the number of rows having each value
+     * @param valueClassCounts Receives the class counts of each value, indexed by value * number of classes + class
+     */
+    public abstract void countValueClasses(NominalColumn column, NominalColumn classColumn, int[] rows, int from,
+                                           int to, int numberOfValues, int numberOfClasses, int[] valueCounts,
+                                           int[] valueClassCounts);
+
+    /**
+     * Adds up the bins of a binned numeric attribute and their classes over a range of a row index
+     *
+     * @param binCodes        Bin of every row, as an unsigned byte
+     * @param rows            Row index
+     * @param from            First position of the rows in the row index
+     * @param to              Position after the last row
+     * @param rowClasses      Class of the row at every position from from, starting at 0
+     * @param numberOfBins    Number of bins of the attribute
+     * @param numberOfClasses Number of classes
+     * @param histogram       Receives the class counts of each bin, indexed by bin * number of classes + class
+     */
+    public abstract void countBinClasses(byte[] binCodes, int[] rows, int from, int to, int[] rowClasses,
+                                         int numberOfBins, int numberOfClasses, int[] histogram);
+
+    /**
+     * Adds up the classes of the rows at or below a threshold and of the rows above it. NaN values are above.
+     *
+     * @param column            Numeric column
+     * @param classColumn       Class column
+     * @param rows              Row index
+     * @param from              First position of the rows in the row index
+     * @param to                Position after the last row
+     * @param threshold         Split value
+     * @param lessThanCounts    Receives the class counts of the rows at or below the threshold
+     * @param greaterThanCounts Receives the class counts of the rows above the threshold
+     * @return Number of rows at or below the threshold
+     */
+    public abstract int countThresholdClasses(NumericColumn column, NominalColumn classColumn, int[] rows, int from,
+                                              int to, double threshold, int[] lessThanCounts,
+                                              int[] greaterThanCounts);
+
+    /**
+     * Compares the rows in a range of a row index to a threshold
+     *
+     * @param column    Numeric column
+     * @param rows      Row index
+     * @param from      First position of the rows in the row index
+     * @param to        Position after the last row
+     * @param threshold Split value
+     * @param mask      Receives 0 for every row at or below the threshold and 1 for every row above it or NaN, at
+     *                  the position of the row minus from
+     * @return Number of rows at or below the threshold
+     */
+    public abstract int getThresholdMask(NumericColumn column, int[] rows, int from, int to, double threshold,
+                                         int[] mask);
+
+    /**
+     * Kernels reading one row at a time through the column abstraction
+     */
+    static class ScalarKernels extends ID3Kernels {
+
+        @Override
+        public String getName() {
+            return "scalar";
+        }
+
+        @Override
+        public void countCodes(NominalColumn column, int numRows, int[] counts) {
+            for (int row = 0; row < numRows; row++) {
+                counts[column.getCode(row)]++;
+            }
+        }
+
+        @Override
+        public void countCodes(NominalColumn column, int[] rows, int from, int to, int[] counts) {
+            for (int i = from; i < to; i++) {
+                counts[column.getCode(rows[i])]++;
+            }
+        }
+
+        @Override
+        public void countValueClasses(NominalColumn column, NominalColumn classColumn, int[] rows, int from, int to,
+                                      int numberOfValues, int numberOfClasses, int[] valueCounts,
+                                      int[] valueClassCounts) {
+            for (int i = from; i < to; i++) {
+                int code = column.getCode(rows[i]);
+                if (code >= 0) {
+                    valueCounts[code]++;
+                    valueClassCounts[code * numberOfClasses + classColumn.getCode(rows[i])]++;
+                }
+            }
+        }
+
+        @Override
+        public void countBinClasses(byte[] binCodes, int[] rows, int from, int to, int[] rowClasses,
+                                    int numberOfBins, int numberOfClasses, int[] histogram) {
+            for (int i = from; i < to; i++) {
+                histogram[(binCodes[rows[i]] & 0xff) * numberOfClasses + rowClasses[i - from]]++;
+            }
+        }
+
+        @Override
+        public int countThresholdClasses(NumericColumn column, NominalColumn classColumn, int[] rows, int from,
+                                         int to, double threshold, int[] lessThanCounts, int[] greaterThanCounts) {
+            int lessThanCount = 0;
+            for (int i = from; i < to; i++) {
+                if (column.getValue(rows[i]) <= threshold) {
+                    lessThanCounts[classColumn.getCode(rows[i])]++;
+                    lessThanCount++;
+                } else {
+                    greaterThanCounts[classColumn.getCode(rows[i])]++;
+                }
+            }
+            return lessThanCount;
+        }
+
+        @Override
+        public int getThresholdMask(NumericColumn column, int[] rows, int from, int to, double threshold,
+                                    int[] mask) {
+            int lessThanCount = 0;
+            for (int i = from; i < to; i++) {
+                if (column.getValue(rows[i]) <= threshold) {
+                    mask[i - from] = 0;
+                    lessThanCount++;
+                } else {
+                    mask[i - from] = 1;
+                }
+            }
+            return lessThanCount;
+        }
+    }
+
+    /**
+     * Kernels unrolled four rows at a time over the arrays behind the columns, with four interleaved histograms
+     */
+    static class UnrolledKernels extends ScalarKernels {
+
+        @Override
+        public String getName() {
+            return "unrolled";
+        }
+
+        /**
+         * Returns zeroed room for four copies of a histogram
+         *
+         * @param length Length of one histogram
+         * @return Buffer of at least 4 * length entries
+         */
+        private static int[] getLanes(int length) {
+            return ID3Scratch.get().getAtLeast(ID3Scratch.KERNEL_LANES, 4 * length);
+        }
+
+        /**
+         * Adds the four copies of a histogram to it
+         *
+         * @param lanes     Four histograms of length entries, one after the other
+         * @param length    Length of one histogram
+         * @param histogram Histogram receiving the sum
+         */
+        private static void addLanes(int[] lanes, int length, int[] histogram) {
+            for (int j = 0; j < length; j++) {
+                histogram[j] += lanes[j] + lanes[length + j] + lanes[2 * length + j] + lanes[3 * length + j];
+            }
+        }
+
+        @Override
+        public void countCodes(NominalColumn column, int numRows, int[] counts) {
+            if (!(column instanceof NominalColumn.ByteNominalColumn) || counts.length > MAX_LANE_LENGTH) {
+                super.countCodes(column, numRows, counts);
+                return;
+            }
+            byte[] codes = ((NominalColumn.ByteNominalColumn) column).getCodes();
+            int length = counts.length;
+            int[] lanes = getLanes(length);
+            int row = 0;
+            for (; row + 3 < numRows; row += 4) {
+                lanes[codes[row]]++;
+                lanes[length + codes[row + 1]]++;
+                lanes[2 * length + codes[row + 2]]++;
+                lanes[3 * length + codes[row + 3]]++;
+            }
+            for (; row < numRows; row++) {
+                lanes[codes[row]]++;
+            }
+            addLanes(lanes, length, counts);
+        }
+
+        @Override
+        public void countCodes(NominalColumn column, int[] rows, int from, int to, int[] counts) {
+            if (!(column instanceof NominalColumn.ByteNominalColumn) || counts.length > MAX_LANE_LENGTH) {
+                super.countCodes(column, rows, from, to, counts);
+                return;
+            }
+            byte[] codes = ((NominalColumn.ByteNominalColumn) column).getCodes();
+            int length = counts.length;
+            int[] lanes = getLanes(length);
+            int i = from;
+            for (; i + 3 < to; i += 4) {
+                lanes[codes[rows[i]]]++;
+                lanes[length + codes[rows[i + 1]]]++;
+                lanes[2 * length + codes[rows[i + 2]]]++;
+                lanes[3 * length + codes[rows[i + 3]]]++;
+            }
+            for (; i < to; i++) {
+                lanes[codes[rows[i]]]++;
+            }
+            addLanes(lanes, length, counts);
+        }
+
+        @Override
+        public void countValueClasses(NominalColumn column, NominalColumn classColumn, int[] rows, int from, int to,
+                                      int numberOfValues, int numberOfClasses, int[] valueCounts,
+                                      int[] valueClassCounts) {
+            // Lanes start with one entry per class for the missing code -1, which is dropped
+            int length = (numberOfValues + 1) * numberOfClasses;
+            if (!(column instanceof NominalColumn.ByteNominalColumn)
+                    || !(classColumn instanceof NominalColumn.ByteNominalColumn) || length > MAX_LANE_LENGTH) {
+                super.countValueClasses(column, classColumn, rows, from, to, numberOfValues, numberOfClasses,
+                        valueCounts, valueClassCounts);
+                return;
+            }
+            byte[] codes = ((NominalColumn.ByteNominalColumn) column).getCodes();
+            byte[] classCodes = ((NominalColumn.ByteNominalColumn) classColumn).getCodes();
+            int[] lanes = getLanes(length);
+            int i = from;
+            for (; i + 3 < to; i += 4) {
+                int row0 = rows[i];
+                int row1 = rows[i + 1];
+                int row2 = rows[i + 2];
+                int row3 = rows[i + 3];
+                lanes[(codes[row0] + 1) * numberOfClasses + classCodes[row0]]++;
+                lanes[length + (codes[row1] + 1) * numberOfClasses + classCodes[row1]]++;
+                lanes[2 * length + (codes[row2] + 1) * numberOfClasses + classCodes[row2]]++;
+                lanes[3 * length + (codes[row3] + 1) * numberOfClasses + classCodes[row3]]++;
+            }
+            for (; i < to; i++) {
+                lanes[(codes[rows[i]] + 1) * numberOfClasses + classCodes[rows[i]]]++;
+            }
+            for (int value = 0; value < numberOfValues; value++) {
+                int offset = value * numberOfClasses;
+                for (int c = 0; c < numberOfClasses; c++) {
+                    int j = numberOfClasses + offset + c;
+                    int count = lanes[j] + lanes[length + j] + lanes[2 * length + j] + lanes[3 * length + j];
+                    valueClassCounts[offset + c] += count;
+                    valueCounts[value] += count;
+                }
+            }
+        }
+
+        @Override
+        public void countBinClasses(byte[] binCodes, int[] rows, int from, int to, int[] rowClasses,
+                                    int numberOfBins, int numberOfClasses, int[] histogram) {
+            int length = numberOfBins * numberOfClasses;
+            if (length > MAX_LANE_LENGTH) {
+                super.countBinClasses(binCodes, rows, from, to, rowClasses, numberOfBins, numberOfClasses,
+                        histogram);
+                return;
+            }
+            int[] lanes = getLanes(length);
+            int i = from;
+            for (; i + 3 < to; i += 4) {
+                int k = i - from;
+                lanes[(binCodes[rows[i]] & 0xff) * numberOfClasses + rowClasses[k]]++;
+                lanes[length + (binCodes[rows[i + 1]] & 0xff) * numberOfClasses + rowClasses[k + 1]]++;
+                lanes[2 * length + (binCodes[rows[i + 2]] & 0xff) * numberOfClasses + rowClasses[k + 2]]++;
+                lanes[3 * length + (binCodes[rows[i + 3]] & 0xff) * numberOfClasses + rowClasses[k + 3]]++;
+            }
+            for (; i < to; i++) {
+                lanes[(binCodes[rows[i]] & 0xff) * numberOfClasses + rowClasses[i - from]]++;
+            }
+            addLanes(lanes, length, histogram);
+        }
+
+        @Override
+        public int countThresholdClasses(NumericColumn column, NominalColumn classColumn, int[] rows, int from,
+                                         int to, double threshold, int[] lessThanCounts, int[] greaterThanCounts) {
+            int numberOfClasses = lessThanCounts.length;
+            int length = 2 * numberOfClasses;
+            if (!(column instanceof ArrayNumericColumn) || !(classColumn instanceof NominalColumn.ByteNominalColumn)
+                    || length > MAX_LANE_LENGTH) {
+                return super.countThresholdClasses(column, classColumn, rows, from, to, threshold, lessThanCounts,
+                        greaterThanCounts);
+            }
+            double[] values = ((ArrayNumericColumn) column).getValues();
+            byte[] classCodes = ((NominalColumn.ByteNominalColumn) classColumn).getCodes();
+            // Each lane interleaves the two sides: class * 2 for the rows at or below, class * 2 + 1 for the others
+            int[] lanes = getLanes(length);
+            int i = from;
+            for (; i + 3 < to; i += 4) {
+                int row0 = rows[i];
+                int row1 = rows[i + 1];
+                int row2 = rows[i + 2];
+                int row3 = rows[i + 3];
+                lanes[(classCodes[row0] << 1) | (values[row0] <= threshold ? 0 : 1)]++;
+                lanes[length + ((classCodes[row1] << 1) | (values[row1] <= threshold ? 0 : 1))]++;
+                lanes[2 * length + ((classCodes[row2] << 1) | (values[row2] <= threshold ? 0 : 1))]++;
+                lanes[3 * length + ((classCodes[row3] << 1) | (values[row3] <= threshold ? 0 : 1))]++;
+            }
+            for (; i < to; i++) {
+                lanes[(classCodes[rows[i]] << 1) | (values[rows[i]] <= threshold ? 0 : 1)]++;
+            }
+            int lessThanCount = 0;
+            for (int c = 0; c < numberOfClasses; c++) {
+                int less = 2 * c;
+                int greater = less + 1;
+                int lessCount = lanes[less] + lanes[length + less] + lanes[2 * length + less]
+                        + lanes[3 * length + less];
+                lessThanCounts[c] += lessCount;
+                greaterThanCounts[c] += lanes[greater] + lanes[length + greater] + lanes[2 * length + greater]
+                        + lanes[3 * length + greater];
+                lessThanCount += lessCount;
+            }
+            return lessThanCount;
+        }
+
+        @Override
+        public int getThresholdMask(NumericColumn column, int[] rows, int from, int to, double threshold,
+                                    int[] mask) {
+            if (!(column instanceof ArrayNumericColumn)) {
+                return super.getThresholdMask(column, rows, from, to, threshold, mask);
+            }
+            double[] values = ((ArrayNumericColumn) column).getValues();
+            int greater0 = 0;
+            int greater1 = 0;
+            int greater2 = 0;
+            int greater3 = 0;
+            int i = from;
+            for (; i + 3 < to; i += 4) {
+                int k = i - from;
+                int mask0 = values[rows[i]] <= threshold ? 0 : 1;
+                int mask1 = values[rows[i + 1]] <= threshold ? 0 : 1;
+                int mask2 = values[rows[i + 2]] <= threshold ? 0 : 1;
+                int mask3 = values[rows[i + 3]] <= threshold ? 0 : 1;
+                mask[k] = mask0;
+                mask[k + 1] = mask1;
+                mask[k + 2] = mask2;
+                mask[k + 3] = mask3;
+                greater0 += mask0;
+                greater1 += mask1;
+                greater2 += mask2;
+                greater3 += mask3;
+            }
+            for (; i < to; i++) {
+                int mask0 = values[rows[i]] <= threshold ? 0 : 1;
+                mask[i - from] = mask0;
+                greater0 += mask0;
+            }
+            return to - from - (greater0 + greater1 + greater2 + greater3);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.kirthanaa.id3.decisiontree;
+
+import com.kirthanaa.id3.arffreader.ARFFReader;
+import com.kirthanaa.id3.arffreader.ID3BinaryFiles;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.entities.ID3Attribute;
+import com.kirthanaa.id3.entities.ID3Class;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file holding a trained ID3Tree, loaded by memory-mapping it.
+ * <p>
+ * All numbers are little endian. The file starts with the magic number, the format version and the length of the
+ * header. The header holds the attribute list, the class labels and the number of nodes. It is followed by the node
+ * arrays of the tree (attributes, split values, first children, predictions and class counts), each stored as is, and
+ * a CRC32 of everything before it.
+ * <p>
+ * Loading maps the file and bulk-copies every node array out of the mapping, so a model is ready to score in about
+ * the time it takes to read its bytes once, with no parsing and no retraining. The node arrays are validated on load,
+ * so a corrupt or truncated file is rejected with an IOException instead of failing at prediction time.
+ */
+public class ID3ModelFile {
+
+    public static final String MODEL_EXTENSION = ".id3m";
+
+    private static final int MAGIC = 0x4944334D;
+
+    private static final int VERSION = 1;
+
+    private static final int PRELUDE_BYTES = 12;
+
+    private static final int BUFFER_SIZE = 1 << 12;
+
+    private ID3ModelFile() {
+    }
+
+    /**
+     * Writes a tree to a model file.
+     * The model is written to a temporary file that is then renamed, so a service reloading the file never sees a
+     * partial model.
+     *
+     * @param tree      Trained tree
+     * @param modelFile Model file to write
+     * @throws IOException If the model cannot be written
+     */
+    public static void write(ID3Tree tree, File modelFile) throws IOException {
+        ArrayList<ID3Attribute> attributeList = tree.getAttributeList();
+        ID3Class id3Class = tree.getID3Class();
+        int numNodes = tree.getNumNodes();
+        int numClasses = id3Class.mNoOfClasses;
+
+        ByteBuffer header = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header = ID3BinaryFiles.putInt(header, attributeList.size());
+        for (ID3Attribute attribute : attributeList) {
+            header = ID3BinaryFiles.putInt(header, attribute.mAttributeType);
+            header = ID3BinaryFiles.putString(header, attribute.mAttributeName);
+            if (attribute.mAttributeType == ID3Attribute.NOMINAL) {
+                header = ID3BinaryFiles.putInt(header, attribute.mAttributeValues.length);
+                for (String value : attribute.mAttributeValues) {
+                    header = ID3BinaryFiles.putString(header, value);
+                }
+            }
+        }
+        header = ID3BinaryFiles.putInt(header, numClasses);
+        for (String label : id3Class.mClassLabels) {
+            header = ID3BinaryFiles.putString(header, label);
+        }
+        header = ID3BinaryFiles.putInt(header, numNodes);
+        header.flip();
+
+        long bodyBytes = (long) numNodes * (4 + 8 + 4 + 4 + 4L * numClasses);
+        if (PRELUDE_BYTES + header.remaining() + bodyBytes + 8 > Integer.MAX_VALUE) {
+            throw new IOException("Tree of " + numNodes + " nodes is too large for a model file");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(PRELUDE_BYTES + header.remaining() + (int) bodyBytes + 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(header.remaining());
+        buffer.put(header);
+        for (int node = 0; node < numNodes; node++) {
+            buffer.putInt(tree.getAttribute(node));
+        }
+        for (int node = 0; node < numNodes; node++) {
+            buffer.putDouble(tree.getSplitValue(node));
+        }
+        for (int node = 0; node < numNodes; node++) {
+            buffer.putInt(tree.getFirstChild(node));
+        }
+        for (int node = 0; node < numNodes; node++) {
+            buffer.putInt(tree.getPrediction(node));
+        }
+        for (int node = 0; node < numNodes; node++) {
+            for (int c = 0; c < numClasses; c++) {
+                buffer.putInt(tree.getClassCount(node, c));
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        File tempFile = ID3BinaryFiles.createTempFile(modelFile);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(tempFile, "rw");
+        try {
+            randomAccessFile.setLength(0);
+            FileChannel channel = randomAccessFile.getChannel();
+            ID3BinaryFiles.writeFully(channel, buffer);
+            channel.force(false);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        ID3BinaryFiles.replace(tempFile, modelFile);
+    }
+
+    /**
+     * Loads a tree from a model file
+     *
+     * @param modelFile Model file
+     * @return Tree, predicting exactly like the tree that was written
+     * @throws IOException If the file cannot be read, is not a model file or is corrupt
+     */
+    public static ID3Tree load(File modelFile) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(modelFile, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long fileSize = channel.size();
+            if (fileSize < PRELUDE_BYTES + 8 || fileSize > Integer.MAX_VALUE) {
+                throw new IOException(modelFile + " is not an ID3 model file");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(modelFile + " is not an ID3 model file");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException(modelFile + " has unsupported model version " + version);
+            }
+            ByteBuffer checked = buffer.duplicate();
+            checked.position(0).limit((int) fileSize - 8);
+            CRC32 crc = new CRC32();
+            crc.update(checked);
+            if (buffer.getLong((int) fileSize - 8) != crc.getValue()) {
+                throw new IOException(modelFile + " is corrupt: checksum mismatch");
+            }
+            int headerLength = buffer.getInt();
+
+            int numAttributes = buffer.getInt();
+            ArrayList<ID3Attribute> attributeList = new ArrayList<ID3Attribute>(numAttributes);
+            for (int i = 0; i < numAttributes; i++) {
+                int attributeType = buffer.getInt();
+                String name = ID3BinaryFiles.getString(buffer);
+                String[] values = null;
+                if (attributeType == ID3Attribute.NOMINAL) {
+                    values = new String[buffer.getInt()];
+                    for (int v = 0; v < values.length; v++) {
+                        values[v] = ID3BinaryFiles.getString(buffer);
+                    }
+                }
+                attributeList.add(new ID3Attribute(i, name, attributeType, values));
+            }
+            String[] classLabels = new String[buffer.getInt()];
+            for (int c = 0; c < classLabels.length; c++) {
+                classLabels[c] = ID3BinaryFiles.getString(buffer);
+            }
+            int numNodes = buffer.getInt();
+            if (buffer.position() != PRELUDE_BYTES + headerLength) {
+                throw new IOException(modelFile + " is corrupt: unexpected header length");
+            }
+            if (numNodes < 1 || buffer.position() + (long) numNodes * (20 + 4L * classLabels.length) + 8 != fileSize) {
+                throw new IOException(modelFile + " is corrupt: unexpected size");
+            }
+
+            int[] attribute = new int[numNodes];
+            double[] splitValue = new double[numNodes];
+            int[] firstChild = new int[numNodes];
+            int[] prediction = new int[numNodes];
+            int[] classCounts = new int[numNodes * classLabels.length];
+            int offset = buffer.position();
+            ((ByteBuffer) buffer.position(offset)).asIntBuffer().get(attribute);
+            offset += 4 * numNodes;
+            ((ByteBuffer) buffer.position(offset)).asDoubleBuffer().get(splitValue);
+            offset += 8 * numNodes;
+            ((ByteBuffer) buffer.position(offset)).asIntBuffer().get(firstChild);
+            offset += 4 * numNodes;
+            ((ByteBuffer) buffer.position(offset)).asIntBuffer().get(prediction);
+            offset += 4 * numNodes;
+            ((ByteBuffer) buffer.position(offset)).asIntBuffer().get(classCounts);
+
+            ID3Tree tree = new ID3Tree(attributeList, new ID3Class(classLabels), attribute, splitValue, firstChild,
+                    prediction, classCounts);
+            validate(tree, modelFile);
+            return tree;
+        } catch (RuntimeException e) {
+            // A truncated header or an out of range length
+            throw new IOException(modelFile + " is corrupt: " + e, e);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Checks that every node points at valid attributes, children and classes, so that prediction can only ever walk
+     * down the tree
+     */
+    private static void validate(ID3Tree tree, File modelFile) throws IOException {
+        int numNodes = tree.getNumNodes();
+        int numAttributes = tree.getAttributeList().size();
+        int numClasses = tree.getID3Class().mNoOfClasses;
+        for (int node = 0; node < numNodes; node++) {
+            int attributeOrdinal = tree.getAttribute(node);
+            int prediction = tree.getPrediction(node);
+            if (prediction < 0 || prediction >= numClasses) {
+                throw new IOException(modelFile + " is corrupt: node " + node + " predicts class " + prediction);
+            }
+            if (attributeOrdinal == ID3Tree.LEAF) {
+                continue;
+            }
+            if (attributeOrdinal < 0 || attributeOrdinal >= numAttributes) {
+                throw new IOException(modelFile + " is corrupt: node " + node + " splits on " + attributeOrdinal);
+            }
+            int firstChild = tree.getFirstChild(node);
+            if (firstChild <= node || (long) firstChild + tree.getNumChildren(node) > numNodes) {
+                throw new IOException(modelFile + " is corrupt: node " + node + " has children at " + firstChild);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: ID3ModelFile <train-set-file> <model-file> [m]");
+            return;
+        }
+        ARFFReader arffReader = new ARFFReader(args[0]);
+        arffReader.parseARFFFile();
+        ID3Dataset trainData = arffReader.getDataset();
+        if (trainData == null) {
+            return;
+        }
+        int minInstances = args.length > 2 ? Integer.parseInt(args[2]) : ID3.DEFAULT_MIN_INSTANCES;
+        ID3Tree tree = new ID3(minInstances, ID3.DEFAULT_MAX_DEPTH).buildTree(trainData);
+        File modelFile = new File(args[1]);
+        write(tree, modelFile);
+        System.out.println("Wrote a " + tree.getNumNodes() + " node tree to " + modelFile + " ("
+                + modelFile.length() + " bytes)");
+    }
+}
@@ -0,0 +1,396 @@
+package com.kirthanaa.id3.decisiontree;
+
+import com.kirthanaa.id3.arffreader.ID3DatasetCache;
+import com.kirthanaa.id3.criterion.NLogNTable;
+import com.kirthanaa.id3.dataset.ID3Binning;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.dataset.NominalColumn;
+import com.kirthanaa.id3.dataset.NumericColumn;
+import com.kirthanaa.id3.entities.ID3Attribute;
+import com.kirthanaa.id3.metrics.TrainingListener;
+import com.kirthanaa.id3.metrics.TrainingLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Trains ID3 trees on datasets larger than the heap.
+ * <p>
+ * The dataset is read in place from its memory-mapped snapshot (see ID3DatasetCache). Numeric attributes are binned
+ * like ID3.buildTree(ID3Dataset, ID3Binning), with the bin boundaries taken from a fixed size sample of every column
+ * and the bin codes written to a memory-mapped scratch file. The rows of each node are kept as a range of an
+ * off-heap row index, also in the scratch file, and every split partitions that range into the same range of a second
+ * index, so children never copy their rows onto the heap. Each node streams its rows once to count its class
+ * histograms, scores the splits with the trainer's criterion and then partitions the rows.
+ * <p>
+ * The heap used during training is bounded by the heap budget: a quarter of it at most goes to the binning sample, a
+ * quarter to the histograms of the node being split and half to the tree. Nodes that would take the tree over its
+ * share become leaves. The shared entropy lookup table (at most 16 MB) is not counted.
+ */
+public class ID3OutOfCoreTrainer {
+
+    public static final long DEFAULT_HEAP_BUDGET = 64L << 20;
+
+    public static final int MAX_INSTANCES = Integer.MAX_VALUE / 4;
+
+    private static final long SAMPLE_SEED = 42L;
+
+    private final ID3 mId3;
+
+    private final int mMaxBins;
+
+    private final long mHeapBudget;
+
+    private final File mScratchDirectory;
+
+    /**
+     * @param id3              Trainer holding the stopping rules and the split criterion
+     * @param maxBins          Maximum number of bins per numeric attribute, at most ID3Binning.MAX_BINS
+     * @param heapBudget       Maximum number of heap bytes used for training
+     * @param scratchDirectory Directory of the scratch file, or null for the default temporary directory
+     */
+    public ID3OutOfCoreTrainer(ID3 id3, int maxBins, long heapBudget, File scratchDirectory) {
+        if (maxBins < 2 || maxBins > ID3Binning.MAX_BINS) {
+            throw new IllegalArgumentException("Number of bins must be between 2 and " + ID3Binning.MAX_BINS);
+        }
+        this.mId3 = id3;
+        this.mMaxBins = maxBins;
+        this.mHeapBudget = heapBudget;
+        this.mScratchDirectory = scratchDirectory;
+    }
+
+    /**
+     * Builds a decision tree from an ARFF file, converting it to a snapshot first if it has no up to date one
+     *
+     * @param arffFile ARFF file, optionally gzip compressed
+     * @return Trained decision tree
+     * @throws IOException If the file cannot be converted or the scratch file cannot be written
+     */
+    public ID3Tree buildTree(File arffFile) throws IOException {
+        File cacheFile = ID3DatasetCache.getCacheFile(arffFile);
+        ID3Dataset data = ID3DatasetCache.load(cacheFile, arffFile);
+        if (data == null) {
+            ID3DatasetCache.convert(arffFile, cacheFile);
+            data = ID3DatasetCache.load(cacheFile, arffFile);
+            if (data == null) {
+                throw new IOException("Could not load " + cacheFile);
+            }
+        }
+        return buildTree(data);
+    }
+
+    /**
+     * Builds a decision tree from all instances of the dataset
+     *
+     * @param data Training data, ideally loaded from a snapshot so that its columns are off the heap
+     * @return Trained decision tree
+     * @throws IOException If the scratch file cannot be written
+     */
+    public ID3Tree buildTree(ID3Dataset data) throws IOException {
+        int numInstances = data.getNumInstances();
+        if (numInstances > MAX_INSTANCES) {
+            throw new IllegalArgumentException("At most " + MAX_INSTANCES + " instances can be trained out of core");
+        }
+        ArrayList<ID3Attribute> attributeList = data.getAttributeList();
+        int numberOfClasses = data.getID3Class().mNoOfClasses;
+        long histogramBytes = 4L * numberOfClasses;
+        int numNumeric = 0;
+        for (ID3Attribute attribute : attributeList) {
+            if (attribute.mAttributeType == ID3Attribute.NUMERIC) {
+                histogramBytes += 4L * mMaxBins * numberOfClasses + 16L * mMaxBins;
+                numNumeric++;
+            } else {
+                histogramBytes += 4L * attribute.getNumberOfAttributeValues() * (numberOfClasses + 1);
+            }
+        }
+        int sampleSize = (int) Math.min(numInstances, mHeapBudget / 4 / 8);
+        if (histogramBytes > mHeapBudget / 4 || sampleSize < Math.min(numInstances, mMaxBins)) {
+            throw new IllegalArgumentException("Heap budget of " + mHeapBudget + " bytes is too small for "
+                    + attributeList.size() + " attributes and " + mMaxBins + " bins");
+        }
+        // The tree arrays grow by half, so while they are copied a node takes two and a half times its size
+        long nodeBytes = 20L + 4L * numberOfClasses;
+        long maxNodes = mHeapBudget / 2 * 2 / (5 * nodeBytes);
+
+        long startNanos = System.nanoTime();
+        NLogNTable.ensureCapacity(numInstances);
+        File scratchFile = File.createTempFile("id3_", ".scratch", mScratchDirectory);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(scratchFile, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long indexBytes = 4L * numInstances;
+            randomAccessFile.setLength(2 * indexBytes + (long) numNumeric * numInstances);
+            IntBuffer[] rowIndexes = new IntBuffer[]{mapRowIndex(channel, 0, indexBytes),
+                    mapRowIndex(channel, indexBytes, indexBytes)};
+            for (int i = 0; i < numInstances; i++) {
+                rowIndexes[0].put(i, i);
+            }
+
+            ByteBuffer[] binCodes = new ByteBuffer[attributeList.size()];
+            double[][] splitValues = new double[attributeList.size()][];
+            long offset = 2 * indexBytes;
+            Random random = new Random(SAMPLE_SEED);
+            for (ID3Attribute attribute : attributeList) {
+                if (attribute.mAttributeType == ID3Attribute.NUMERIC) {
+                    int ordinal = attribute.mAttributeOrdinal;
+                    binCodes[ordinal] = channel.map(FileChannel.MapMode.READ_WRITE, offset, numInstances);
+                    splitValues[ordinal] = quantize(data.getNumericColumn(ordinal), numInstances, sampleSize, random,
+                            binCodes[ordinal]);
+                    offset += numInstances;
+                }
+            }
+
+            OutOfCoreBuild build = new OutOfCoreBuild(data, rowIndexes, binCodes, splitValues, maxNodes);
+            int root = build.mTree.addNodes(1);
+            build.buildNode(root, 0, 0, numInstances, 0, 0);
+            build.mTree.trimToSize();
+            if (build.mTruncated) {
+                TrainingLog.log(TrainingLog.INFO, "Tree reached the heap budget at " + build.mTree.getNumNodes()
+                        + " nodes");
+            }
+            TrainingListener trainingListener = mId3.getTrainingListener();
+            if (trainingListener != null) {
+                trainingListener.treeBuilt(build.mTree.getNumNodes(), System.nanoTime() - startNanos);
+            }
+            return build.mTree;
+        } finally {
+            randomAccessFile.close();
+            if (!scratchFile.delete()) {
+                scratchFile.deleteOnExit();
+            }
+        }
+    }
+
+    private static IntBuffer mapRowIndex(FileChannel channel, long offset, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, offset, length).order(ByteOrder.nativeOrder())
+                .asIntBuffer();
+    }
+
+    /**
+     * Bins a numeric column using quantiles of a uniform sample of its values.
+     * The upper bound of a bin is the split value after it, so a row is in a bin at or below b exactly when its
+     * value is at most the split value after b, and trees route the rows the same way the histograms count them.
+     * Missing values (NaN) are left out of the quantiles and go to the last bin.
+     *
+     * @param column       Column to bin
+     * @param numInstances Number of rows
+     * @param sampleSize   Number of values sampled
+     * @param random       Source of the sample
+     * @param binCodes     Receives the bin of every row as an unsigned byte
+     * @return Split value after each bin but the last
+     */
+    private double[] quantize(NumericColumn column, int numInstances, int sampleSize, Random random,
+                              ByteBuffer binCodes) {
+        double[] sample = new double[sampleSize];
+        for (int row = 0; row < numInstances; row++) {
+            if (row < sampleSize) {
+                sample[row] = column.getValue(row);
+            } else {
+                int slot = random.nextInt(row + 1);
+                if (slot < sampleSize) {
+                    sample[slot] = column.getValue(row);
+                }
+            }
+        }
+        Arrays.sort(sample);
+        int numValues = sampleSize;
+        while (numValues > 0 && Double.isNaN(sample[numValues - 1])) {
+            numValues--;
+        }
+        double[] lowerBounds = new double[mMaxBins];
+        double[] upperBounds = new double[mMaxBins];
+        int numBins = ID3Binning.getQuantileBins(sample, numValues, mMaxBins, lowerBounds, upperBounds);
+        upperBounds = Arrays.copyOf(upperBounds, numBins);
+
+        for (int row = 0; row < numInstances; row++) {
+            int bin = Arrays.binarySearch(upperBounds, column.getValue(row));
+            if (bin < 0) {
+                bin = Math.max(Math.min(-bin - 1, numBins - 1), 0);
+            }
+            binCodes.put(row, (byte) bin);
+        }
+        return Arrays.copyOf(upperBounds, Math.max(numBins - 1, 0));
+    }
+
+    /**
+     * State of one out-of-core build
+     */
+    private class OutOfCoreBuild {
+
+        private final ID3Dataset mData;
+
+        private final IntBuffer[] mRowIndexes;
+
+        private final ByteBuffer[] mBinCodes;
+
+        private final double[][] mSplitValues;
+
+        private final long mMaxNodes;
+
+        private final ID3Tree mTree;
+
+        private boolean mTruncated = false;
+
+        OutOfCoreBuild(ID3Dataset data, IntBuffer[] rowIndexes, ByteBuffer[] binCodes, double[][] splitValues,
+                       long maxNodes) {
+            this.mData = data;
+            this.mRowIndexes = rowIndexes;
+            this.mBinCodes = binCodes;
+            this.mSplitValues = splitValues;
+            this.mMaxNodes = maxNodes;
+            this.mTree = new ID3Tree(data.getAttributeList(), data.getID3Class());
+        }
+
+        /**
+         * Grows the subtree rooted at a node whose rows are the range [from, to) of a row index
+         *
+         * @param node             Index of the node to grow
+         * @param index            Row index holding the rows of the node, 0 or 1
+         * @param from             First position of the rows in the row index
+         * @param to               Position after the last row
+         * @param depth            Depth of the node
+         * @param parentPrediction Class predicted by the parent, used when no instance reaches the node
+         */
+        void buildNode(int node, int index, int from, int to, int depth, int parentPrediction) {
+            TrainingListener trainingListener = mId3.getTrainingListener();
+            if (trainingListener != null) {
+                trainingListener.nodeBuilt(depth, to - from);
+            }
+            IntBuffer rows = mRowIndexes[index];
+            NominalColumn classColumn = mData.getClassColumn();
+            int[] classCounts = new int[mData.getID3Class().mNoOfClasses];
+            for (int i = from; i < to; i++) {
+                classCounts[classColumn.getCode(rows.get(i))]++;
+            }
+            int prediction = ID3.getMajorityClass(classCounts, parentPrediction);
+            mTree.setClassCounts(node, classCounts, prediction);
+            if (mId3.isStoppingNode(to - from, depth, classCounts, prediction)) {
+                return;
+            }
+
+            ID3Split bestSplit = findBestSplit(rows, from, to, classCounts);
+            if (bestSplit == null) {
+                return;
+            }
+            int numberOfBranches = mBinCodes[bestSplit.mAttributeOrdinal] != null ? 2
+                    : mData.getAttributeList().get(bestSplit.mAttributeOrdinal).getNumberOfAttributeValues();
+            if (mTree.getNumNodes() + numberOfBranches > mMaxNodes) {
+                mTruncated = true;
+                return;
+            }
+
+            int[] branchStarts = partition(bestSplit, numberOfBranches, rows, mRowIndexes[1 - index], from, to);
+            int firstChild = mTree.addNodes(numberOfBranches);
+            mTree.setSplit(node, bestSplit.mAttributeOrdinal, bestSplit.mSplitValue, firstChild);
+            for (int b = 0; b < numberOfBranches; b++) {
+                buildNode(firstChild + b, 1 - index, branchStarts[b], branchStarts[b + 1], depth + 1, prediction);
+            }
+        }
+
+        /**
+         * Streams the rows of a node once to count the class histogram of every attribute, then scores the split of
+         * every attribute. The histograms are dropped when this returns, before the children are grown.
+         */
+        private ID3Split findBestSplit(IntBuffer rows, int from, int to, int[] classCounts) {
+            ArrayList<ID3Attribute> attributeList = mData.getAttributeList();
+            int numberOfClasses = classCounts.length;
+            int numAttributes = attributeList.size();
+            int[][] histograms = new int[numAttributes][];
+            int[][] valueCounts = new int[numAttributes][];
+            NominalColumn[] nominalColumns = new NominalColumn[numAttributes];
+            for (int a = 0; a < numAttributes; a++) {
+                if (mBinCodes[a] != null) {
+                    histograms[a] = new int[(mSplitValues[a].length + 1) * numberOfClasses];
+                } else {
+                    int numberOfValues = attributeList.get(a).getNumberOfAttributeValues();
+                    histograms[a] = new int[numberOfValues * numberOfClasses];
+                    valueCounts[a] = new int[numberOfValues];
+                    nominalColumns[a] = mData.getNominalColumn(a);
+                }
+            }
+
+            NominalColumn classColumn = mData.getClassColumn();
+            for (int i = from; i < to; i++) {
+                int row = rows.get(i);
+                int rowClass = classColumn.getCode(row);
+                for (int a = 0; a < numAttributes; a++) {
+                    if (mBinCodes[a] != null) {
+                        histograms[a][(mBinCodes[a].get(row) & 0xff) * numberOfClasses + rowClass]++;
+                    } else {
+                        int code = nominalColumns[a].getCode(row);
+                        if (code >= 0) {
+                            valueCounts[a][code]++;
+                            histograms[a][code * numberOfClasses + rowClass]++;
+                        }
+                    }
+                }
+            }
+
+            TrainingListener trainingListener = mId3.getTrainingListener();
+            ID3Split[] splits = new ID3Split[numAttributes];
+            for (int a = 0; a < numAttributes; a++) {
+                long startNanos = trainingListener != null ? System.nanoTime() : 0L;
+                if (mBinCodes[a] != null) {
+                    splits[a] = mId3.getBestSplitForHistogram(a, histograms[a], mSplitValues[a], classCounts,
+                            to - from);
+                } else {
+                    splits[a] = mId3.getSplitForKnownValues(attributeList.get(a), valueCounts[a], histograms[a],
+                            numberOfClasses, to - from);
+                }
+                if (trainingListener != null) {
+                    trainingListener.attributeEvaluated(attributeList.get(a), to - from,
+                            splits[a] == null ? 0 : splits[a].mNumCandidates, System.nanoTime() - startNanos);
+                }
+            }
+            return mId3.chooseBestSplit(splits);
+        }
+
+        /**
+         * Copies the range [from, to) of one row index into the same range of the other, grouped by branch and in
+         * their original order within each branch. Rows missing the value of a nominal split go after the last
+         * branch.
+         *
+         * @return Start of every branch and of the missing rows in the target range, followed by to
+         */
+        private int[] partition(ID3Split split, int numberOfBranches, IntBuffer source, IntBuffer target, int from,
+                                int to) {
+            int attributeOrdinal = split.mAttributeOrdinal;
+            ByteBuffer binCodes = mBinCodes[attributeOrdinal];
+            NominalColumn nominalColumn = mData.getNominalColumn(attributeOrdinal);
+            int splitBin = binCodes != null ? Arrays.binarySearch(mSplitValues[attributeOrdinal], split.mSplitValue)
+                    : -1;
+
+            int[] branchStarts = new int[numberOfBranches + 2];
+            for (int i = from; i < to; i++) {
+                branchStarts[getBranch(binCodes, splitBin, nominalColumn, numberOfBranches, source.get(i)) + 1]++;
+            }
+            branchStarts[0] = from;
+            for (int b = 1; b <= numberOfBranches + 1; b++) {
+                branchStarts[b] += branchStarts[b - 1];
+            }
+            int[] next = Arrays.copyOf(branchStarts, numberOfBranches + 1);
+            for (int i = from; i < to; i++) {
+                int row = source.get(i);
+                target.put(next[getBranch(binCodes, splitBin, nominalColumn, numberOfBranches, row)]++, row);
+            }
+            return branchStarts;
+        }
+
+        private int getBranch(ByteBuffer binCodes, int splitBin, NominalColumn nominalColumn, int missingBranch,
+                              int row) {
+            if (binCodes != null) {
+                return (binCodes.get(row) & 0xff) <= splitBin ? 0 : 1;
+            }
+            int code = nominalColumn.getCode(row);
+            return code < 0 ? missingBranch : code;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.kirthanaa.id3.decisiontree;
+
+import com.kirthanaa.id3.criterion.NLogNTable;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.entities.ID3Attribute;
+import com.kirthanaa.id3.metrics.TrainingListener;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds ID3 trees on a ForkJoinPool.
+ * At nodes with at least mSequentialCutoff instances the attributes are evaluated concurrently and every child
+ * subtree is built as a separate task into its own ID3Tree, which is then grafted into the parent in child order.
+ * Smaller nodes are grown sequentially by ID3.buildNode. Ties between attributes are broken by attribute order
+ * after all of them have been evaluated, so the tree is identical to the one built by ID3.buildTree.
+ * <p>
+ * When the data has sparse columns, a node records how many times every row appears at it in a row weight array
+ * before forking its attribute tasks, so that they can search sparse columns through their stored entries as
+ * ID3.buildNode does. The arrays are taken from a pool shared by the build, as only the nodes being evaluated at a
+ * time need one, and are handed back cleared once the attribute tasks have been joined.
+ */
+public class ID3ParallelBuilder {
+
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 8192;
+
+    private final ID3 mId3;
+
+    private final ForkJoinPool mPool;
+
+    private final int mSequentialCutoff;
+
+    public ID3ParallelBuilder(ID3 id3, ForkJoinPool pool) {
+        this(id3, pool, DEFAULT_SEQUENTIAL_CUTOFF);
+    }
+
+    /**
+     * @param id3              Trainer holding the stopping rules and the split search
+     * @param pool             Pool running the tasks
+     * @param sequentialCutoff Nodes with fewer instances than this are grown sequentially
+     */
+    public ID3ParallelBuilder(ID3 id3, ForkJoinPool pool, int sequentialCutoff) {
+        this.mId3 = id3;
+        this.mPool = pool;
+        this.mSequentialCutoff = sequentialCutoff;
+    }
+
+    /**
+     * Builds a decision tree from all instances of the dataset
+     *
+     * @param data Training data
+     * @return Trained decision tree
+     */
+    public ID3Tree buildTree(ID3Dataset data) {
+        int[] rows = new int[data.getNumInstances()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        long startNanos = System.nanoTime();
+        NLogNTable.ensureCapacity(rows.length);
+        ConcurrentLinkedQueue<int[]> rowWeightsPool = data.hasSparseColumns() ? new ConcurrentLinkedQueue<int[]>()
+                : null;
+        ID3Tree tree = mPool.invoke(new SubtreeTask(data, rows, 0, rows.length, 0, 0, rowWeightsPool));
+        tree.trimToSize();
+        TrainingListener trainingListener = mId3.getTrainingListener();
+        if (trainingListener != null) {
+            trainingListener.treeBuilt(tree.getNumNodes(), System.nanoTime() - startNanos);
+        }
+        return tree;
+    }
+
+    /**
+     * Builds the subtree of one node into a new ID3Tree whose root is node 0.
+     * The rows of the node are a range of the row index shared by the whole build. Sibling tasks work on disjoint
+     * ranges, and a node is partitioned before its children are forked, so no two tasks write the same positions.
+     */
+    private class SubtreeTask extends RecursiveTask<ID3Tree> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ID3Dataset mData;
+
+        private final int[] mRows;
+
+        private final int mFrom;
+
+        private final int mTo;
+
+        private final int mDepth;
+
+        private final int mParentPrediction;
+
+        private final ConcurrentLinkedQueue<int[]> mRowWeightsPool;
+
+        SubtreeTask(ID3Dataset data, int[] rows, int from, int to, int depth, int parentPrediction,
+                    ConcurrentLinkedQueue<int[]> rowWeightsPool) {
+            this.mData = data;
+            this.mRows = rows;
+            this.mFrom = from;
+            this.mTo = to;
+            this.mDepth = depth;
+            this.mParentPrediction = parentPrediction;
+            this.mRowWeightsPool = rowWeightsPool;
+        }
+
+        @Override
+        protected ID3Tree compute() {
+            ID3Tree tree = new ID3Tree(mData.getAttributeList(), mData.getID3Class());
+            int root = tree.addNodes(1);
+            int numRows = mTo - mFrom;
+            if (numRows < mSequentialCutoff) {
+                mId3.buildNode(tree, root, mData, mRows, mFrom, mTo, mDepth, mParentPrediction, null);
+                return tree;
+            }
+
+            TrainingListener trainingListener = mId3.getTrainingListener();
+            if (trainingListener != null) {
+                trainingListener.nodeBuilt(mDepth, numRows);
+            }
+            // The thread may run other tasks while this one waits for its children, so the per-thread buffers of
+            // ID3 cannot hold anything this task needs after a fork
+            int[] classCounts = ID3.getClassCounts(mData, mRows, mFrom, mTo, new int[mData.getID3Class().mNoOfClasses]);
+            int prediction = ID3.getMajorityClass(classCounts, mParentPrediction);
+            tree.setClassCounts(root, classCounts, prediction);
+            if (mId3.isStoppingNode(numRows, mDepth, classCounts, prediction)) {
+                return tree;
+            }
+
+            ArrayList<ID3Attribute> attributeList = mData.getAttributeList();
+            ID3Split[] splits = new ID3Split[attributeList.size()];
+            int[] rowWeights = null;
+            if (mRowWeightsPool != null) {
+                rowWeights = mRowWeightsPool.poll();
+                if (rowWeights == null) {
+                    rowWeights = new int[mData.getNumInstances()];
+                }
+                for (int i = mFrom; i < mTo; i++) {
+                    rowWeights[mRows[i]]++;
+                }
+            }
+            try {
+                ArrayList<AttributeTask> attributeTasks = new ArrayList<AttributeTask>(attributeList.size());
+                for (int i = 0; i < attributeList.size(); i++) {
+                    attributeTasks.add(new AttributeTask(attributeList.get(i), mData, mRows, mFrom, mTo, classCounts,
+                            rowWeights));
+                }
+                invokeAll(attributeTasks);
+                for (int i = 0; i < splits.length; i++) {
+                    splits[i] = attributeTasks.get(i).join();
+                }
+            } finally {
+                if (rowWeights != null) {
+                    for (int i = mFrom; i < mTo; i++) {
+                        rowWeights[mRows[i]] = 0;
+                    }
+                    mRowWeightsPool.offer(rowWeights);
+                }
+            }
+            ID3Split bestSplit = mId3.chooseBestSplit(splits);
+            if (bestSplit == null) {
+                return tree;
+            }
+
+            int numberOfBranches = ID3.getNumberOfBranches(mData, bestSplit);
+            int[] branchStarts = new int[numberOfBranches + 2];
+            ID3.partition(mData, mRows, mFrom, mTo, bestSplit, branchStarts, new int[numberOfBranches + 1]);
+            ArrayList<SubtreeTask> childTasks = new ArrayList<SubtreeTask>(numberOfBranches);
+            for (int i = 0; i < numberOfBranches; i++) {
+                childTasks.add(new SubtreeTask(mData, mRows, branchStarts[i], branchStarts[i + 1], mDepth + 1,
+                        prediction, mRowWeightsPool));
+            }
+            invokeAll(childTasks);
+
+            int firstChild = tree.addNodes(numberOfBranches);
+            tree.setSplit(root, bestSplit.mAttributeOrdinal, bestSplit.mSplitValue, firstChild);
+            for (int i = 0; i < childTasks.size(); i++) {
+                tree.graft(firstChild + i, childTasks.get(i).join());
+            }
+            return tree;
+        }
+    }
+
+    /**
+     * Finds the best split of a node on one attribute
+     */
+    private class AttributeTask extends RecursiveTask<ID3Split> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ID3Attribute mAttribute;
+
+        private final ID3Dataset mData;
+
+        private final int[] mRows;
+
+        private final int mFrom;
+
+        private final int mTo;
+
+        private final int[] mClassCounts;
+
+        private final int[] mRowWeights;
+
+        AttributeTask(ID3Attribute attribute, ID3Dataset data, int[] rows, int from, int to, int[] classCounts,
+                      int[] rowWeights) {
+            this.mAttribute = attribute;
+            this.mData = data;
+            this.mRows = rows;
+            this.mFrom = from;
+            this.mTo = to;
+            this.mClassCounts = classCounts;
+            this.mRowWeights = rowWeights;
+        }
+
+        @Override
+        protected ID3Split compute() {
+            return mId3.evaluateAttribute(mAttribute, mData, mRows, mFrom, mTo, mClassCounts, mRowWeights);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.kirthanaa.id3.decisiontree;
+
+/**
+ * Predicts the class of one row given as a feature array indexed by attribute ordinal, holding the value of every
+ * NUMERIC attribute and the code of every NOMINAL attribute, as filled by ID3Dataset.getFeatures.
+ * Implementations are the interpreted ID3Tree and the classes generated by ID3TreeCompiler, and are thread safe.
+ */
+public interface ID3Predictor {
+
+    /**
+     * @param features Feature array of the row
+     * @return Predicted class code
+     */
+    int predict(double[] features);
+}
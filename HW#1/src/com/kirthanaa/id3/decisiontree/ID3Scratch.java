@@ -0,0 +1,223 @@
+package com.kirthanaa.id3.decisiontree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Per-thread buffers reused by the split search and the partitioning of every node, so growing a tree allocates
+ * almost nothing per node. Each thread keeps buffers sized for the largest node it has trained.
+ * <p>
+ * Buffers are handed out by slot and are only valid until the same slot is requested again on the same thread, so
+ * they must not be held across a call that may grow another node. Branch boundaries and the bin histograms of the
+ * binned builder are kept per depth, since they are needed while the children of a node are grown.
+ */
+final class ID3Scratch {
+
+    static final int CLASS_COUNTS = 0;
+
+    static final int TOTAL_COUNTS = 1;
+
+    static final int LESS_THAN_COUNTS = 2;
+
+    static final int GREATER_THAN_COUNTS = 3;
+
+    static final int BRANCH_TOTALS = 4;
+
+    static final int ATTRIBUTE_COUNT = 5;
+
+    static final int HISTOGRAM = 6;
+
+    static final int ROW_CLASSES = 7;
+
+    static final int SORT_CLASSES = 8;
+
+    static final int SORT_CLASS_BUFFER = 9;
+
+    static final int RADIX_COUNTS = 10;
+
+    static final int KERNEL_LANES = 11;
+
+    static final int PARTITION_MASK = 12;
+
+    /**
+     * Number of times every row of the dataset appears at the node being split; all zero between uses
+     */
+    static final int ROW_WEIGHTS = 13;
+
+    private static final int NUM_SLOTS = 14;
+
+    static final int SORT_KEYS = 0;
+
+    static final int SORT_KEY_BUFFER = 1;
+
+    private static final int NUM_LONG_SLOTS = 2;
+
+    private static final ThreadLocal<ID3Scratch> THREAD_SCRATCH = new ThreadLocal<ID3Scratch>() {
+        @Override
+        protected ID3Scratch initialValue() {
+            return new ID3Scratch();
+        }
+    };
+
+    private final int[][] mInts = new int[NUM_SLOTS][];
+
+    private final long[][] mLongs = new long[NUM_LONG_SLOTS][];
+
+    private ID3Split[] mSplits = new ID3Split[0];
+
+    private final ArrayList<int[]> mBranchStarts = new ArrayList<int[]>();
+
+    private final ArrayList<int[]> mBranchNext = new ArrayList<int[]>();
+
+    private final ArrayList<int[][][]> mHistograms = new ArrayList<int[][][]>();
+
+    private ID3Scratch() {
+    }
+
+    /**
+     * @return Buffers of the current thread
+     */
+    static ID3Scratch get() {
+        return THREAD_SCRATCH.get();
+    }
+
+    /**
+     * Returns a zeroed buffer of exactly the given length, such as the class counts that the split criterion and the
+     * tree read in full
+     *
+     * @param slot   Buffer slot
+     * @param length Length of the buffer
+     * @return Zeroed buffer
+     */
+    int[] getExact(int slot, int length) {
+        int[] buffer = mInts[slot];
+        if (buffer == null || buffer.length != length) {
+            buffer = new int[length];
+            mInts[slot] = buffer;
+        } else {
+            Arrays.fill(buffer, 0);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer of at least the given length whose first length entries are zero
+     *
+     * @param slot   Buffer slot
+     * @param length Number of entries needed
+     * @return Buffer, possibly longer than length
+     */
+    int[] getAtLeast(int slot, int length) {
+        int[] buffer = mInts[slot];
+        if (buffer == null || buffer.length < length) {
+            buffer = new int[Math.max(length, buffer == null ? 0 : buffer.length + (buffer.length >> 1))];
+            mInts[slot] = buffer;
+        } else {
+            Arrays.fill(buffer, 0, length, 0);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer of at least the given length whose contents the caller overwrites
+     *
+     * @param slot   Buffer slot
+     * @param length Number of entries needed
+     * @return Buffer, possibly longer than length
+     */
+    int[] getBuffer(int slot, int length) {
+        int[] buffer = mInts[slot];
+        if (buffer == null || buffer.length < length) {
+            buffer = new int[Math.max(length, buffer == null ? 0 : buffer.length + (buffer.length >> 1))];
+            mInts[slot] = buffer;
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer of longs of at least the given length whose contents the caller overwrites
+     *
+     * @param slot   Buffer slot, SORT_KEYS or SORT_KEY_BUFFER
+     * @param length Number of entries needed
+     * @return Buffer, possibly longer than length
+     */
+    long[] getLongBuffer(int slot, int length) {
+        long[] buffer = mLongs[slot];
+        if (buffer == null || buffer.length < length) {
+            buffer = new long[Math.max(length, buffer == null ? 0 : buffer.length + (buffer.length >> 1))];
+            mLongs[slot] = buffer;
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns an array of exactly length splits, one per attribute
+     *
+     * @param length Number of attributes
+     * @return Reused array
+     */
+    ID3Split[] getSplits(int length) {
+        if (mSplits.length != length) {
+            mSplits = new ID3Split[length];
+        }
+        return mSplits;
+    }
+
+    /**
+     * Returns the buffer of branch boundaries of the node being split at a depth
+     *
+     * @param depth  Depth of the node
+     * @param length Number of entries needed
+     * @return Buffer of at least length entries
+     */
+    int[] getBranchStarts(int depth, int length) {
+        return getDepthBuffer(mBranchStarts, depth, length);
+    }
+
+    /**
+     * Returns the buffer of branch insertion points of the node being split at a depth
+     *
+     * @param depth  Depth of the node
+     * @param length Number of entries needed
+     * @return Buffer of at least length entries
+     */
+    int[] getBranchNext(int depth, int length) {
+        return getDepthBuffer(mBranchNext, depth, length);
+    }
+
+    /**
+     * Returns a set of bin histograms of the nodes at a depth, one array per attribute. The arrays are those left by
+     * the previous user of the set and are reallocated or cleared by the caller.
+     *
+     * @param depth         Depth of the nodes
+     * @param index         Index of the set among those of the depth
+     * @param numAttributes Number of attributes
+     * @return Reused set of exactly numAttributes histograms
+     */
+    int[][] getHistograms(int depth, int index, int numAttributes) {
+        while (mHistograms.size() <= depth) {
+            mHistograms.add(new int[0][][]);
+        }
+        int[][][] sets = mHistograms.get(depth);
+        if (sets.length <= index) {
+            sets = Arrays.copyOf(sets, Math.max(index + 1, sets.length * 2));
+            mHistograms.set(depth, sets);
+        }
+        if (sets[index] == null || sets[index].length != numAttributes) {
+            sets[index] = new int[numAttributes][];
+        }
+        return sets[index];
+    }
+
+    private static int[] getDepthBuffer(ArrayList<int[]> buffers, int depth, int length) {
+        while (buffers.size() <= depth) {
+            buffers.add(null);
+        }
+        int[] buffer = buffers.get(depth);
+        if (buffer == null || buffer.length < length) {
+            buffer = new int[length];
+            buffers.set(depth, buffer);
+        }
+        return buffer;
+    }
+}
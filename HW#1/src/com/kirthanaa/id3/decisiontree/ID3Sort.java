@@ -0,0 +1,122 @@
+package com.kirthanaa.id3.decisiontree;
+
+/**
+ * Sorting of numeric attribute values together with their class codes, used by the continuous split search.
+ * <p>
+ * Values are turned into 64 bit keys whose unsigned order is the numeric order of the values, with -0.0 before 0.0
+ * and NaN after positive infinity. Keys and class codes are kept in parallel primitive arrays and sorted by a least
+ * significant digit radix sort, one byte per pass, that skips the passes over bytes all keys share. Short ranges use
+ * an insertion sort instead.
+ */
+final class ID3Sort {
+
+    static final int RADIX = 256;
+
+    static final int NUM_PASSES = 8;
+
+    /**
+     * Key of every NaN, which sorts after every other key
+     */
+    static final long NAN_KEY = toKey(Double.NaN);
+
+    private static final int INSERTION_SORT_THRESHOLD = 64;
+
+    private ID3Sort() {
+    }
+
+    /**
+     * Returns the sort key of a value
+     *
+     * @param value Value
+     * @return Key whose unsigned order is the order of the values
+     */
+    static long toKey(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns the value of a sort key
+     *
+     * @param key Key returned by toKey
+     * @return Value
+     */
+    static double toValue(long key) {
+        return Double.longBitsToDouble(key < 0 ? key ^ Long.MIN_VALUE : ~key);
+    }
+
+    /**
+     * Sorts the first length keys in ascending unsigned order, moving the class codes along with them. Equal keys
+     * keep their relative order.
+     *
+     * @param keys       Keys
+     * @param codes      Class code of each key
+     * @param length     Number of keys to sort
+     * @param keyBuffer  Scratch of at least length keys
+     * @param codeBuffer Scratch of at least length codes
+     * @param counts     Zeroed scratch of at least NUM_PASSES * RADIX entries
+     */
+    static void sort(long[] keys, int[] codes, int length, long[] keyBuffer, int[] codeBuffer, int[] counts) {
+        if (length < INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, codes, length);
+            return;
+        }
+
+        for (int i = 0; i < length; i++) {
+            long key = keys[i];
+            for (int pass = 0; pass < NUM_PASSES; pass++) {
+                counts[pass * RADIX + (int) ((key >>> (pass << 3)) & 0xff)]++;
+            }
+        }
+
+        long[] sourceKeys = keys;
+        int[] sourceCodes = codes;
+        long[] targetKeys = keyBuffer;
+        int[] targetCodes = codeBuffer;
+        for (int pass = 0; pass < NUM_PASSES; pass++) {
+            int offset = pass * RADIX;
+            int shift = pass << 3;
+            if (counts[offset + (int) ((sourceKeys[0] >>> shift) & 0xff)] == length) {
+                continue;
+            }
+            int start = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                int count = counts[offset + digit];
+                counts[offset + digit] = start;
+                start += count;
+            }
+            for (int i = 0; i < length; i++) {
+                long key = sourceKeys[i];
+                int position = counts[offset + (int) ((key >>> shift) & 0xff)]++;
+                targetKeys[position] = key;
+                targetCodes[position] = sourceCodes[i];
+            }
+            long[] swapKeys = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swapKeys;
+            int[] swapCodes = sourceCodes;
+            sourceCodes = targetCodes;
+            targetCodes = swapCodes;
+        }
+
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, length);
+            System.arraycopy(sourceCodes, 0, codes, 0, length);
+        }
+    }
+
+    private static void insertionSort(long[] keys, int[] codes, int length) {
+        for (int i = 1; i < length; i++) {
+            long key = keys[i];
+            int code = codes[i];
+            int j = i - 1;
+            while (j >= 0 && Long.compareUnsigned(keys[j], key) > 0) {
+                keys[j + 1] = keys[j];
+                codes[j + 1] = codes[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            codes[j + 1] = code;
+        }
+    }
+}
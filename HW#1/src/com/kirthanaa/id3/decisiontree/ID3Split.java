@@ -0,0 +1,42 @@
+package com.kirthanaa.id3.decisiontree;
+
+/**
+ * Split of the data instances on an attribute, as chosen by the split search
+ */
+public class ID3Split {
+
+    public int mAttributeOrdinal = -1;
+
+    public double mSplitValue = Double.NaN;
+
+    public double mEntropy = 0.0;
+
+    public double mScore = 0.0;
+
+    public int mNumCandidates = 1;
+
+    /**
+     * @param attributeOrdinal Ordinal of the attribute to split on
+     * @param splitValue       Threshold of a continuous split (instances &lt;= value go left), NaN for nominal splits
+     * @param entropy          Class conditional impurity of the instances after the split under the split criterion
+     * @param score            Score of the split under the split criterion, such as the information gain
+     */
+    public ID3Split(int attributeOrdinal, double splitValue, double entropy, double score) {
+        this(attributeOrdinal, splitValue, entropy, score, 1);
+    }
+
+    /**
+     * @param attributeOrdinal Ordinal of the attribute to split on
+     * @param splitValue       Threshold of a continuous split (instances &lt;= value go left), NaN for nominal splits
+     * @param entropy          Class conditional impurity of the instances after the split under the split criterion
+     * @param score            Score of the split under the split criterion, such as the information gain
+     * @param numCandidates    Number of candidate splits scored on the attribute to find this one
+     */
+    public ID3Split(int attributeOrdinal, double splitValue, double entropy, double score, int numCandidates) {
+        this.mAttributeOrdinal = attributeOrdinal;
+        this.mSplitValue = splitValue;
+        this.mEntropy = entropy;
+        this.mScore = score;
+        this.mNumCandidates = numCandidates;
+    }
+}
@@ -0,0 +1,447 @@
+package com.kirthanaa.id3.decisiontree;
+
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.dataset.NominalColumn;
+import com.kirthanaa.id3.dataset.NumericColumn;
+import com.kirthanaa.id3.entities.ID3Attribute;
+import com.kirthanaa.id3.entities.ID3Class;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Decision tree stored as parallel arrays of primitives, one entry per node.
+ * Node 0 is the root. An internal node splits on mAttribute[node]; its children are stored contiguously starting at
+ * mFirstChild[node]. A continuous split has two children (value &lt;= mSplitValue[node] goes to the first one), a
+ * nominal split has one child per attribute value, in the order of ID3Attribute.mAttributeValues.
+ * A missing numeric value (NaN) goes to the second child of a continuous split; a row missing the value of a nominal
+ * split (code -1) stops there and gets the prediction of the split node.
+ * Leaves have mAttribute[node] == LEAF. Every node keeps the class counts of the training instances that reached it.
+ */
+public class ID3Tree implements ID3Predictor {
+
+    public static final int LEAF = -1;
+
+    private static final int PREDICT_BLOCK_SIZE = 1024;
+
+    private final ArrayList<ID3Attribute> mID3AttributeList;
+
+    private final ID3Class mId3Class;
+
+    private final int mNumClasses;
+
+    private int mNumNodes = 0;
+
+    private int[] mAttribute;
+
+    private double[] mSplitValue;
+
+    private int[] mFirstChild;
+
+    private int[] mPrediction;
+
+    private int[] mClassCounts;
+
+    public ID3Tree(ArrayList<ID3Attribute> attributeList, ID3Class id3Class) {
+        this(attributeList, id3Class, 16);
+    }
+
+    public ID3Tree(ArrayList<ID3Attribute> attributeList, ID3Class id3Class, int capacity) {
+        this.mID3AttributeList = attributeList;
+        this.mId3Class = id3Class;
+        this.mNumClasses = id3Class.mNoOfClasses;
+        capacity = Math.max(capacity, 1);
+        mAttribute = new int[capacity];
+        mSplitValue = new double[capacity];
+        mFirstChild = new int[capacity];
+        mPrediction = new int[capacity];
+        mClassCounts = new int[capacity * mNumClasses];
+    }
+
+    /**
+     * Wraps existing node arrays, such as those read back from a model file, without copying them
+     *
+     * @param attributeList Attributes of the training data, excluding the class
+     * @param id3Class      Class of the training data
+     * @param attribute     Attribute split on at every node, LEAF for leaves
+     * @param splitValue    Threshold of every continuous split, NaN elsewhere
+     * @param firstChild    First child of every internal node, -1 for leaves
+     * @param prediction    Predicted class code of every node
+     * @param classCounts   Class counts of every node, mNoOfClasses entries per node
+     */
+    ID3Tree(ArrayList<ID3Attribute> attributeList, ID3Class id3Class, int[] attribute, double[] splitValue,
+            int[] firstChild, int[] prediction, int[] classCounts) {
+        this.mID3AttributeList = attributeList;
+        this.mId3Class = id3Class;
+        this.mNumClasses = id3Class.mNoOfClasses;
+        this.mNumNodes = attribute.length;
+        this.mAttribute = attribute;
+        this.mSplitValue = splitValue;
+        this.mFirstChild = firstChild;
+        this.mPrediction = prediction;
+        this.mClassCounts = classCounts;
+    }
+
+    /**
+     * Appends nodes to the tree. New nodes are leaves until a split is set on them.
+     *
+     * @param count Number of nodes to append
+     * @return Index of the first appended node
+     */
+    int addNodes(int count) {
+        int first = mNumNodes;
+        if (mNumNodes + count > mAttribute.length) {
+            int capacity = Math.max(mNumNodes + count, mAttribute.length + (mAttribute.length >> 1));
+            mAttribute = Arrays.copyOf(mAttribute, capacity);
+            mSplitValue = Arrays.copyOf(mSplitValue, capacity);
+            mFirstChild = Arrays.copyOf(mFirstChild, capacity);
+            mPrediction = Arrays.copyOf(mPrediction, capacity);
+            mClassCounts = Arrays.copyOf(mClassCounts, capacity * mNumClasses);
+        }
+        for (int i = first; i < first + count; i++) {
+            mAttribute[i] = LEAF;
+            mSplitValue[i] = Double.NaN;
+            mFirstChild[i] = -1;
+        }
+        mNumNodes += count;
+        return first;
+    }
+
+    /**
+     * Sets the class counts and predicted class of a node
+     *
+     * @param node        Index of the node
+     * @param classCounts Number of training instances of each class that reached the node
+     * @param prediction  Class code predicted at the node
+     */
+    void setClassCounts(int node, int[] classCounts, int prediction) {
+        System.arraycopy(classCounts, 0, mClassCounts, node * mNumClasses, mNumClasses);
+        mPrediction[node] = prediction;
+    }
+
+    /**
+     * Turns a node into an internal node
+     *
+     * @param node             Index of the node
+     * @param attributeOrdinal Ordinal of the attribute split on
+     * @param splitValue       Threshold of a continuous split, NaN for a nominal split
+     * @param firstChild       Index of the first child node
+     */
+    void setSplit(int node, int attributeOrdinal, double splitValue, int firstChild) {
+        mAttribute[node] = attributeOrdinal;
+        mSplitValue[node] = splitValue;
+        mFirstChild[node] = firstChild;
+    }
+
+    /**
+     * Copies a separately built subtree into this tree. The root of the subtree replaces the given node and the
+     * other nodes of the subtree are appended in their original order, so grafting the subtrees of a node's children
+     * in child order gives the same layout as growing them in place one after the other.
+     *
+     * @param node    Index of the node receiving the root of the subtree
+     * @param subtree Subtree to copy
+     */
+    void graft(int node, ID3Tree subtree) {
+        int base = addNodes(subtree.mNumNodes - 1) - 1;
+        for (int i = 0; i < subtree.mNumNodes; i++) {
+            int target = i == 0 ? node : base + i;
+            mAttribute[target] = subtree.mAttribute[i];
+            mSplitValue[target] = subtree.mSplitValue[i];
+            mFirstChild[target] = subtree.mFirstChild[i] == -1 ? -1 : base + subtree.mFirstChild[i];
+            mPrediction[target] = subtree.mPrediction[i];
+            System.arraycopy(subtree.mClassCounts, i * mNumClasses, mClassCounts, target * mNumClasses, mNumClasses);
+        }
+    }
+
+    /**
+     * Releases the unused capacity of the node arrays
+     */
+    void trimToSize() {
+        mAttribute = Arrays.copyOf(mAttribute, mNumNodes);
+        mSplitValue = Arrays.copyOf(mSplitValue, mNumNodes);
+        mFirstChild = Arrays.copyOf(mFirstChild, mNumNodes);
+        mPrediction = Arrays.copyOf(mPrediction, mNumNodes);
+        mClassCounts = Arrays.copyOf(mClassCounts, mNumNodes * mNumClasses);
+    }
+
+    /**
+     * Returns a copy of the tree with no unused capacity, which later changes to this tree do not affect
+     *
+     * @return Copy of the tree
+     */
+    ID3Tree copy() {
+        return new ID3Tree(mID3AttributeList, mId3Class, Arrays.copyOf(mAttribute, mNumNodes),
+                Arrays.copyOf(mSplitValue, mNumNodes), Arrays.copyOf(mFirstChild, mNumNodes),
+                Arrays.copyOf(mPrediction, mNumNodes), Arrays.copyOf(mClassCounts, mNumNodes * mNumClasses));
+    }
+
+    public ArrayList<ID3Attribute> getAttributeList() {
+        return mID3AttributeList;
+    }
+
+    public ID3Class getID3Class() {
+        return mId3Class;
+    }
+
+    public int getNumNodes() {
+        return mNumNodes;
+    }
+
+    public boolean isLeaf(int node) {
+        return mAttribute[node] == LEAF;
+    }
+
+    public int getAttribute(int node) {
+        return mAttribute[node];
+    }
+
+    public double getSplitValue(int node) {
+        return mSplitValue[node];
+    }
+
+    public int getFirstChild(int node) {
+        return mFirstChild[node];
+    }
+
+    /**
+     * Returns the number of children of an internal node
+     *
+     * @param node Index of the node
+     * @return Number of children, 0 for a leaf
+     */
+    public int getNumChildren(int node) {
+        int attributeOrdinal = mAttribute[node];
+        if (attributeOrdinal == LEAF) {
+            return 0;
+        }
+        ID3Attribute attribute = mID3AttributeList.get(attributeOrdinal);
+        return attribute.mAttributeType == ID3Attribute.NUMERIC ? 2 : attribute.getNumberOfAttributeValues();
+    }
+
+    public int getPrediction(int node) {
+        return mPrediction[node];
+    }
+
+    public int getClassCount(int node, int classCode) {
+        return mClassCounts[node * mNumClasses + classCode];
+    }
+
+    /**
+     * Returns the depth of the tree, 0 for a tree with only a root
+     *
+     * @return Depth of the tree
+     */
+    public int getDepth() {
+        return getDepth(0);
+    }
+
+    private int getDepth(int node) {
+        int depth = 0;
+        for (int i = 0; i < getNumChildren(node); i++) {
+            depth = Math.max(depth, 1 + getDepth(mFirstChild[node] + i));
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the leaf reached by a row of the data, or the node where it stopped for a missing nominal value
+     *
+     * @param data Dataset with the same attributes as the training data
+     * @param row  Row index
+     * @return Index of the leaf node
+     */
+    public int getLeaf(ID3Dataset data, int row) {
+        int node = 0;
+        int attributeOrdinal;
+        while ((attributeOrdinal = mAttribute[node]) != LEAF) {
+            NumericColumn numericColumn = data.getNumericColumn(attributeOrdinal);
+            if (numericColumn != null) {
+                node = mFirstChild[node] + (numericColumn.getValue(row) <= mSplitValue[node] ? 0 : 1);
+            } else {
+                int code = data.getNominalCode(attributeOrdinal, row);
+                if (code < 0) {
+                    break;
+                }
+                node = mFirstChild[node] + code;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Predicts the class of a single row
+     *
+     * @param data Dataset with the same attributes as the training data
+     * @param row  Row index
+     * @return Predicted class code
+     */
+    public int predict(ID3Dataset data, int row) {
+        return mPrediction[getLeaf(data, row)];
+    }
+
+    /**
+     * Returns the leaf reached by a row given as a feature array, or the node where it stopped for a missing nominal
+     * value
+     *
+     * @param features Feature array of the row, as filled by ID3Dataset.getFeatures
+     * @return Index of the leaf node
+     */
+    public int getLeaf(double[] features) {
+        int node = 0;
+        int attributeOrdinal;
+        while ((attributeOrdinal = mAttribute[node]) != LEAF) {
+            if (mID3AttributeList.get(attributeOrdinal).mAttributeType == ID3Attribute.NUMERIC) {
+                node = mFirstChild[node] + (features[attributeOrdinal] <= mSplitValue[node] ? 0 : 1);
+            } else {
+                int code = (int) features[attributeOrdinal];
+                if (code < 0) {
+                    break;
+                }
+                node = mFirstChild[node] + code;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Predicts the class of a row given as a feature array, walking the node arrays
+     *
+     * @param features Feature array of the row, as filled by ID3Dataset.getFeatures
+     * @return Predicted class code
+     */
+    @Override
+    public int predict(double[] features) {
+        return mPrediction[getLeaf(features)];
+    }
+
+    /**
+     * Predicts the class of every row of the data
+     *
+     * @param data Dataset with the same attributes as the training data
+     * @return Predicted class code of each row
+     */
+    public int[] predict(ID3Dataset data) {
+        int[] predictions = new int[data.getNumInstances()];
+        predict(data, 0, data.getNumInstances(), predictions);
+        return predictions;
+    }
+
+    /**
+     * Predicts the class of a range of rows.
+     * Rows are scored block by block, and a block is pushed down the tree one level at a time: every row of the block
+     * that has not reached a leaf moves to its child before any row moves further. Rows visiting the same node read
+     * the same attribute and threshold one after the other, and the upper levels, which every row goes through, read
+     * the columns of the block in row order.
+     *
+     * @param data        Dataset with the same attributes as the training data
+     * @param from        First row, inclusive
+     * @param to          Last row, exclusive
+     * @param predictions Receives the predicted class code of row i at index i - from
+     */
+    public void predict(ID3Dataset data, int from, int to, int[] predictions) {
+        int numAttributes = mID3AttributeList.size();
+        NumericColumn[] numericColumns = new NumericColumn[numAttributes];
+        NominalColumn[] nominalColumns = new NominalColumn[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            numericColumns[i] = data.getNumericColumn(i);
+            nominalColumns[i] = data.getNominalColumn(i);
+        }
+        int[] attribute = mAttribute;
+        double[] splitValue = mSplitValue;
+        int[] firstChild = mFirstChild;
+        int[] prediction = mPrediction;
+
+        // Rows of the block still moving down and their current nodes, kept together and compacted after every level
+        int[] activeRows = new int[Math.min(PREDICT_BLOCK_SIZE, Math.max(to - from, 0))];
+        int[] activeNodes = new int[activeRows.length];
+        for (int blockStart = from; blockStart < to; blockStart += PREDICT_BLOCK_SIZE) {
+            int numActive = Math.min(PREDICT_BLOCK_SIZE, to - blockStart);
+            for (int i = 0; i < numActive; i++) {
+                activeRows[i] = blockStart + i;
+                activeNodes[i] = 0;
+            }
+            while (numActive > 0) {
+                int numMoved = 0;
+                for (int i = 0; i < numActive; i++) {
+                    int row = activeRows[i];
+                    int node = activeNodes[i];
+                    int attributeOrdinal = attribute[node];
+                    if (attributeOrdinal == LEAF) {
+                        predictions[row - from] = prediction[node];
+                        continue;
+                    }
+                    NumericColumn numericColumn = numericColumns[attributeOrdinal];
+                    if (numericColumn != null) {
+                        node = firstChild[node] + (numericColumn.getValue(row) <= splitValue[node] ? 0 : 1);
+                    } else {
+                        int code = nominalColumns[attributeOrdinal].getCode(row);
+                        if (code < 0) {
+                            predictions[row - from] = prediction[node];
+                            continue;
+                        }
+                        node = firstChild[node] + code;
+                    }
+                    activeRows[numMoved] = row;
+                    activeNodes[numMoved] = node;
+                    numMoved++;
+                }
+                numActive = numMoved;
+            }
+        }
+    }
+
+    /**
+     * Prints the tree, one line per internal node branch, with the class counts of each branch and the predicted
+     * class at the leaves
+     *
+     * @return Text representation of the tree
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        if (mNumNodes > 0) {
+            if (isLeaf(0)) {
+                appendClassCounts(builder, 0);
+                builder.append(": ").append(mId3Class.mClassLabels[mPrediction[0]]).append('\n');
+            } else {
+                appendNode(builder, 0, 0);
+            }
+        }
+        return builder.toString();
+    }
+
+    private void appendNode(StringBuilder builder, int node, int depth) {
+        ID3Attribute attribute = mID3AttributeList.get(mAttribute[node]);
+        for (int i = 0; i < getNumChildren(node); i++) {
+            int child = mFirstChild[node] + i;
+            for (int d = 0; d < depth; d++) {
+                builder.append("|\t");
+            }
+            builder.append(attribute.mAttributeName);
+            if (attribute.mAttributeType == ID3Attribute.NUMERIC) {
+                builder.append(i == 0 ? " <= " : " > ").append(String.format("%.6f", mSplitValue[node]));
+            } else {
+                builder.append(" = ").append(attribute.mAttributeValues[i]);
+            }
+            builder.append(' ');
+            appendClassCounts(builder, child);
+            if (isLeaf(child)) {
+                builder.append(": ").append(mId3Class.mClassLabels[mPrediction[child]]).append('\n');
+            } else {
+                builder.append('\n');
+                appendNode(builder, child, depth + 1);
+            }
+        }
+    }
+
+    private void appendClassCounts(StringBuilder builder, int node) {
+        builder.append('[');
+        for (int c = 0; c < mNumClasses; c++) {
+            if (c > 0) {
+                builder.append(' ');
+            }
+            builder.append(getClassCount(node, c));
+        }
+        builder.append(']');
+    }
+}
@@ -0,0 +1,287 @@
+package com.kirthanaa.id3.decisiontree;
+
+import com.kirthanaa.id3.entities.ID3Attribute;
+import com.kirthanaa.id3.metrics.TrainingLog;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles a trained ID3Tree into a generated class implementing ID3Predictor.
+ * <p>
+ * Every internal node becomes an if on a feature (continuous split) or a switch on a feature code (nominal split) and
+ * every leaf a return of its class, so prediction follows straight-line code with the split values as constants
+ * instead of loading them from the node arrays. Subtrees are cut into static methods of at most METHOD_NODES nodes, so
+ * every method stays small enough for the JIT to compile and inline.
+ * <p>
+ * The source is compiled in memory with the system Java compiler and defined by a class loader of its own, so the
+ * class is unloaded with the predictor. Without a compiler (on a JRE), for trees over MAX_COMPILED_NODES nodes, or if
+ * compilation fails, compile returns the tree itself, which interprets the node arrays.
+ */
+public class ID3TreeCompiler {
+
+    public static final int METHOD_NODES = 64;
+
+    public static final int MAX_COMPILED_NODES = 16384;
+
+    private static final String PACKAGE_NAME = "com.kirthanaa.id3.decisiontree";
+
+    private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+    private ID3TreeCompiler() {
+    }
+
+    /**
+     * Compiles a tree
+     *
+     * @param tree Trained tree
+     * @return Generated predictor, or the tree itself if it cannot be compiled
+     */
+    public static ID3Predictor compile(ID3Tree tree) {
+        if (tree.getNumNodes() > MAX_COMPILED_NODES) {
+            TrainingLog.log(TrainingLog.INFO, "Tree of " + tree.getNumNodes() + " nodes is too large to compile, "
+                    + "using the interpreter");
+            return tree;
+        }
+        String className = "ID3CompiledTree" + CLASS_COUNTER.incrementAndGet();
+        try {
+            Class<?> predictorClass = compileClass(PACKAGE_NAME + "." + className, generateSource(tree, className));
+            if (predictorClass != null) {
+                return (ID3Predictor) predictorClass.getConstructor().newInstance();
+            }
+        } catch (ReflectiveOperationException e) {
+            TrainingLog.log(TrainingLog.ERROR, "Could not instantiate " + className + " : " + e.getMessage());
+        }
+        return tree;
+    }
+
+    /**
+     * Generates the Java source of the predictor of a tree
+     *
+     * @param tree      Trained tree
+     * @param className Simple name of the generated class
+     * @return Source of the class
+     */
+    public static String generateSource(ID3Tree tree, String className) {
+        int[] subtreeSizes = new int[tree.getNumNodes()];
+        getSubtreeSize(tree, 0, subtreeSizes);
+
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(PACKAGE_NAME).append(";\n\n");
+        source.append("public final class ").append(className).append(" implements ID3Predictor {\n\n");
+        source.append("    public int predict(double[] f) {\n");
+        source.append("        return n0(f);\n");
+        source.append("    }\n");
+
+        ArrayDeque<Integer> methodRoots = new ArrayDeque<Integer>();
+        methodRoots.add(0);
+        while (!methodRoots.isEmpty()) {
+            int root = methodRoots.poll();
+            source.append("\n    private static int n").append(root).append("(double[] f) {\n");
+            appendNode(source, tree, root, 2, new int[]{METHOD_NODES}, subtreeSizes, methodRoots);
+            source.append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private static int getSubtreeSize(ID3Tree tree, int node, int[] subtreeSizes) {
+        int size = 1;
+        for (int i = 0; i < tree.getNumChildren(node); i++) {
+            size += getSubtreeSize(tree, tree.getFirstChild(node) + i, subtreeSizes);
+        }
+        subtreeSizes[node] = size;
+        return size;
+    }
+
+    /**
+     * Appends the code of a node, inlining its subtree while the node budget of the method lasts and calling a method
+     * of its own for every child subtree that does not fit
+     *
+     * @param source       Source being generated
+     * @param tree         Tree
+     * @param node         Node
+     * @param indent       Indentation level
+     * @param budget       Number of nodes the current method may still inline, at index 0
+     * @param subtreeSizes Number of nodes of the subtree of every node
+     * @param methodRoots  Receives the nodes that need a method of their own
+     */
+    private static void appendNode(StringBuilder source, ID3Tree tree, int node, int indent, int[] budget,
+                                   int[] subtreeSizes, ArrayDeque<Integer> methodRoots) {
+        budget[0]--;
+        if (tree.isLeaf(node)) {
+            appendIndent(source, indent).append("return ").append(tree.getPrediction(node)).append(";\n");
+            return;
+        }
+        int attributeOrdinal = tree.getAttribute(node);
+        int firstChild = tree.getFirstChild(node);
+        if (tree.getAttributeList().get(attributeOrdinal).mAttributeType == ID3Attribute.NUMERIC) {
+            appendIndent(source, indent).append("if (f[").append(attributeOrdinal).append("] <= ")
+                    .append(toLiteral(tree.getSplitValue(node))).append(") {\n");
+            appendChild(source, tree, firstChild, indent + 1, budget, subtreeSizes, methodRoots);
+            appendIndent(source, indent).append("}\n");
+            appendChild(source, tree, firstChild + 1, indent, budget, subtreeSizes, methodRoots);
+        } else {
+            appendIndent(source, indent).append("switch ((int) f[").append(attributeOrdinal).append("]) {\n");
+            for (int i = 0; i < tree.getNumChildren(node); i++) {
+                appendIndent(source, indent + 1).append("case ").append(i).append(":\n");
+                appendChild(source, tree, firstChild + i, indent + 2, budget, subtreeSizes, methodRoots);
+            }
+            appendIndent(source, indent + 1).append("default:\n");
+            appendIndent(source, indent + 2).append("return ").append(tree.getPrediction(node)).append(";\n");
+            appendIndent(source, indent).append("}\n");
+        }
+    }
+
+    private static void appendChild(StringBuilder source, ID3Tree tree, int child, int indent, int[] budget,
+                                    int[] subtreeSizes, ArrayDeque<Integer> methodRoots) {
+        if (subtreeSizes[child] > budget[0]) {
+            appendIndent(source, indent).append("return n").append(child).append("(f);\n");
+            methodRoots.add(child);
+        } else {
+            appendNode(source, tree, child, indent, budget, subtreeSizes, methodRoots);
+        }
+    }
+
+    private static StringBuilder appendIndent(StringBuilder source, int indent) {
+        for (int i = 0; i < indent; i++) {
+            source.append("    ");
+        }
+        return source;
+    }
+
+    /**
+     * Returns the Java literal of a split value
+     *
+     * @param value Split value
+     * @return Literal parsing back to exactly the same value
+     */
+    private static String toLiteral(double value) {
+        if (Double.isNaN(value)) {
+            return "Double.NaN";
+        } else if (value == Double.POSITIVE_INFINITY) {
+            return "Double.POSITIVE_INFINITY";
+        } else if (value == Double.NEGATIVE_INFINITY) {
+            return "Double.NEGATIVE_INFINITY";
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * Compiles a class in memory and loads it with a new class loader
+     *
+     * @param className Fully qualified name of the class
+     * @param source    Source of the class
+     * @return Loaded class, or null if there is no compiler or compilation failed
+     */
+    private static Class<?> compileClass(String className, final String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            TrainingLog.log(TrainingLog.INFO, "No Java compiler available, using the interpreter");
+            return null;
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        final Map<String, ByteArrayOutputStream> classBytes = new HashMap<String, ByteArrayOutputStream>();
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        JavaFileManager fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(standardFileManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, final String name, JavaFileObject.Kind kind,
+                                                       FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("memory:///" + name.replace('.', '/') + kind.extension),
+                        kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                        classBytes.put(name, outputStream);
+                        return outputStream;
+                    }
+                };
+            }
+        };
+        JavaFileObject sourceFile = new SimpleJavaFileObject(
+                URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        ArrayList<String> options = new ArrayList<String>(Arrays.asList("-g:none", "-nowarn", "-proc:none"));
+        options.add("-classpath");
+        options.add(getClassPath());
+        try {
+            boolean compiled = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    Arrays.asList(sourceFile)).call();
+            if (!compiled) {
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    TrainingLog.log(TrainingLog.ERROR, "Could not compile tree : " + diagnostic.getMessage(null));
+                }
+                return null;
+            }
+        } finally {
+            try {
+                fileManager.close();
+            } catch (IOException e) {
+                TrainingLog.log(TrainingLog.ERROR, e.getMessage());
+            }
+        }
+
+        GeneratedClassLoader classLoader = new GeneratedClassLoader(ID3Predictor.class.getClassLoader());
+        return classLoader.define(className, classBytes.get(className).toByteArray());
+    }
+
+    /**
+     * Returns the class path the generated source is compiled against: the location ID3Predictor was loaded from,
+     * followed by the class path of the JVM
+     *
+     * @return Class path
+     */
+    private static String getClassPath() {
+        String classPath = System.getProperty("java.class.path");
+        CodeSource codeSource = ID3Predictor.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            return classPath;
+        }
+        try {
+            return new File(codeSource.getLocation().toURI()).getPath() + File.pathSeparator + classPath;
+        } catch (URISyntaxException e) {
+            return classPath;
+        }
+    }
+
+    /**
+     * Class loader defining a single generated class
+     */
+    private static class GeneratedClassLoader extends ClassLoader {
+
+        GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String className, byte[] bytes) {
+            return defineClass(className, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.kirthanaa.id3.metrics;
+
+import com.kirthanaa.id3.entities.ID3Attribute;
+
+/**
+ * Receives events from the ARFF reader and the tree builders.
+ * Builders may call a listener from several threads at once, so implementations must be thread safe. The events
+ * are raised once per dataset, node, attribute evaluation or tree, never per row, and are not raised at all when no
+ * listener is set.
+ */
+public interface TrainingListener {
+
+    /**
+     * Called after a dataset has been parsed
+     *
+     * @param source       Name of the parsed file
+     * @param numInstances Number of rows loaded
+     * @param bytesRead    Number of bytes read from the file
+     * @param datasetBytes Heap bytes held by the columns of the dataset
+     * @param nanos        Time taken to parse the file
+     */
+    void datasetLoaded(String source, int numInstances, long bytesRead, long datasetBytes, long nanos);
+
+    /**
+     * Called when a builder starts growing a node
+     *
+     * @param depth   Depth of the node, the root being at depth 0
+     * @param numRows Number of training instances at the node
+     */
+    void nodeBuilt(int depth, int numRows);
+
+    /**
+     * Called after an attribute has been evaluated at a node
+     *
+     * @param attribute       Evaluated attribute
+     * @param numRows         Number of training instances at the node
+     * @param candidateSplits Number of candidate splits scored
+     * @param nanos           Time taken to evaluate the attribute
+     */
+    void attributeEvaluated(ID3Attribute attribute, int numRows, int candidateSplits, long nanos);
+
+    /**
+     * Called after a tree has been built
+     *
+     * @param numNodes Number of nodes of the tree
+     * @param nanos    Time taken to build the tree
+     */
+    void treeBuilt(int numNodes, long nanos);
+}
@@ -0,0 +1,66 @@
+package com.kirthanaa.id3.metrics;
+
+/**
+ * Leveled console logging for the reader and the trainers.
+ * The level is read once from the id3.log.level system property (OFF, ERROR, INFO or DEBUG) and defaults to ERROR,
+ * so informational messages cost nothing unless they are asked for. Errors go to the standard error stream, so they
+ * are not mixed into output that is piped elsewhere. Callers that build a message in a loop should check isEnabled
+ * first.
+ */
+public final class TrainingLog {
+
+    public static final int OFF = 0;
+
+    public static final int ERROR = 1;
+
+    public static final int INFO = 2;
+
+    public static final int DEBUG = 3;
+
+    private static volatile int mLevel = parseLevel(System.getProperty("id3.log.level"));
+
+    private TrainingLog() {
+    }
+
+    private static int parseLevel(String level) {
+        if ("OFF".equalsIgnoreCase(level)) {
+            return OFF;
+        } else if ("INFO".equalsIgnoreCase(level)) {
+            return INFO;
+        } else if ("DEBUG".equalsIgnoreCase(level)) {
+            return DEBUG;
+        }
+        return ERROR;
+    }
+
+    /**
+     * @param level One of OFF, ERROR, INFO or DEBUG
+     */
+    public static void setLevel(int level) {
+        mLevel = level;
+    }
+
+    /**
+     * @param level Level of a message
+     * @return True if messages of that level are printed
+     */
+    public static boolean isEnabled(int level) {
+        return level != OFF && level <= mLevel;
+    }
+
+    /**
+     * Prints a message if its level is enabled, errors to the standard error stream and the rest to the standard output
+     *
+     * @param level   Level of the message
+     * @param message Message to print
+     */
+    public static void log(int level, String message) {
+        if (isEnabled(level)) {
+            if (level == ERROR) {
+                System.err.println(message);
+            } else {
+                System.out.println(message);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.kirthanaa.id3.metrics;
+
+import com.kirthanaa.id3.entities.ID3Attribute;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TrainingListener that keeps counters and timers of parsing and training: rows loaded, parse time, peak dataset
+ * size, nodes built, candidate splits evaluated and the time spent on each attribute. All counters are atomic, so
+ * one instance can be shared by concurrent builders, and the counters can be published over JMX.
+ */
+public class TrainingMetrics implements TrainingListener, TrainingMetricsMXBean {
+
+    public static final String DEFAULT_OBJECT_NAME = "com.kirthanaa.id3:type=TrainingMetrics";
+
+    private final AtomicInteger mDatasetsLoaded = new AtomicInteger();
+
+    private final AtomicLong mRowsLoaded = new AtomicLong();
+
+    private final AtomicLong mBytesRead = new AtomicLong();
+
+    private final AtomicLong mParseNanos = new AtomicLong();
+
+    private final AtomicLong mPeakDatasetBytes = new AtomicLong();
+
+    private final AtomicInteger mTreesBuilt = new AtomicInteger();
+
+    private final AtomicLong mTrainingNanos = new AtomicLong();
+
+    private final AtomicLong mNodesBuilt = new AtomicLong();
+
+    private final AtomicInteger mMaxDepth = new AtomicInteger();
+
+    private final AtomicLong mAttributeEvaluations = new AtomicLong();
+
+    private final AtomicLong mCandidateSplitsEvaluated = new AtomicLong();
+
+    private final ConcurrentHashMap<String, AtomicLong> mAttributeNanos = new ConcurrentHashMap<String, AtomicLong>();
+
+    @Override
+    public void datasetLoaded(String source, int numInstances, long bytesRead, long datasetBytes, long nanos) {
+        mDatasetsLoaded.incrementAndGet();
+        mRowsLoaded.addAndGet(numInstances);
+        mBytesRead.addAndGet(bytesRead);
+        mParseNanos.addAndGet(nanos);
+        long peak = mPeakDatasetBytes.get();
+        while (datasetBytes > peak && !mPeakDatasetBytes.compareAndSet(peak, datasetBytes)) {
+            peak = mPeakDatasetBytes.get();
+        }
+    }
+
+    @Override
+    public void nodeBuilt(int depth, int numRows) {
+        mNodesBuilt.incrementAndGet();
+        int maxDepth = mMaxDepth.get();
+        while (depth > maxDepth && !mMaxDepth.compareAndSet(maxDepth, depth)) {
+            maxDepth = mMaxDepth.get();
+        }
+    }
+
+    @Override
+    public void attributeEvaluated(ID3Attribute attribute, int numRows, int candidateSplits, long nanos) {
+        mAttributeEvaluations.incrementAndGet();
+        mCandidateSplitsEvaluated.addAndGet(candidateSplits);
+        AtomicLong attributeNanos = mAttributeNanos.get(attribute.mAttributeName);
+        if (attributeNanos == null) {
+            AtomicLong newNanos = new AtomicLong();
+            attributeNanos = mAttributeNanos.putIfAbsent(attribute.mAttributeName, newNanos);
+            if (attributeNanos == null) {
+                attributeNanos = newNanos;
+            }
+        }
+        attributeNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void treeBuilt(int numNodes, long nanos) {
+        mTreesBuilt.incrementAndGet();
+        mTrainingNanos.addAndGet(nanos);
+    }
+
+    public int getDatasetsLoaded() {
+        return mDatasetsLoaded.get();
+    }
+
+    public long getRowsLoaded() {
+        return mRowsLoaded.get();
+    }
+
+    public long getBytesRead() {
+        return mBytesRead.get();
+    }
+
+    public long getParseNanos() {
+        return mParseNanos.get();
+    }
+
+    public long getPeakDatasetBytes() {
+        return mPeakDatasetBytes.get();
+    }
+
+    public int getTreesBuilt() {
+        return mTreesBuilt.get();
+    }
+
+    public long getTrainingNanos() {
+        return mTrainingNanos.get();
+    }
+
+    public long getNodesBuilt() {
+        return mNodesBuilt.get();
+    }
+
+    public int getMaxDepth() {
+        return mMaxDepth.get();
+    }
+
+    public long getAttributeEvaluations() {
+        return mAttributeEvaluations.get();
+    }
+
+    public long getCandidateSplitsEvaluated() {
+        return mCandidateSplitsEvaluated.get();
+    }
+
+    /**
+     * Returns the time spent evaluating each attribute, summed over all nodes
+     *
+     * @return Nanoseconds by attribute name, sorted by name
+     */
+    public Map<String, Long> getAttributeNanos() {
+        TreeMap<String, Long> attributeNanos = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : mAttributeNanos.entrySet()) {
+            attributeNanos.put(entry.getKey(), entry.getValue().get());
+        }
+        return attributeNanos;
+    }
+
+    /**
+     * Sets all counters back to zero
+     */
+    public void reset() {
+        mDatasetsLoaded.set(0);
+        mRowsLoaded.set(0);
+        mBytesRead.set(0);
+        mParseNanos.set(0);
+        mPeakDatasetBytes.set(0);
+        mTreesBuilt.set(0);
+        mTrainingNanos.set(0);
+        mNodesBuilt.set(0);
+        mMaxDepth.set(0);
+        mAttributeEvaluations.set(0);
+        mCandidateSplitsEvaluated.set(0);
+        mAttributeNanos.clear();
+    }
+
+    /**
+     * Publishes the metrics on the platform MBean server
+     *
+     * @param objectName JMX name to register under, such as DEFAULT_OBJECT_NAME
+     * @throws JMException If the name is invalid or already registered
+     */
+    public void registerMBean(String objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Parsed %d rows (%d bytes) from %d files in %.3f ms, peak dataset size %d bytes%n",
+                getRowsLoaded(), getBytesRead(), getDatasetsLoaded(), getParseNanos() / 1e6, getPeakDatasetBytes()));
+        sb.append(String.format("Built %d trees in %.3f ms: %d nodes, max depth %d, %d attribute evaluations, "
+                        + "%d candidate splits%n", getTreesBuilt(), getTrainingNanos() / 1e6, getNodesBuilt(),
+                getMaxDepth(), getAttributeEvaluations(), getCandidateSplitsEvaluated()));
+        for (Map.Entry<String, Long> entry : getAttributeNanos().entrySet()) {
+            sb.append(String.format("\t%s : %.3f ms%n", entry.getKey(), entry.getValue() / 1e6));
+        }
+        return sb.toString();
+    }
+}
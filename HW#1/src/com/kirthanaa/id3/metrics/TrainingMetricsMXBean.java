@@ -0,0 +1,35 @@
+package com.kirthanaa.id3.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of TrainingMetrics
+ */
+public interface TrainingMetricsMXBean {
+
+    int getDatasetsLoaded();
+
+    long getRowsLoaded();
+
+    long getBytesRead();
+
+    long getParseNanos();
+
+    long getPeakDatasetBytes();
+
+    int getTreesBuilt();
+
+    long getTrainingNanos();
+
+    long getNodesBuilt();
+
+    int getMaxDepth();
+
+    long getAttributeEvaluations();
+
+    long getCandidateSplitsEvaluated();
+
+    Map<String, Long> getAttributeNanos();
+
+    void reset();
+}
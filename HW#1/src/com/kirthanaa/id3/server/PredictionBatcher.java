@@ -0,0 +1,230 @@
+package com.kirthanaa.id3.server;
+
+import com.kirthanaa.id3.decisiontree.ID3Predictor;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces the rows of concurrent scoring requests into batches predicted by a single thread.
+ * <p>
+ * Request threads enqueue their rows and wait. The batching thread takes the oldest request, then keeps adding the
+ * requests that are already queued, or arrive within mMaxDelayNanos, until the batch holds mMaxBatchRows rows. The
+ * whole batch is scored in one tight loop, which keeps the predictor hot in cache and hands every request its result
+ * at once. With a delay of 0 nothing waits for more requests: a batch is whatever queued up while the previous one was
+ * being scored, so batching adds no latency when the server is idle.
+ * <p>
+ * Every request carries the predictor it was parsed for, so a model can be swapped while requests are queued: those
+ * already queued finish on the model they started with and nothing has to be drained or paused.
+ * <p>
+ * Requests are scored one at a time, so an exception thrown by a predictor only fails the request being scored: its
+ * caller gets the exception and the batching thread goes on with the rest of the batch.
+ */
+public class PredictionBatcher {
+
+    public static final int DEFAULT_MAX_BATCH_ROWS = 1024;
+
+    private final int mMaxBatchRows;
+
+    private final long mMaxDelayNanos;
+
+    private final LinkedBlockingQueue<PendingRequest> mQueue = new LinkedBlockingQueue<PendingRequest>();
+
+    private final Thread mThread;
+
+    private final AtomicLong mNumBatches = new AtomicLong();
+
+    private final AtomicLong mNumRequests = new AtomicLong();
+
+    private final AtomicLong mNumRows = new AtomicLong();
+
+    private volatile boolean mClosed = false;
+
+    /**
+     * Thrown to the callers whose rows were not scored because the batcher was closed, as opposed to the exceptions of
+     * the predictor, which reach the caller as they were thrown
+     */
+    public static class ClosedException extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+
+        public ClosedException() {
+            super("Batcher is closed");
+        }
+    }
+
+    /**
+     * Rows of one request and, once scored, their predictions
+     */
+    private static class PendingRequest {
+
+        final ID3Predictor mPredictor;
+
+        final double[][] mRows;
+
+        final int[] mPredictions;
+
+        final CountDownLatch mDone = new CountDownLatch(1);
+
+        boolean mFailed = false;
+
+        Throwable mError;
+
+        PendingRequest(ID3Predictor predictor, double[][] rows) {
+            this.mPredictor = predictor;
+            this.mRows = rows;
+            this.mPredictions = new int[rows.length];
+        }
+    }
+
+    /**
+     * Starts the batching thread
+     *
+     * @param maxBatchRows   Number of rows after which a batch stops taking requests
+     * @param maxDelayMicros Time a batch waits for more requests after its first one, in microseconds
+     */
+    public PredictionBatcher(int maxBatchRows, long maxDelayMicros) {
+        this.mMaxBatchRows = maxBatchRows;
+        this.mMaxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runBatches();
+            }
+        }, "prediction-batcher");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Predicts the class of rows, waiting for the batch that scores them
+     *
+     * @param predictor Predictor scoring the rows
+     * @param rows      Feature array of every row
+     * @return Predicted class code of every row
+     * @throws InterruptedException If the calling thread is interrupted while waiting
+     * @throws ClosedException If the batcher is closed before the rows are scored
+     */
+    public int[] predict(ID3Predictor predictor, double[][] rows) throws InterruptedException {
+        if (rows.length == 0) {
+            return new int[0];
+        }
+        if (mClosed) {
+            throw new ClosedException();
+        }
+        PendingRequest request = new PendingRequest(predictor, rows);
+        mQueue.add(request);
+        if (mClosed && mQueue.remove(request)) {
+            // Closed while the request was being queued, the batching thread may already have drained the queue
+            throw new ClosedException();
+        }
+        request.mDone.await();
+        if (request.mFailed) {
+            Throwable error = request.mError;
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            } else if (error != null) {
+                throw new IllegalStateException("Prediction failed", error);
+            }
+            throw new ClosedException();
+        }
+        return request.mPredictions;
+    }
+
+    private void runBatches() {
+        ArrayList<PendingRequest> batch = new ArrayList<PendingRequest>();
+        try {
+            while (!mClosed) {
+                PendingRequest request = mQueue.take();
+                batch.add(request);
+                int numRows = request.mRows.length;
+                long deadline = System.nanoTime() + mMaxDelayNanos;
+                while (numRows < mMaxBatchRows) {
+                    request = mQueue.poll();
+                    if (request == null) {
+                        long remainingNanos = deadline - System.nanoTime();
+                        if (remainingNanos <= 0
+                                || (request = mQueue.poll(remainingNanos, TimeUnit.NANOSECONDS)) == null) {
+                            break;
+                        }
+                    }
+                    batch.add(request);
+                    numRows += request.mRows.length;
+                }
+                score(batch, numRows);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+        for (PendingRequest request : batch) {
+            fail(request);
+        }
+        PendingRequest request;
+        while ((request = mQueue.poll()) != null) {
+            fail(request);
+        }
+    }
+
+    private void score(ArrayList<PendingRequest> batch, int numRows) {
+        for (int i = 0; i < batch.size(); i++) {
+            PendingRequest request = batch.get(i);
+            ID3Predictor predictor = request.mPredictor;
+            double[][] rows = request.mRows;
+            int[] predictions = request.mPredictions;
+            try {
+                for (int r = 0; r < rows.length; r++) {
+                    predictions[r] = predictor.predict(rows[r]);
+                }
+            } catch (Throwable e) {
+                request.mError = e;
+                fail(request);
+            }
+        }
+        mNumBatches.incrementAndGet();
+        mNumRequests.addAndGet(batch.size());
+        mNumRows.addAndGet(numRows);
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).mDone.countDown();
+        }
+    }
+
+    private static void fail(PendingRequest request) {
+        request.mFailed = true;
+        request.mDone.countDown();
+    }
+
+    /**
+     * @return Number of batches scored so far
+     */
+    public long getNumBatches() {
+        return mNumBatches.get();
+    }
+
+    /**
+     * @return Number of requests scored so far
+     */
+    public long getNumRequests() {
+        return mNumRequests.get();
+    }
+
+    /**
+     * @return Number of rows scored so far
+     */
+    public long getNumRows() {
+        return mNumRows.get();
+    }
+
+    /**
+     * Stops the batching thread. Requests not scored yet fail with a ClosedException.
+     */
+    public void close() {
+        mClosed = true;
+        mThread.interrupt();
+    }
+}
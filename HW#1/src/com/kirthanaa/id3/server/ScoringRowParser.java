@@ -0,0 +1,353 @@
+package com.kirthanaa.id3.server;
+
+import com.kirthanaa.id3.entities.ID3Attribute;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the rows of scoring requests into feature arrays indexed by attribute ordinal, holding the value of every
+ * NUMERIC attribute and the code of every NOMINAL attribute, as read by ID3Predictor.
+ * <p>
+ * Rows are accepted as ARFF data lines, one per line, or as JSON: a single array of values, an array of such arrays,
+ * or an object whose "rows" member is an array of such arrays. A row lists the attribute values in header order and
+ * may end with the class value, which is ignored. Missing values ('?' or null) are read as NaN for a numeric attribute
+ * and as code -1 for a nominal one. Malformed rows and unknown nominal values are rejected with an
+ * IllegalArgumentException.
+ */
+public class ScoringRowParser {
+
+    private final ArrayList<ID3Attribute> mID3AttributeList;
+
+    private final ArrayList<HashMap<String, Integer>> mNominalCodes;
+
+    /**
+     * @param attributeList Attributes of the model, excluding the class
+     */
+    public ScoringRowParser(ArrayList<ID3Attribute> attributeList) {
+        this.mID3AttributeList = attributeList;
+        this.mNominalCodes = new ArrayList<HashMap<String, Integer>>(attributeList.size());
+        for (ID3Attribute attribute : attributeList) {
+            HashMap<String, Integer> codes = null;
+            if (attribute.mAttributeType == ID3Attribute.NOMINAL) {
+                codes = new HashMap<String, Integer>(attribute.getNumberOfAttributeValues() * 2);
+                for (int i = 0; i < attribute.getNumberOfAttributeValues(); i++) {
+                    codes.put(attribute.mAttributeValues[i], i);
+                }
+            }
+            mNominalCodes.add(codes);
+        }
+    }
+
+    /**
+     * Parses ARFF data lines. Blank lines and '%' comments are skipped.
+     *
+     * @param body Request body
+     * @return Feature array of every row
+     */
+    public double[][] parseARFFLines(String body) {
+        ArrayList<double[]> rows = new ArrayList<double[]>();
+        for (String line : body.split("\n")) {
+            line = line.trim();
+            if (line.length() == 0 || line.charAt(0) == '%') {
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            checkNumberOfValues(fields.length, rows.size());
+            double[] features = new double[mID3AttributeList.size()];
+            for (int i = 0; i < features.length; i++) {
+                features[i] = toFeature(i, unquote(fields[i].trim()));
+            }
+            rows.add(features);
+        }
+        return rows.toArray(new double[rows.size()][]);
+    }
+
+    /**
+     * Parses JSON rows
+     *
+     * @param body Request body
+     * @return Feature array of every row
+     */
+    public double[][] parseJSON(String body) {
+        JSONReader reader = new JSONReader(body);
+        Object value = reader.readDocument();
+        if (value instanceof Map) {
+            value = ((Map<?, ?>) value).get("rows");
+        }
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Expected an array of rows or an object with a \"rows\" array");
+        }
+        List<?> list = (List<?>) value;
+        if (list.isEmpty()) {
+            return new double[0][];
+        }
+        if (!(list.get(0) instanceof List)) {
+            list = Collections.singletonList(list);
+        }
+        double[][] rows = new double[list.size()][];
+        for (int r = 0; r < rows.length; r++) {
+            if (!(list.get(r) instanceof List)) {
+                throw new IllegalArgumentException("Row " + r + " is not an array");
+            }
+            List<?> values = (List<?>) list.get(r);
+            checkNumberOfValues(values.size(), r);
+            rows[r] = new double[mID3AttributeList.size()];
+            for (int i = 0; i < rows[r].length; i++) {
+                rows[r][i] = toFeature(i, toText(values.get(i)));
+            }
+        }
+        return rows;
+    }
+
+    private void checkNumberOfValues(int numValues, int row) {
+        int numAttributes = mID3AttributeList.size();
+        if (numValues != numAttributes && numValues != numAttributes + 1) {
+            throw new IllegalArgumentException("Row " + row + " has " + numValues + " values, expected "
+                    + numAttributes + " or " + (numAttributes + 1));
+        }
+    }
+
+    /**
+     * Converts the text of a value to its feature
+     *
+     * @param attributeOrdinal Ordinal of the attribute
+     * @param text             Value, or null if missing
+     * @return Number for a NUMERIC attribute, code for a NOMINAL attribute
+     */
+    private double toFeature(int attributeOrdinal, String text) {
+        ID3Attribute attribute = mID3AttributeList.get(attributeOrdinal);
+        boolean missing = text == null || text.equals("?");
+        if (attribute.mAttributeType == ID3Attribute.NUMERIC) {
+            if (missing) {
+                return Double.NaN;
+            }
+            try {
+                return Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number " + text + " for attribute "
+                        + attribute.mAttributeName);
+            }
+        }
+        if (missing) {
+            return -1;
+        } else {
+            Integer code = mNominalCodes.get(attributeOrdinal).get(text);
+            if (code != null) {
+                return code;
+            }
+            for (int i = 0; i < attribute.getNumberOfAttributeValues(); i++) {
+                if (attribute.mAttributeValues[i].equalsIgnoreCase(text)) {
+                    return i;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown value " + text + " for attribute " + attribute.mAttributeName);
+    }
+
+    private static String unquote(String field) {
+        int length = field.length();
+        if (length >= 2 && (field.charAt(0) == '\'' || field.charAt(0) == '"')
+                && field.charAt(length - 1) == field.charAt(0)) {
+            return field.substring(1, length - 1);
+        }
+        return field;
+    }
+
+    /**
+     * Returns the text of a JSON value: strings as is, integral numbers without a fraction, null for null
+     */
+    private static String toText(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Double) {
+            double number = (Double) value;
+            if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+                return Long.toString((long) number);
+            }
+            return Double.toString(number);
+        }
+        throw new IllegalArgumentException("Unsupported value " + value);
+    }
+
+    /**
+     * Minimal JSON reader producing Map, List, String, Double, Boolean and null values
+     */
+    private static class JSONReader {
+
+        private final String mText;
+
+        private int mPosition = 0;
+
+        JSONReader(String text) {
+            this.mText = text;
+        }
+
+        Object readDocument() {
+            Object value = readValue();
+            skipBlanks();
+            if (mPosition != mText.length()) {
+                throw error("Unexpected content");
+            }
+            return value;
+        }
+
+        private Object readValue() {
+            skipBlanks();
+            if (mPosition >= mText.length()) {
+                throw error("Unexpected end of input");
+            }
+            char c = mText.charAt(mPosition);
+            if (c == '{') {
+                return readObject();
+            } else if (c == '[') {
+                return readArray();
+            } else if (c == '"') {
+                return readString();
+            } else if (mText.startsWith("null", mPosition)) {
+                mPosition += 4;
+                return null;
+            } else if (mText.startsWith("true", mPosition)) {
+                mPosition += 4;
+                return Boolean.TRUE;
+            } else if (mText.startsWith("false", mPosition)) {
+                mPosition += 5;
+                return Boolean.FALSE;
+            }
+            return readNumber();
+        }
+
+        private Map<String, Object> readObject() {
+            LinkedHashMap<String, Object> object = new LinkedHashMap<String, Object>();
+            mPosition++;
+            skipBlanks();
+            if (peek() == '}') {
+                mPosition++;
+                return object;
+            }
+            while (true) {
+                skipBlanks();
+                if (peek() != '"') {
+                    throw error("Expected a member name");
+                }
+                String name = readString();
+                skipBlanks();
+                expect(':');
+                object.put(name, readValue());
+                skipBlanks();
+                if (peek() == ',') {
+                    mPosition++;
+                } else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> readArray() {
+            ArrayList<Object> array = new ArrayList<Object>();
+            mPosition++;
+            skipBlanks();
+            if (peek() == ']') {
+                mPosition++;
+                return array;
+            }
+            while (true) {
+                array.add(readValue());
+                skipBlanks();
+                if (peek() == ',') {
+                    mPosition++;
+                } else {
+                    expect(']');
+                    return array;
+                }
+            }
+        }
+
+        private String readString() {
+            StringBuilder builder = new StringBuilder();
+            mPosition++;
+            while (true) {
+                if (mPosition >= mText.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = mText.charAt(mPosition++);
+                if (c == '"') {
+                    return builder.toString();
+                }
+                if (c == '\\') {
+                    if (mPosition >= mText.length()) {
+                        throw error("Unterminated string");
+                    }
+                    char escaped = mText.charAt(mPosition++);
+                    switch (escaped) {
+                        case 'n':
+                            builder.append('\n');
+                            break;
+                        case 't':
+                            builder.append('\t');
+                            break;
+                        case 'r':
+                            builder.append('\r');
+                            break;
+                        case 'b':
+                            builder.append('\b');
+                            break;
+                        case 'f':
+                            builder.append('\f');
+                            break;
+                        case 'u':
+                            if (mPosition + 4 > mText.length()) {
+                                throw error("Invalid escape");
+                            }
+                            builder.append((char) Integer.parseInt(mText.substring(mPosition, mPosition + 4), 16));
+                            mPosition += 4;
+                            break;
+                        default:
+                            builder.append(escaped);
+                    }
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+
+        private Double readNumber() {
+            int start = mPosition;
+            while (mPosition < mText.length() && "+-0123456789.eE".indexOf(mText.charAt(mPosition)) >= 0) {
+                mPosition++;
+            }
+            try {
+                return Double.valueOf(mText.substring(start, mPosition));
+            } catch (NumberFormatException e) {
+                throw error("Invalid value");
+            }
+        }
+
+        private void skipBlanks() {
+            while (mPosition < mText.length() && Character.isWhitespace(mText.charAt(mPosition))) {
+                mPosition++;
+            }
+        }
+
+        private char peek() {
+            return mPosition < mText.length() ? mText.charAt(mPosition) : 0;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            mPosition++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset " + mPosition + " of the JSON body");
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.kirthanaa.id3.server;
+
+import com.kirthanaa.id3.arffreader.ARFFReader;
+import com.kirthanaa.id3.dataset.ID3Dataset;
+import com.kirthanaa.id3.decisiontree.ID3;
+import com.kirthanaa.id3.decisiontree.ID3ModelFile;
+import com.kirthanaa.id3.decisiontree.ID3Predictor;
+import com.kirthanaa.id3.decisiontree.ID3Tree;
+import com.kirthanaa.id3.decisiontree.ID3TreeCompiler;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * HTTP server scoring rows with a trained ID3Tree.
+ * <p>
+ * POST /predict takes rows as ARFF data lines or as JSON (see ScoringRowParser) and answers with the predicted class
+ * label of every row: a JSON object {"predictions": [...]} for JSON requests, one label per line otherwise. GET /health
+ * answers OK. Requests are handled by a fixed pool of threads, and their rows are scored together by a
+ * PredictionBatcher.
+ * <p>
+ * The model can be replaced while the server runs, with swapModel or loadModel, or with POST /reload, which loads the
+ * last model file again. Each request reads the current model once, so a swap never pauses or fails requests in
+ * flight: they finish on the model they started with. A new model first scores with the interpreted ID3Tree, which is
+ * ready as soon as it is loaded, and is replaced by the predictor generated by ID3TreeCompiler once that has been
+ * compiled in the background.
+ * <p>
+ * Responses are written as headers then body, and without TCP_NODELAY the body waits for the client's delayed ACK.
+ * The JDK server only sets it when the JVM-wide sun.net.httpserver.nodelay property is true when the first HttpServer
+ * is created, so main calls enableNoDelay first. Code embedding the server should do the same, or run the JVM with
+ * -Dsun.net.httpserver.nodelay=true.
+ * <p>
+ * Usage: ScoringServer &lt;model file or train arff file&gt; [port] [threads]
+ */
+public class ScoringServer {
+
+    public static final int DEFAULT_PORT = 8080;
+
+    public static final int DEFAULT_NUM_THREADS = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final AtomicReference<ScoringModel> mModel = new AtomicReference<ScoringModel>();
+
+    private final PredictionBatcher mBatcher;
+
+    private final ExecutorService mCompiler;
+
+    private volatile File mModelFile;
+
+    private final HttpServer mHttpServer;
+
+    private final ExecutorService mExecutor;
+
+    /**
+     * Tree being served, with the predictor and the row parser used for it
+     */
+    private static class ScoringModel {
+
+        final ID3Tree mTree;
+
+        final ID3Predictor mPredictor;
+
+        final ScoringRowParser mRowParser;
+
+        ScoringModel(ID3Tree tree, ID3Predictor predictor, ScoringRowParser rowParser) {
+            this.mTree = tree;
+            this.mPredictor = predictor;
+            this.mRowParser = rowParser;
+        }
+    }
+
+    /**
+     * Sets sun.net.httpserver.nodelay to true unless it is already set. This changes the whole JVM, and only takes
+     * effect if no HttpServer has been created yet.
+     */
+    public static void enableNoDelay() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Binds the server without starting it
+     *
+     * @param tree           Trained tree
+     * @param address        Address to listen on, port 0 for any free port
+     * @param numThreads     Number of request threads
+     * @param maxBatchRows   Number of rows after which a batch stops taking requests
+     * @param maxDelayMicros Time a batch waits for more requests after its first one, in microseconds
+     * @throws IOException If the address cannot be bound
+     */
+    public ScoringServer(ID3Tree tree, InetSocketAddress address, int numThreads, int maxBatchRows,
+                         long maxDelayMicros) throws IOException {
+        this.mBatcher = new PredictionBatcher(maxBatchRows, maxDelayMicros);
+        this.mCompiler = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "model-compiler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        swapModel(tree);
+        this.mExecutor = Executors.newFixedThreadPool(numThreads);
+        this.mHttpServer = HttpServer.create(address, 0);
+        mHttpServer.setExecutor(mExecutor);
+        mHttpServer.createContext("/predict", new PredictHandler());
+        mHttpServer.createContext("/reload", new ReloadHandler());
+        mHttpServer.createContext("/health", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                send(exchange, 200, "text/plain", "OK\n");
+            }
+        });
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void start() {
+        mHttpServer.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to delaySeconds for the requests being handled, then stops the batcher and
+     * the request threads
+     *
+     * @param delaySeconds Time to wait for the requests being handled
+     */
+    public void stop(int delaySeconds) {
+        mHttpServer.stop(delaySeconds);
+        mBatcher.close();
+        mCompiler.shutdownNow();
+        mExecutor.shutdown();
+        try {
+            mExecutor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Port the server listens on
+     */
+    public int getPort() {
+        return mHttpServer.getAddress().getPort();
+    }
+
+    /**
+     * Replaces the model being served. Requests already parsed finish on the previous model. The new model is scored
+     * by the tree itself until its compiled predictor is ready.
+     *
+     * @param tree Trained tree
+     * @return Tree served until now, or null if there was none
+     */
+    public ID3Tree swapModel(final ID3Tree tree) {
+        final ScoringModel model = new ScoringModel(tree, tree, new ScoringRowParser(tree.getAttributeList()));
+        ScoringModel previous = mModel.getAndSet(model);
+        if (!mCompiler.isShutdown()) {
+            mCompiler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (mModel.get() != model) {
+                        // Already replaced by a later model
+                        return;
+                    }
+                    ID3Predictor compiled = ID3TreeCompiler.compile(tree);
+                    if (compiled != tree) {
+                        // Only if no other model was swapped in meanwhile
+                        mModel.compareAndSet(model, new ScoringModel(tree, compiled, model.mRowParser));
+                    }
+                }
+            });
+        }
+        return previous == null ? null : previous.mTree;
+    }
+
+    /**
+     * Loads a model file and swaps it in. The file is remembered for POST /reload.
+     *
+     * @param modelFile Model file written by ID3ModelFile
+     * @return Tree served until now
+     * @throws IOException If the model file cannot be loaded; the current model is kept
+     */
+    public ID3Tree loadModel(File modelFile) throws IOException {
+        ID3Tree tree = ID3ModelFile.load(modelFile);
+        mModelFile = modelFile;
+        return swapModel(tree);
+    }
+
+    /**
+     * @return Tree being served
+     */
+    public ID3Tree getTree() {
+        return mModel.get().mTree;
+    }
+
+    /**
+     * @return Predictor currently scoring the tree being served: the tree itself, or its compiled predictor
+     */
+    public ID3Predictor getPredictor() {
+        return mModel.get().mPredictor;
+    }
+
+    /**
+     * @return Batcher scoring the rows of the requests
+     */
+    public PredictionBatcher getBatcher() {
+        return mBatcher;
+    }
+
+    /**
+     * Handler of POST /predict
+     */
+    private class PredictHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, "text/plain", "Use POST\n");
+                return;
+            }
+            String body = new String(readBody(exchange.getRequestBody()), UTF_8);
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            boolean json = isJSON(contentType, body);
+            ScoringModel model = mModel.get();
+            double[][] rows;
+            try {
+                rows = json ? model.mRowParser.parseJSON(body) : model.mRowParser.parseARFFLines(body);
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, "text/plain", e.getMessage() + "\n");
+                return;
+            }
+            int[] predictions;
+            try {
+                predictions = mBatcher.predict(model.mPredictor, rows);
+            } catch (PredictionBatcher.ClosedException e) {
+                send(exchange, 503, "text/plain", e.getMessage() + "\n");
+                return;
+            } catch (RuntimeException e) {
+                send(exchange, 500, "text/plain", "Prediction failed: " + e + "\n");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                send(exchange, 503, "text/plain", "Interrupted\n");
+                return;
+            }
+
+            String[] labels = model.mTree.getID3Class().mClassLabels;
+            StringBuilder response = new StringBuilder(predictions.length * 16 + 20);
+            if (json) {
+                response.append("{\"predictions\":[");
+                for (int i = 0; i < predictions.length; i++) {
+                    if (i > 0) {
+                        response.append(',');
+                    }
+                    appendJSONString(response, labels[predictions[i]]);
+                }
+                response.append("]}\n");
+                send(exchange, 200, "application/json", response.toString());
+            } else {
+                for (int prediction : predictions) {
+                    response.append(labels[prediction]).append('\n');
+                }
+                send(exchange, 200, "text/plain", response.toString());
+            }
+        }
+    }
+
+    /**
+     * Handler of POST /reload
+     */
+    private class ReloadHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, "text/plain", "Use POST\n");
+                return;
+            }
+            readBody(exchange.getRequestBody());
+            File modelFile = mModelFile;
+            if (modelFile == null) {
+                send(exchange, 409, "text/plain", "The server was not started from a model file\n");
+                return;
+            }
+            try {
+                loadModel(modelFile);
+            } catch (IOException e) {
+                send(exchange, 500, "text/plain", e.getMessage() + "\n");
+                return;
+            }
+            send(exchange, 200, "text/plain", "Loaded a " + getTree().getNumNodes() + " node tree from "
+                    + modelFile + "\n");
+        }
+    }
+
+    private static boolean isJSON(String contentType, String body) {
+        if (contentType != null && contentType.toLowerCase().contains("json")) {
+            return true;
+        }
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '[' || c == '{';
+            }
+        }
+        return false;
+    }
+
+    private static byte[] readBody(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        inputStream.close();
+        return body.toByteArray();
+    }
+
+    private static void appendJSONString(StringBuilder builder, String text) {
+        builder.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String text) throws IOException {
+        byte[] bytes = text.getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream outputStream = exchange.getResponseBody();
+        outputStream.write(bytes);
+        outputStream.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ScoringServer <model file or train arff file> [port] [threads]");
+            return;
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        int numThreads = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_NUM_THREADS;
+
+        File modelFile = null;
+        ID3Tree tree;
+        if (args[0].endsWith(ID3ModelFile.MODEL_EXTENSION)) {
+            modelFile = new File(args[0]);
+            tree = ID3ModelFile.load(modelFile);
+        } else {
+            ARFFReader arffReader = new ARFFReader(args[0]);
+            arffReader.parseARFFFile();
+            ID3Dataset data = arffReader.getDataset();
+            if (data == null) {
+                return;
+            }
+            tree = new ID3(ID3.DEFAULT_MIN_INSTANCES, ID3.DEFAULT_MAX_DEPTH).buildTree(data);
+        }
+        enableNoDelay();
+        ScoringServer server = new ScoringServer(tree, new InetSocketAddress(port), numThreads,
+                PredictionBatcher.DEFAULT_MAX_BATCH_ROWS, 0);
+        server.mModelFile = modelFile;
+        server.start();
+        System.out.println("Scoring a " + tree.getNumNodes() + " node tree on port " + server.getPort());
+    }
+}